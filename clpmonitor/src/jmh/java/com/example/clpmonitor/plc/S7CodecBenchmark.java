@@ -0,0 +1,129 @@
+package com.example.clpmonitor.plc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Codificação e decodificação de telegramas S7 sem rede: montagem de
+ * ReadVar/WriteVar, parse da resposta de leitura e codecs de tipo.
+ * Rodar com "-prof gc" para ver a alocação por operação (gc.alloc.rate.norm).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class S7CodecBenchmark {
+
+    private S7Client client;
+    private List<S7ReadItem> singleItem;
+    private List<S7ReadItem> manyItems;
+    private byte[] block28;
+    private byte[] manyItemsResponse;
+    private S7PreparedRead preparedRead;
+
+    @Setup
+    public void setup() {
+        client = new S7Client("127.0.0.1", 102);
+        singleItem = List.of(S7ReadItem.ofInt(9, 6));
+
+        // 16 itens INT/REAL: o máximo que cabe num ReadVar com a PDU padrão de 240 bytes
+        manyItems = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            manyItems.add(i % 2 == 0 ? S7ReadItem.ofInt(9, i * 4) : S7ReadItem.ofFloat(9, i * 4));
+        }
+        block28 = new byte[28];
+        manyItemsResponse = readResponse(manyItems);
+        preparedRead = client.prepareRead(manyItems);
+    }
+
+    @Benchmark
+    public byte[] createReadRequest() {
+        return client.createReadRequest(singleItem);
+    }
+
+    @Benchmark
+    public byte[] createReadRequest16Items() {
+        return client.createReadRequest(manyItems);
+    }
+
+    @Benchmark
+    public byte[] createWriteRequestInt() {
+        return client.createWriteRequest(9, 6, 0, 2, S7DataType.INTEGER, 1234);
+    }
+
+    @Benchmark
+    public byte[] createWriteRequestBlock() {
+        return client.createWriteRequest(9, 68, 0, 28, S7DataType.BLOCK, block28);
+    }
+
+    @Benchmark
+    public byte[] createWriteRequestString() {
+        return client.createWriteRequest(9, 100, 0, 20, S7DataType.STRING, "SENAI");
+    }
+
+    // Caminho genérico: uma lista de S7ReadResult com cópia dos dados de cada item
+    @Benchmark
+    public List<S7ReadResult> parseReadResponse16Items() throws Exception {
+        return S7Client.parseReadResponse(manyItemsResponse, manyItemsResponse.length, manyItems);
+    }
+
+    // Caminho preparado: decodifica nos buffers pré-alocados (sem alocação por leitura)
+    @Benchmark
+    public int preparedReadDecode16Items() throws Exception {
+        preparedRead.decode(manyItemsResponse, manyItemsResponse.length);
+        return preparedRead.getInt(0);
+    }
+
+    @Benchmark
+    public long decodeInt() {
+        return S7DataType.INTEGER.decodeLong(manyItemsResponse, 25);
+    }
+
+    @Benchmark
+    public double decodeFloat() {
+        return S7DataType.FLOAT.decodeDouble(manyItemsResponse, 31);
+    }
+
+    @Benchmark
+    public Object decodeIntBoxed() {
+        return S7DataType.INTEGER.decode(manyItemsResponse, 25, 2);
+    }
+
+    // Resposta Ack-Data de um ReadVar com o valor 0x01.. em cada item
+    static byte[] readResponse(List<S7ReadItem> items) {
+        ByteBuffer data = ByteBuffer.allocate(4096);
+        for (int i = 0; i < items.size(); i++) {
+            int size = items.get(i).getSize();
+            data.put((byte) 0xFF).put((byte) 0x04).putShort((short) (size << 3));
+            for (int b = 0; b < size; b++) {
+                data.put((byte) (i + b + 1));
+            }
+            if ((size & 0x01) == 1 && i < items.size() - 1) {
+                data.put((byte) 0x00);
+            }
+        }
+        int length = 21 + data.position();
+        ByteBuffer frame = ByteBuffer.allocate(length);
+        frame.put((byte) 0x03).put((byte) 0x00).putShort((short) length);
+        frame.put((byte) 0x02).put((byte) 0xF0).put((byte) 0x80);
+        frame.put((byte) 0x32).put((byte) 0x03).putShort((short) 0).putShort((short) 0);
+        frame.putShort((short) 2).putShort((short) data.position()).put((byte) 0).put((byte) 0);
+        frame.put((byte) 0x04).put((byte) items.size()).put(data.array(), 0, data.position());
+        return frame.array();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.clpmonitor.plc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.clpmonitor.plc.emulator.S7Emulator;
+
+/*
+ * Ida e volta completa (telegrama, loopback TCP, CLP emulado, parse) com uma
+ * sessão aberta, sem latência injetada: mede o custo do lado da aplicação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S7RoundTripBenchmark {
+
+    private S7Emulator emulator;
+    private PlcConnector plc;
+    private S7PreparedRead preparedRead;
+    private List<S7ReadItem> mixedItems;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        emulator = new S7Emulator("jmh", 0);
+        emulator.defineDb(9, 1024);
+        emulator.start();
+
+        plc = new PlcConnector("127.0.0.1", emulator.getPort());
+        plc.connect();
+        mixedItems = List.of(S7ReadItem.ofInt(9, 6), S7ReadItem.ofFloat(9, 10), S7ReadItem.ofBit(9, 20, 3),
+                S7ReadItem.ofBlock(9, 68, 28));
+        preparedRead = plc.prepareRead(mixedItems);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        plc.disconnect();
+        emulator.close();
+    }
+
+    @Benchmark
+    public int readInt() throws Exception {
+        return plc.readInt(9, 6);
+    }
+
+    @Benchmark
+    public byte[] readBlock200() throws Exception {
+        return plc.readBlock(9, 0, 200);
+    }
+
+    @Benchmark
+    public List<S7ReadResult> readMixedItems() throws Exception {
+        return plc.readItems(mixedItems);
+    }
+
+    @Benchmark
+    public int readPrepared() throws Exception {
+        plc.read(preparedRead);
+        return preparedRead.getInt(0);
+    }
+
+    @Benchmark
+    public boolean writeInt() throws Exception {
+        return plc.write(9, 6, 0, 2, S7DataType.INTEGER, 1234);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.clpmonitor.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.clpmonitor.plc.PlcConnector;
+
+/*
+ * Conversões de texto vindas do formulário de escrita.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    private String hexBlock = "0102030405060708090A0B0C0D0E0F101112131415161718191A1B1C";
+
+    @Benchmark
+    public byte[] hexStringToByteArray() {
+        return PlcConnector.hexStringToByteArray(hexBlock);
+    }
+
+    @Benchmark
+    public Object parseInteger() {
+        return TagValueParser.parseValue("1234", "INTEGER");
+    }
+
+    @Benchmark
+    public Object parseFloat() {
+        return TagValueParser.parseValue("3.1415", "FLOAT");
+    }
+
+    @Benchmark
+    public Object parseBlock() {
+        return TagValueParser.parseValue(hexBlock, "BLOCK");
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.clpmonitor.loadtest;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*
+ * Teste de carga de ponta a ponta (CLP -> varredura -> SSE -> navegador).
+ *
+ * Roda uma etapa (LoadTestStep) para cada combinação de plcs x tags x clients
+ * e grava o resultado de todas em JSON (loadtest-<data>.json em --out).
+ *
+ *   mvn -Ploadtest test-compile exec:exec
+ *   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--plcs=10,100 --clients=1,50,200 --duration-s=60"
+ *
+ * Opções (listas separadas por vírgula nas três primeiras):
+ *   --plcs=10            CLPs emulados
+ *   --tags=20            tags por CLP (1 DINT de sequência + INTs)
+ *   --clients=10         assinantes SSE
+ *   --rate-ms=250        período de varredura de cada CLP
+ *   --change-ms=1000     período de mudança do valor em cada CLP
+ *   --plc-latency-ms=0-0 latência de resposta dos CLPs emulados (mín-máx)
+ *   --warmup-s=5         aquecimento antes de medir
+ *   --duration-s=30      janela de medição
+ *   --out=target/loadtest
+ * Qualquer outro --chave=valor é repassado à aplicação (ex.: --clp.sse.compact=true).
+ */
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // O reinício automático do devtools relançaria a aplicação noutro classloader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, Object> applicationProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido (use --chave=valor): " + arg);
+            }
+            String key = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (key.contains(".")) {
+                applicationProperties.put(key, value);
+            } else {
+                options.put(key, value);
+            }
+        }
+
+        int[] plcs = intList(options.getOrDefault("plcs", "10"));
+        int[] tags = intList(options.getOrDefault("tags", "20"));
+        int[] clients = intList(options.getOrDefault("clients", "10"));
+        long rateMs = Long.parseLong(options.getOrDefault("rate-ms", "250"));
+        long changeMs = Long.parseLong(options.getOrDefault("change-ms", "1000"));
+        String[] plcLatency = options.getOrDefault("plc-latency-ms", "0-0").split("-");
+        int warmupS = Integer.parseInt(options.getOrDefault("warmup-s", "5"));
+        int durationS = Integer.parseInt(options.getOrDefault("duration-s", "30"));
+        File outDir = new File(options.getOrDefault("out", "target/loadtest"));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", LocalDateTime.now().toString());
+        report.put("environment", environment());
+        List<Map<String, Object>> steps = new ArrayList<>();
+        report.put("steps", steps);
+
+        for (int plcCount : plcs) {
+            for (int tagCount : tags) {
+                for (int clientCount : clients) {
+                    System.out.println("Etapa: " + plcCount + " CLPs x " + tagCount + " tags, " + clientCount
+                            + " clientes...");
+                    LoadTestStep step = new LoadTestStep(plcCount, tagCount, clientCount, rateMs, changeMs, warmupS,
+                            durationS, Integer.parseInt(plcLatency[0]),
+                            Integer.parseInt(plcLatency[plcLatency.length - 1]), applicationProperties);
+                    Map<String, Object> result = step.run();
+                    steps.add(result);
+                    System.out.println("  " + summary(result));
+                    System.gc();
+                }
+            }
+        }
+
+        outDir.mkdirs();
+        File file = new File(outDir,
+                "loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        System.out.println("Relatório: " + file.getAbsolutePath());
+        System.exit(0);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Percentis em ms a partir de amostras em microssegundos
+    // --------------------------------------------------------------------------------------------
+    static Map<String, Object> percentiles(long[] micros) {
+        long[] sorted = micros.clone();
+        Arrays.sort(sorted);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", sorted.length);
+        result.put("p50", percentile(sorted, 0.50));
+        result.put("p90", percentile(sorted, 0.90));
+        result.put("p99", percentile(sorted, 0.99));
+        result.put("p999", percentile(sorted, 0.999));
+        result.put("max", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0);
+        return result;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+
+    private static Map<String, Object> environment() {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("javaVersion", System.getProperty("java.version"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        environment.put("jvmArgs", ManagementFactory.getRuntimeMXBean().getInputArguments());
+        return environment;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String summary(Map<String, Object> result) {
+        Map<String, Object> delivery = (Map<String, Object>) result.get("delivery");
+        Map<String, Object> latency = (Map<String, Object>) delivery.get("latencyMs");
+        Map<String, Object> scan = (Map<String, Object>) result.get("scan");
+        Map<String, Object> jitter = (Map<String, Object>) scan.get("jitterMs");
+        Map<String, Object> resources = (Map<String, Object>) result.get("resources");
+        return "latência p50/p99/máx " + latency.get("p50") + "/" + latency.get("p99") + "/" + latency.get("max")
+                + " ms, perdidas " + delivery.get("lostUpdates")
+                + ", jitter p99 " + jitter.get("p99") + " ms, ciclos perdidos " + scan.get("missedCycles")
+                + ", CPU " + resources.get("cpuAvgPercent") + "%, heap máx " + resources.get("heapMaxMb") + " MB";
+    }
+
+    private static int[] intList(String value) {
+        return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.clpmonitor.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.clpmonitor.ClpmonitorApplication;
+import com.example.clpmonitor.plc.emulator.S7Emulator;
+import com.example.clpmonitor.scan.ScanEngine;
+import com.example.clpmonitor.util.VirtualThreads;
+
+/*
+ * Uma etapa do teste de carga: sobe "plcs" CLPs emulados com "tags" tags cada
+ * (um DINT de sequência + INTs), a aplicação completa apontando para eles
+ * (um grupo de varredura e um evento SSE lt-N por CLP) e "clients" assinantes
+ * de /clp-data-stream. Depois do aquecimento, mede durante duration-s:
+ *   - latência mudança no CLP -> evento no cliente (percentis)
+ *   - atualizações que o cliente nunca viu (sequência pulada)
+ *   - jitter e ciclos perdidos da varredura
+ *   - CPU, heap e GC do processo
+ */
+final class LoadTestStep {
+
+    private final int plcs;
+    private final int tags;
+    private final int clients;
+    private final long rateMs;
+    private final long changeMs;
+    private final int warmupS;
+    private final int durationS;
+    private final int latencyMinMs;
+    private final int latencyMaxMs;
+    private final Map<String, Object> extraProperties;
+
+    LoadTestStep(int plcs, int tags, int clients, long rateMs, long changeMs, int warmupS, int durationS,
+            int latencyMinMs, int latencyMaxMs, Map<String, Object> extraProperties) {
+        this.plcs = plcs;
+        this.tags = Math.max(1, tags);
+        this.clients = clients;
+        this.rateMs = rateMs;
+        this.changeMs = changeMs;
+        this.warmupS = warmupS;
+        this.durationS = durationS;
+        this.latencyMinMs = latencyMinMs;
+        this.latencyMaxMs = latencyMaxMs;
+        this.extraProperties = extraProperties;
+    }
+
+    Map<String, Object> run() throws Exception {
+        List<S7Emulator> emulators = new ArrayList<>();
+        List<SseLoadClient> sseClients = new ArrayList<>();
+        List<Thread> clientThreads = new ArrayList<>();
+        ScanJitterProbe probe = new ScanJitterProbe();
+        ConfigurableApplicationContext context = null;
+
+        try {
+            for (int i = 0; i < plcs; i++) {
+                S7Emulator emulator = new S7Emulator("lt" + i, 0);
+                emulator.defineDb(Stimulus.DB, Math.max(64, 4 + 2 * tags));
+                emulator.setLatency(latencyMinMs, latencyMaxMs);
+                emulator.start();
+                emulators.add(emulator);
+            }
+
+            try (Stimulus stimulus = new Stimulus(emulators); ResourceSampler sampler = new ResourceSampler()) {
+                // Como argumentos de linha de comando, para valer sobre o application.properties
+                String[] args = applicationProperties(emulators).entrySet().stream()
+                        .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                        .toArray(String[]::new);
+                context = new SpringApplicationBuilder(ClpmonitorApplication.class).run(args);
+                context.getBean(ScanEngine.class).addListener(probe);
+                int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+
+                stimulus.start(changeMs);
+
+                HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                URI uri = URI.create("http://127.0.0.1:" + port + "/clp-data-stream");
+                ThreadFactory threads = VirtualThreads.factory("sse-client");
+                for (int i = 0; i < clients; i++) {
+                    SseLoadClient client = new SseLoadClient(http, uri, stimulus);
+                    Thread thread = threads.newThread(client);
+                    thread.start();
+                    sseClients.add(client);
+                    clientThreads.add(thread);
+                }
+
+                Thread.sleep(warmupS * 1000L);
+                probe.setRecording(true);
+                sseClients.forEach(client -> client.setRecording(true));
+                sampler.start();
+
+                Thread.sleep(durationS * 1000L);
+
+                probe.setRecording(false);
+                sseClients.forEach(client -> client.setRecording(false));
+                Map<String, Object> resources = sampler.report();
+                long connected = sseClients.stream().filter(SseLoadClient::isConnected).count();
+
+                // Clientes encerrados antes da aplicação não contam como falha
+                stimulus.close();
+                sseClients.forEach(SseLoadClient::stop);
+                context.close();
+                context = null;
+                for (Thread thread : clientThreads) {
+                    thread.join(5000);
+                }
+                return report(probe, sseClients, connected, resources);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            sseClients.forEach(SseLoadClient::stop);
+            emulators.forEach(S7Emulator::close);
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Configuração da aplicação: banco em memória, varredura dos emulados, log enxuto
+    // --------------------------------------------------------------------------------------------
+    private Map<String, Object> applicationProperties(List<S7Emulator> emulators) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create");
+        properties.put("spring.jpa.open-in-view", false);
+        // O devtools tenta um SHUTDOWN no banco em memória depois que o pool já o fechou
+        properties.put("spring.autoconfigure.exclude",
+                "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration");
+
+        properties.put("clp.scan.enabled", true);
+        for (int i = 0; i < emulators.size(); i++) {
+            String plc = "clp.scan.plcs[" + i + "].";
+            properties.put(plc + "name", "lt" + i);
+            properties.put(plc + "ip", "127.0.0.1");
+            properties.put(plc + "port", emulators.get(i).getPort());
+            String group = plc + "groups[0].";
+            properties.put(group + "name", "carga");
+            properties.put(group + "rate-ms", rateMs);
+            properties.put(group + "event", "lt-" + i);
+            properties.put(group + "clp-id", i);
+            properties.put(group + "tags[0].name", "seq");
+            properties.put(group + "tags[0].db", Stimulus.DB);
+            properties.put(group + "tags[0].offset", 0);
+            properties.put(group + "tags[0].type", "DINT");
+            if (tags > 1) {
+                properties.put(group + "tags[1].name", "valor");
+                properties.put(group + "tags[1].db", Stimulus.DB);
+                properties.put(group + "tags[1].offset", 4);
+                properties.put(group + "tags[1].type", "INTEGER");
+                properties.put(group + "tags[1].count", tags - 1);
+            }
+        }
+        properties.putAll(extraProperties);
+        return properties;
+    }
+
+    private Map<String, Object> report(ScanJitterProbe probe, List<SseLoadClient> sseClients, long connected,
+            Map<String, Object> resources) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("plcs", plcs);
+        parameters.put("tagsPerPlc", tags);
+        parameters.put("clients", clients);
+        parameters.put("scanRateMs", rateMs);
+        parameters.put("changeMs", changeMs);
+        parameters.put("plcLatencyMs", latencyMinMs + "-" + latencyMaxMs);
+        parameters.put("durationS", durationS);
+
+        long[] latencies = sseClients.stream().flatMapToLong(c -> Arrays.stream(c.getLatenciesMicros())).toArray();
+        long events = sseClients.stream().mapToLong(SseLoadClient::getEvents).sum();
+        Map<String, Object> delivery = new LinkedHashMap<>();
+        delivery.put("connectedClients", connected);
+        delivery.put("failedClients", sseClients.stream().filter(SseLoadClient::isFailed).count());
+        delivery.put("events", events);
+        delivery.put("eventsPerSecond", ResourceSampler.round((double) events / durationS));
+        delivery.put("lostUpdates", sseClients.stream().mapToLong(SseLoadClient::getLostUpdates).sum());
+        delivery.put("latencyMs", LoadTestRunner.percentiles(latencies));
+
+        long expectedCycles = plcs * durationS * 1000L / rateMs;
+        Map<String, Object> scan = new LinkedHashMap<>();
+        scan.put("cycles", probe.getCycles());
+        scan.put("expectedCycles", expectedCycles);
+        scan.put("missedCycles", probe.getMissedCycles());
+        scan.put("errors", probe.getErrors());
+        scan.put("jitterMs", LoadTestRunner.percentiles(probe.getJitterMicros()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("parameters", parameters);
+        result.put("delivery", delivery);
+        result.put("scan", scan);
+        result.put("resources", resources);
+        return result;
+    }
+}
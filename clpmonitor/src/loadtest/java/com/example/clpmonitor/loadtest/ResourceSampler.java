@@ -0,0 +1,107 @@
+package com.example.clpmonitor.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Amostra CPU do processo (tempo de CPU / tempo de parede / núcleos) e heap
+ * usado uma vez por segundo, e a diferença de coletas de lixo na janela.
+ * Servidor, CLPs emulados e clientes rodam na mesma JVM: os números são do
+ * conjunto, e a etapa com 0 clientes ou poucos CLPs serve de linha de base.
+ */
+final class ResourceSampler implements AutoCloseable {
+
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "loadtest-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long lastCpu;
+    private long lastWall;
+    private long startCpu;
+    private long startWall;
+    private long startGcCount;
+    private long startGcTime;
+    private double cpuMax;
+    private double heapSum;
+    private long heapMax;
+    private int samples;
+
+    void start() {
+        startCpu = lastCpu = os.getProcessCpuTime();
+        startWall = lastWall = System.nanoTime();
+        startGcCount = gcCount();
+        startGcTime = gcTime();
+        timer.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void sample() {
+        lock.lock();
+        try {
+            long cpu = os.getProcessCpuTime();
+            long wall = System.nanoTime();
+            cpuMax = Math.max(cpuMax, percent(cpu - lastCpu, wall - lastWall));
+            lastCpu = cpu;
+            lastWall = wall;
+
+            long heap = memory.getHeapMemoryUsage().getUsed();
+            heapSum += heap;
+            heapMax = Math.max(heapMax, heap);
+            samples++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Object> report() {
+        lock.lock();
+        try {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("cpuAvgPercent", round(percent(os.getProcessCpuTime() - startCpu, System.nanoTime() - startWall)));
+            result.put("cpuMaxPercent", round(cpuMax));
+            result.put("heapAvgMb", round(samples == 0 ? 0 : heapSum / samples / (1024 * 1024)));
+            result.put("heapMaxMb", round((double) heapMax / (1024 * 1024)));
+            result.put("gcCount", gcCount() - startGcCount);
+            result.put("gcTimeMs", gcTime() - startGcTime);
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double percent(long cpuNanos, long wallNanos) {
+        return wallNanos <= 0 ? 0 : 100.0 * cpuNanos / wallNanos / cores;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.clpmonitor.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.clpmonitor.scan.ScanGroup;
+import com.example.clpmonitor.scan.ScanListener;
+import com.example.clpmonitor.scan.TagValue;
+
+/*
+ * Mede o ciclo real de cada grupo de varredura: intervalo entre entregas
+ * consecutivas comparado com rate-ms. Jitter é o desvio absoluto do intervalo;
+ * ciclos perdidos são os disparos pulados (intervalo de N períodos conta N - 1),
+ * que acontecem quando a leitura anterior ainda não terminou.
+ */
+final class ScanJitterProbe implements ScanListener {
+
+    private final Map<ScanGroup, GroupStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean recording;
+
+    @Override
+    public void onScan(ScanGroup group, List<TagValue> values) {
+        long now = System.nanoTime();
+        GroupStats groupStats = stats.computeIfAbsent(group, g -> new GroupStats());
+        // O ScanEngine nunca roda dois ciclos do mesmo grupo ao mesmo tempo
+        groupStats.record(now, group.getRateMs(), recording);
+    }
+
+    @Override
+    public void onScanError(ScanGroup group, Exception error) {
+        if (recording) {
+            errors.incrementAndGet();
+        }
+    }
+
+    void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    long getCycles() {
+        return stats.values().stream().mapToLong(s -> s.cycles).sum();
+    }
+
+    long getMissedCycles() {
+        return stats.values().stream().mapToLong(s -> s.missed).sum();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    long[] getJitterMicros() {
+        return stats.values().stream()
+                .flatMapToLong(s -> Arrays.stream(s.jitterMicros, 0, s.count))
+                .toArray();
+    }
+
+    private static final class GroupStats {
+        long last;
+        long cycles;
+        long missed;
+        long[] jitterMicros = new long[256];
+        int count;
+
+        void record(long now, long rateMs, boolean recording) {
+            long previous = last;
+            last = now;
+            if (previous == 0 || !recording) {
+                return;
+            }
+            cycles++;
+            long intervalMicros = (now - previous) / 1000;
+            long rateMicros = rateMs * 1000;
+            long periods = Math.round((double) intervalMicros / rateMicros);
+            if (periods > 1) {
+                missed += periods - 1;
+            }
+            if (count == jitterMicros.length) {
+                jitterMicros = Arrays.copyOf(jitterMicros, count * 2);
+            }
+            jitterMicros[count++] = Math.abs(intervalMicros - Math.max(periods, 1) * rateMicros);
+        }
+    }
+}
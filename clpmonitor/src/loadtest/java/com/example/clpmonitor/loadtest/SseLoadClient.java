@@ -0,0 +1,157 @@
+package com.example.clpmonitor.loadtest;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Navegador "sem tela": assina /clp-data-stream e, para cada evento lt-N,
+ * extrai a sequência (primeiro valor da lista) e calcula a latência desde a
+ * escrita no CLP emulado. Cada cliente guarda as próprias amostras (sem
+ * contenção entre clientes); o LoadTestStep junta tudo depois que a thread
+ * do cliente termina.
+ */
+final class SseLoadClient implements Runnable {
+
+    private final HttpClient http;
+    private final URI uri;
+    private final Stimulus stimulus;
+    private final long[] lastSeq;
+
+    private long[] latenciesMicros = new long[1024];
+    private int latencyCount;
+    private long events;
+    private long lostUpdates;
+    private volatile boolean recording;
+    private volatile boolean connected;
+    private volatile boolean failed;
+    private volatile boolean stopped;
+    private volatile InputStream body;
+
+    SseLoadClient(HttpClient http, URI uri, Stimulus stimulus) {
+        this.http = http;
+        this.uri = uri;
+        this.stimulus = stimulus;
+        this.lastSeq = new long[stimulus.getPlcCount()];
+        Arrays.fill(lastSeq, -1);
+    }
+
+    @Override
+    public void run() {
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "text/event-stream").GET().build();
+        try {
+            HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            body = response.body();
+            connected = response.statusCode() == 200;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            String event = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                } else if (line.startsWith("data:") && event != null) {
+                    onEvent(event, line.substring(5));
+                } else if (line.isEmpty()) {
+                    event = null;
+                }
+            }
+        } catch (Exception e) {
+            // Fechamento no fim da etapa também cai aqui
+        } finally {
+            if (!stopped) {
+                failed = true;
+            }
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        InputStream in = body;
+        if (in != null) {
+            try {
+                in.close();
+            } catch (Exception e) {
+                // já fechado
+            }
+        }
+    }
+
+    private void onEvent(String event, String data) {
+        if (!event.startsWith("lt-")) {
+            return;
+        }
+        long now = System.nanoTime();
+        int plc = Integer.parseInt(event.substring(3));
+        long seq = firstValue(data);
+        if (seq < 0 || seq <= lastSeq[plc]) {
+            // Estado inicial repetido ou heartbeat sem mudança
+            return;
+        }
+        long previous = lastSeq[plc];
+        lastSeq[plc] = seq;
+        if (!recording) {
+            return;
+        }
+        events++;
+        if (previous >= 0 && seq - previous > 1) {
+            lostUpdates += seq - previous - 1;
+        }
+        long sentAt = stimulus.sentAt(plc, seq);
+        if (sentAt != 0) {
+            if (latencyCount == latenciesMicros.length) {
+                latenciesMicros = Arrays.copyOf(latenciesMicros, latencyCount * 2);
+            }
+            latenciesMicros[latencyCount++] = (now - sentAt) / 1000;
+        }
+    }
+
+    // Primeiro número de "value":[...] sem passar pelo Jackson (o cliente não pode ser o gargalo)
+    static long firstValue(String json) {
+        int start = json.indexOf("\"value\":[");
+        if (start < 0) {
+            return -1;
+        }
+        long value = 0;
+        boolean digits = false;
+        for (int i = start + 9; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+            } else {
+                break;
+            }
+        }
+        return digits ? value : -1;
+    }
+
+    void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+
+    boolean isConnected() {
+        return connected;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    long getEvents() {
+        return events;
+    }
+
+    long getLostUpdates() {
+        return lostUpdates;
+    }
+
+    long[] getLatenciesMicros() {
+        return Arrays.copyOf(latenciesMicros, latencyCount);
+    }
+}
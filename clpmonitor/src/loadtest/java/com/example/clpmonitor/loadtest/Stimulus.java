@@ -0,0 +1,68 @@
+package com.example.clpmonitor.loadtest;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.example.clpmonitor.plc.emulator.S7Emulator;
+
+/*
+ * Gera as mudanças de valor: a cada change-ms incrementa o contador (DINT em
+ * DB9.DBD0) de cada CLP emulado e anota o instante da escrita, indexado por
+ * CLP e sequência. As escritas dos CLPs são defasadas dentro do período para
+ * não chegarem todas no mesmo instante.
+ */
+final class Stimulus implements AutoCloseable {
+
+    static final int DB = 9;
+
+    // Sequências guardadas por CLP; maior que qualquer atraso razoável em ciclos
+    private static final int RING = 4096;
+
+    private final List<S7Emulator> emulators;
+    private final AtomicLongArray sentAt;
+    private final long[] sequence;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "loadtest-stimulus");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    Stimulus(List<S7Emulator> emulators) {
+        this.emulators = emulators;
+        this.sentAt = new AtomicLongArray(emulators.size() * RING);
+        this.sequence = new long[emulators.size()];
+    }
+
+    void start(long changeMs) {
+        int count = emulators.size();
+        for (int plc = 0; plc < count; plc++) {
+            int index = plc;
+            long delayMicros = changeMs * 1000 * plc / count;
+            timer.scheduleAtFixedRate(() -> change(index), delayMicros, changeMs * 1000, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private void change(int plc) {
+        long seq = ++sequence[plc];
+        sentAt.set(plc * RING + (int) (seq % RING), System.nanoTime());
+        emulators.get(plc).writeDb(DB, 0, ByteBuffer.allocate(4).putInt((int) seq).array());
+    }
+
+    // Instante (nanoTime) da escrita da sequência (0 se ainda não houve escrita nessa posição do anel)
+    long sentAt(int plc, long seq) {
+        return sentAt.get(plc * RING + (int) (seq % RING));
+    }
+
+    int getPlcCount() {
+        return emulators.size();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.clpmonitor.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/*
+ * Regras de projeção CLP -> banco (prefixo clp.projection no application.properties).
+ *
+ * Cada regra liga uma faixa de endereços de um CLP (DB, offset, count valores
+ * do tipo, espaçados de stride bytes) a posições de um estoque: o valor no
+ * endereço offset + i * stride vai para a posição position + i, no campo
+ * indicado (COLOR = cor do bloco, ORDER = ordem de produção). O StorageProjector
+ * compila as regras num índice por endereço (ver ProjectionIndex).
+ */
+@Component
+@ConfigurationProperties(prefix = "clp.projection")
+public class ProjectionProperties {
+
+    public enum Field {
+        COLOR, ORDER
+    }
+
+    // Projeta também os valores varridos pelo ScanEngine (só quando mudam), além das escritas
+    private boolean fromScan = false;
+    private List<Rule> rules = new ArrayList<>();
+
+    public boolean isFromScan() {
+        return fromScan;
+    }
+
+    public void setFromScan(boolean fromScan) {
+        this.fromScan = fromScan;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    /*
+     * Faixa de endereços de um CLP ligada a posições de um estoque.
+     * stride 0 usa o tamanho do tipo.
+     */
+    public static class Rule {
+
+        private String name;
+        private String ip;
+        private int port = 102;
+        private int db;
+        private int offset;
+        private String type = "BYTE";
+        private int count = 1;
+        private int stride;
+        private Field field = Field.COLOR;
+        private int storageId = 1;
+        private int position;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getIp() {
+            return ip;
+        }
+
+        public void setIp(String ip) {
+            this.ip = ip;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public int getDb() {
+            return db;
+        }
+
+        public void setDb(int db) {
+            this.db = db;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public void setOffset(int offset) {
+            this.offset = offset;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public int getStride() {
+            return stride;
+        }
+
+        public void setStride(int stride) {
+            this.stride = stride;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public void setField(Field field) {
+            this.field = field;
+        }
+
+        public int getStorageId() {
+            return storageId;
+        }
+
+        public void setStorageId(int storageId) {
+            this.storageId = storageId;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        public void setPosition(int position) {
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.clpmonitor.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/*
+ * Declaração das varreduras (prefixo clp.scan no application.properties).
+ *
+ * Cada CLP tem grupos de tags com taxa própria; o ScanEngine agrupa os
+ * endereços de cada grupo no menor número de leituras de bloco.
+ */
+@Component
+@ConfigurationProperties(prefix = "clp.scan")
+public class ScanProperties {
+
+    private boolean enabled = false;
+    // blocking: sessões do PlcConnectionPool, um ciclo por thread virtual;
+    // nio: S7NioTransport, poucas threads de I/O (clp.nio.io-threads) para todos os CLPs
+    private String transport = "blocking";
+    // Lacuna máxima (bytes) entre tags do mesmo DB para que sejam lidas num único bloco
+    private int maxGap = 16;
+    private List<Plc> plcs = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public boolean isNio() {
+        return "nio".equalsIgnoreCase(transport.trim());
+    }
+
+    public int getMaxGap() {
+        return maxGap;
+    }
+
+    public void setMaxGap(int maxGap) {
+        this.maxGap = maxGap;
+    }
+
+    public List<Plc> getPlcs() {
+        return plcs;
+    }
+
+    public void setPlcs(List<Plc> plcs) {
+        this.plcs = plcs;
+    }
+
+    public static class Plc {
+
+        private String name;
+        private String ip;
+        private int port = 102;
+        private List<Group> groups = new ArrayList<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getIp() {
+            return ip;
+        }
+
+        public void setIp(String ip) {
+            this.ip = ip;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        public List<Group> getGroups() {
+            return groups;
+        }
+
+        public void setGroups(List<Group> groups) {
+            this.groups = groups;
+        }
+    }
+
+    public static class Group {
+
+        private String name;
+        private long rateMs = 1000;
+        // Evento SSE publicado com os valores do grupo (opcional)
+        private String event;
+        private int clpId;
+        private List<TagDefinition> tags = new ArrayList<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getRateMs() {
+            return rateMs;
+        }
+
+        public void setRateMs(long rateMs) {
+            this.rateMs = rateMs;
+        }
+
+        public String getEvent() {
+            return event;
+        }
+
+        public void setEvent(String event) {
+            this.event = event;
+        }
+
+        public int getClpId() {
+            return clpId;
+        }
+
+        public void setClpId(int clpId) {
+            this.clpId = clpId;
+        }
+
+        public List<TagDefinition> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<TagDefinition> tags) {
+            this.tags = tags;
+        }
+    }
+
+    /*
+     * Tag (ou sequência de tags iguais, quando count > 1: nome[0], nome[1]...,
+     * espaçadas de stride bytes; stride 0 usa o tamanho do tipo).
+     */
+    public static class TagDefinition {
+
+        private String name;
+        private int db;
+        private int offset;
+        private int bit;
+        private int size;
+        private String type = "INTEGER";
+        private int count = 1;
+        private int stride;
+        // Banda morta para publicação: variação absoluta e/ou percentual do último valor publicado
+        private double deadband;
+        private double deadbandPercent;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getDb() {
+            return db;
+        }
+
+        public void setDb(int db) {
+            this.db = db;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public void setOffset(int offset) {
+            this.offset = offset;
+        }
+
+        public int getBit() {
+            return bit;
+        }
+
+        public void setBit(int bit) {
+            this.bit = bit;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public int getStride() {
+            return stride;
+        }
+
+        public void setStride(int stride) {
+            this.stride = stride;
+        }
+
+        public double getDeadband() {
+            return deadband;
+        }
+
+        public void setDeadband(double deadband) {
+            this.deadband = deadband;
+        }
+
+        public double getDeadbandPercent() {
+            return deadbandPercent;
+        }
+
+        public void setDeadbandPercent(double deadbandPercent) {
+            this.deadbandPercent = deadbandPercent;
+        }
+    }
+}
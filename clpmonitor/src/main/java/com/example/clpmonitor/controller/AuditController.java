@@ -0,0 +1,51 @@
+package com.example.clpmonitor.controller;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.clpmonitor.model.TagLog;
+import com.example.clpmonitor.repository.TagLogRepository;
+
+/*
+ * Consulta paginada da trilha de auditoria das escritas no CLP.
+ *
+ * GET /api/audit?from=2025-05-01T00:00:00&to=2025-05-02T00:00:00&plcIp=10.74.241.10&page=0&size=50
+ * Sem "from"/"to" considera as últimas 24 horas; resultados do mais recente para o mais antigo
+ * (coberto pelos índices de operation_time da tabela tag_log).
+ */
+@RestController
+public class AuditController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private TagLogRepository tagLogRepository;
+
+    @GetMapping("/api/audit")
+    public PagedModel<TagLog> listAudit(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String plcIp,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusHours(24);
+        PageRequest pageable = PageRequest.of(Math.max(0, page), Math.min(Math.max(1, size), MAX_PAGE_SIZE),
+                Sort.by(Sort.Direction.DESC, "operationTime"));
+
+        Page<TagLog> result = plcIp == null || plcIp.isBlank()
+                ? tagLogRepository.findByOperationTimeBetween(start, end, pageable)
+                : tagLogRepository.findByPlcIpAndOperationTimeBetween(plcIp, start, end, pageable);
+        return new PagedModel<>(result);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.clpmonitor.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.clpmonitor.model.TagWriteRequest;
+import com.example.clpmonitor.model.TagWriteResult;
+import com.example.clpmonitor.service.BatchWriteService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/*
+ * Escrita de vários tags numa só chamada (ver BatchWriteService).
+ *
+ * POST /api/write-batch
+ *     [ { "ip": "10.74.241.10", "port": 102, "db": 9, "type": "BYTE", "offset": 3, "value": "2" },
+ *       { "ip": "10.74.241.40", "port": 102, "db": 9, "type": "INTEGER", "offset": 6, "value": "1234" } ]
+ *     Resposta: um item por tag, na ordem enviada:
+ *     { index, ip, port, address, success, returnCode, error }
+ */
+@RestController
+public class BatchWriteController {
+
+    @Autowired
+    private BatchWriteService batchWriteService;
+
+    @Value("${clp.write.batch-max-items:1000}")
+    private int maxItems;
+
+    @PostMapping("/api/write-batch")
+    public ResponseEntity<List<TagWriteResult>> writeBatch(@RequestBody List<TagWriteRequest> tags,
+            HttpServletRequest request) {
+        if (tags == null || tags.isEmpty() || tags.size() > maxItems) {
+            return ResponseEntity.badRequest().build();
+        }
+        String operator = request.getRemoteUser() != null ? request.getRemoteUser() : request.getRemoteAddr();
+        return ResponseEntity.ok(batchWriteService.write(tags, operator));
+    }
+}
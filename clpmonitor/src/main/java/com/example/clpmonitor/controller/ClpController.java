@@ -1,6 +1,11 @@
 package com.example.clpmonitor.controller;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -9,18 +14,23 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.example.clpmonitor.model.Block;
-import com.example.clpmonitor.model.Order;
-import com.example.clpmonitor.model.Storage;
 import com.example.clpmonitor.model.Tag;
+import com.example.clpmonitor.model.TagLog;
 import com.example.clpmonitor.model.TagWriteRequest;
-import com.example.clpmonitor.plc.PlcConnector;
-import com.example.clpmonitor.repository.BlockRepository;
-import com.example.clpmonitor.repository.OrderRepository;
-import com.example.clpmonitor.repository.StorageRepository;
+import com.example.clpmonitor.plc.PlcConnectionPool;
+import com.example.clpmonitor.plc.PlcWriteQueue;
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7ReadItem;
+import com.example.clpmonitor.plc.S7ReadResult;
+import com.example.clpmonitor.plc.S7WriteItem;
+import com.example.clpmonitor.plc.S7WriteResult;
+import com.example.clpmonitor.scan.ScanSnapshot;
 import com.example.clpmonitor.service.ClpSimulatorService;
+import com.example.clpmonitor.service.StorageMatrixCache;
+import com.example.clpmonitor.service.StorageProjector;
+import com.example.clpmonitor.service.WriteAuditLog;
 
-import jakarta.transaction.Transactional;
+import jakarta.servlet.http.HttpServletRequest;
 
 @Controller
 public class ClpController {
@@ -29,13 +39,26 @@ public class ClpController {
     private ClpSimulatorService simulatorService;
 
     @Autowired
-    private BlockRepository blockRepository;
+    private StorageProjector storageProjector;
+
+    @Autowired
+    private PlcConnectionPool connectionPool;
 
     @Autowired
-    private StorageRepository storageRepository;
+    private PlcWriteQueue writeQueue;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private StorageMatrixCache storageMatrix;
+
+    @Autowired
+    private WriteAuditLog auditLog;
+
+    @Autowired
+    private ScanSnapshot scanSnapshot;
+
+    // Leitura extra no CLP para o valor anterior quando a varredura não cobre o endereço
+    @Value("${clp.audit.read-old-value:false}")
+    private boolean readOldValue;
 
     @GetMapping("/")
     public String index(Model model) {
@@ -54,89 +77,23 @@ public class ClpController {
         return "clp-write-fragment";
     }
 
-    @Transactional
+    // Sem transação: a escrita no CLP não prende conexão do banco; os efeitos no banco vão para o projetor
     @PostMapping("/write-tag")
-    public String writeTag(@ModelAttribute Tag tag, Model model) {
-        try {
-            // Debug: Mostra os dados recebidos
-            System.out.println("[DEBUG] Dados do formulário:");
-            System.out.println("IP: " + tag.getIp());
-            System.out.println("Porta: " + tag.getPort());
-            System.out.println("DB: " + tag.getDb());
-            System.out.println("Tipo: " + tag.getType());
-            System.out.println("Offset: " + tag.getOffset());
-            System.out.println("BitNumber: " + tag.getBitNumber());
-            System.out.println("Size: " + tag.getSize());
-            System.out.println("Valor: " + tag.getValue());
-
-            // Conecta ao CLP
-            PlcConnector plc = new PlcConnector(tag.getIp().trim(), tag.getPort());
-            plc.connect();
-
-            boolean success = false;
-            String operationDetails = "";
-
-            // Executa a operação conforme o tipo
-            switch (tag.getType().toUpperCase()) {
-                case "STRING":
-                    success = plc.writeString(tag.getDb(), tag.getOffset(), tag.getSize(), tag.getValue().trim());
-                    operationDetails = String.format("DB%d.%d (STRING) = '%s'", tag.getDb(), tag.getOffset(), tag.getValue());
-                    break;
-
-                case "BLOCK":
-                    byte[] bytes = PlcConnector.hexStringToByteArray(tag.getValue().trim());
-                    success = plc.writeBlock(tag.getDb(), tag.getOffset(), tag.getSize(), bytes);
-                    operationDetails = String.format("DB%d.%d (BLOCK) = %s", tag.getDb(), tag.getOffset(), java.util.Arrays.toString(bytes));
-                    break;
-
-                case "FLOAT":
-                    success = plc.writeFloat(tag.getDb(), tag.getOffset(), Float.parseFloat(tag.getValue().trim()));
-                    operationDetails = String.format("DB%d.%d (FLOAT) = %.2f", tag.getDb(), tag.getOffset(), Float.parseFloat(tag.getValue()));
-                    break;
-
-                case "INTEGER":
-                    success = plc.writeInt(tag.getDb(), tag.getOffset(), Integer.parseInt(tag.getValue().trim()));
-                    operationDetails = String.format("DB%d.%d (INT) = %d", tag.getDb(), tag.getOffset(), Integer.parseInt(tag.getValue()));
-
-                    // Atualiza ordem de produção se for no DB correto
-                    if (tag.getIp().equals("10.74.241.40") && tag.getDb() == 9) {
-                        updateProductionOrder(tag.getOffset(), tag.getValue().trim());
-                    }
-                    break;
-
-                case "BYTE":
-                    byte byteValue = Byte.parseByte(tag.getValue().trim());
-                    success = plc.writeByte(tag.getDb(), tag.getOffset(), byteValue);
-                    operationDetails = String.format("DB%d.%d (BYTE) = %d", tag.getDb(), tag.getOffset(), byteValue);
-
-                    // Atualiza cor do bloco no banco de dados
-                    if (tag.getIp().equals("10.74.241.10")) {
-                        updateBlockInDatabase(tag.getDb(), tag.getOffset(), byteValue);
-                    }
-                    break;
-
-                case "BIT":
-                    if (tag.getBitNumber() == null) {
-                        throw new IllegalArgumentException("Bit Number é obrigatório para tipo BIT");
-                    }
-                    boolean bitValue = Boolean.parseBoolean(tag.getValue().trim());
-                    success = plc.writeBit(tag.getDb(), tag.getOffset(), tag.getBitNumber(), bitValue);
-                    operationDetails = String.format("DB%d.%d.%d = %b", tag.getDb(), tag.getOffset(), tag.getBitNumber(), bitValue);
-                    break;
-
-                default:
-                    throw new IllegalArgumentException("Tipo não suportado: " + tag.getType());
-            }
+    public String writeTag(@ModelAttribute Tag tag, Model model, HttpServletRequest request) {
+        TagLog audit = new TagLog();
+        audit.setOperationTime(LocalDateTime.now());
+        audit.setOperationType("WRITE");
+        audit.setOperator(request.getRemoteUser() != null ? request.getRemoteUser() : request.getRemoteAddr());
+        audit.setPlcIp(tag.getIp());
+        audit.setNewValue(tag.getValue());
 
-            plc.disconnect();
+        try {
+            // Pela fila de escrita do CLP (sessão do pool, escritas concorrentes juntadas)
+            boolean success = writeToPlc(tag, audit);
+            audit.setSuccess(success);
 
             if (success) {
-                model.addAttribute("mensagem", "Escrita no CLP e banco de dados realizada com sucesso!");
-
-                // Atualização imediata da matriz (para CLP1)
-                if (tag.getIp().equals("10.74.241.10") && tag.getDb() == 9 && tag.getType().equalsIgnoreCase("BYTE")) {
-                    simulatorService.triggerManualUpdate();
-                }
+                model.addAttribute("mensagem", "Escrita no CLP realizada com sucesso!");
             } else {
                 model.addAttribute("erro", "Erro de escrita no CLP!");
             }
@@ -144,58 +101,78 @@ public class ClpController {
             model.addAttribute("erro", "Erro: " + ex.getMessage());
             System.err.println("[ERROR] Erro ao escrever tag: " + ex.getMessage());
             ex.printStackTrace();
+            audit.setDetails(ex.getMessage());
+        } finally {
+            // Só enfileira: a gravação em lote não soma latência de banco à escrita
+            auditLog.record(audit);
         }
 
         return "clp-write-fragment";
     }
 
-    private void updateBlockInDatabase(int dbNumber, int position, int color) {
-        // Obtém o storage correspondente (ajuste conforme sua aplicação)
-        Storage storage = storageRepository.findById(1)
-                .orElseThrow(() -> new RuntimeException("Storage não encontrado"));
+    private boolean writeToPlc(Tag tag, TagLog audit) throws Exception {
+        S7DataType type = S7DataType.of(tag.getType());
 
-        // Verifica se a posição é válida
-        if (position < 0 || position >= storage.getCapacity()) {
-            throw new IllegalArgumentException("Posição inválida: " + position);
+        int bitNumber = 0;
+        if (type.isBit()) {
+            if (tag.getBitNumber() == null) {
+                throw new IllegalArgumentException("Bit Number é obrigatório para tipo BIT");
+            }
+            bitNumber = tag.getBitNumber();
         }
 
-        // Busca ou cria o bloco
-        Block block = blockRepository.findByStorageAndPosition(storage, position)
-                .orElseGet(() -> {
-                    Block newBlock = new Block();
-                    newBlock.setStorage(storage);
-                    newBlock.setPosition(position);
-                    return newBlock;
-                });
-
-        // Atualiza a cor
-        block.setColor(color);
-        blockRepository.save(block);
+        audit.setAddress(type.isBit()
+                ? String.format("DB%d.%d.%d", tag.getDb(), tag.getOffset(), bitNumber)
+                : String.format("DB%d.%d (%s)", tag.getDb(), tag.getOffset(), type));
+
+        // O tipo define o tamanho, exceto STRING, BLOCK e REAL_ARRAY (tamanho do formulário)
+        Object value = type.parse(tag.getValue());
+        audit.setNewValue(type.format(value));
+        // Valor que não cabe no tamanho (STRING longa, por exemplo) é recusado antes de falar com o CLP
+        S7WriteItem item = new S7WriteItem(tag.getDb(), tag.getOffset(), bitNumber, tag.getSize(), type, value);
+        audit.setOldValue(oldValue(tag, item));
+
+        long start = System.nanoTime();
+        S7WriteResult result;
+        try {
+            result = writeQueue.write(tag.getIp(), tag.getPort(), item);
+        } finally {
+            audit.setLatencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        boolean success = result.isSuccess();
+        if (success) {
+            // Aplicado no banco em segundo plano (regras clp.projection), em lote com as demais escritas
+            storageProjector.submit(tag.getIp(), tag.getPort(), item);
+        }
+        String operationDetails = audit.getAddress() + " = " + type.format(value)
+                + (success ? "" : String.format(" (return code 0x%02X)", result.getReturnCode()));
+        audit.setDetails(operationDetails);
+        return success;
     }
 
-    private void updateProductionOrder(int offset, String orderValue) {
-        // Obtém o bloco correspondente ao offset
-        Storage storage = storageRepository.findById(1)
-                .orElseThrow(() -> new RuntimeException("Storage não encontrado"));
-
-        Block block = blockRepository.findByStorageAndPosition(storage, offset)
-                .orElseThrow(() -> new RuntimeException("Bloco não encontrado para offset: " + offset));
-
-        // Cria ou atualiza a ordem de produção
-        if (!orderValue.isEmpty() && !orderValue.equals("0")) {
-            Order order = orderRepository.findByProductionOrder(orderValue)
-                    .orElseGet(() -> {
-                        Order newOrder = new Order();
-                        newOrder.setProductionOrder(orderValue);
-                        return orderRepository.save(newOrder);
-                    });
-
-            block.setProductionOrder(orderValue);
-        } else {
-            block.setProductionOrder(null);
+    // Valor anterior para a auditoria: o da varredura, sem custo para a escrita; a leitura no CLP
+    // só com clp.audit.read-old-value=true
+    private String oldValue(Tag tag, S7WriteItem item) {
+        String scanned = scanSnapshot.currentValue(tag.getIp(), tag.getPort(), item);
+        if (scanned != null || !readOldValue) {
+            return scanned;
         }
+        return readCurrentValue(tag, item);
+    }
 
-        blockRepository.save(block);
+    // Uma falha aqui não impede a escrita. readItems devolve o return code do item em vez de
+    // lançar, para que um endereço recusado não derrube a sessão do pool
+    private String readCurrentValue(Tag tag, S7WriteItem write) {
+        try {
+            S7ReadItem item = new S7ReadItem(write.getDb(), write.getOffset(), write.getBit(), write.getSize(),
+                    write.getDataType());
+            S7ReadResult current = connectionPool.execute(tag.getIp(), tag.getPort(),
+                    plc -> plc.readItems(List.of(item)).get(0));
+            return current.isSuccess() ? write.getDataType().format(current.getValue()) : null;
+        } catch (Exception e) {
+            System.err.println("[WARN] Valor anterior não lido: " + e.getMessage());
+            return null;
+        }
     }
 
     @GetMapping("/fragmento-formulario")
@@ -206,6 +183,8 @@ public class ClpController {
 
     @PostMapping("/manual-refresh")
     public ResponseEntity<String> manualRefresh() {
+        // Relê o estoque do banco, caso tenha sido alterado por fora da aplicação
+        storageMatrix.reload();
         simulatorService.triggerManualUpdate();
         return ResponseEntity.ok("Atualização solicitada");
     }
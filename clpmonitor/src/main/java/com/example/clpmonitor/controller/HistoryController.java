@@ -0,0 +1,75 @@
+package com.example.clpmonitor.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.clpmonitor.historian.Historian;
+import com.example.clpmonitor.historian.HistorySample;
+import com.example.clpmonitor.trend.Downsampler;
+import com.example.clpmonitor.trend.TrendSeries;
+
+/*
+ * Consulta ao histórico local das tags varridas (ver Historian).
+ *
+ * GET /api/history/tags                                  -> nomes qualificados ("plc.tag") com histórico
+ * GET /api/history?tag=estoque.nivel&from=...&to=...     -> amostras em [from, to], epoch em ms
+ * Sem "from"/"to" considera a última hora.
+ *
+ * A resposta é limitada: sem "width" vêm as primeiras "limit" amostras do
+ * intervalo (padrão 10000, no máximo 100000; para continuar, repita com
+ * from = último instante + 1). Com "width" (pontos do gráfico) as amostras
+ * são reduzidas pelo Downsampler (mode = LTTB ou MINMAX), lendo no máximo
+ * 100000 amostras do início do intervalo.
+ */
+@RestController
+public class HistoryController {
+
+    private static final int DEFAULT_LIMIT = 10_000;
+    private static final int MAX_LIMIT = 100_000;
+    private static final int MAX_WIDTH = 4000;
+
+    @Autowired
+    private Historian historian;
+
+    @GetMapping("/api/history/tags")
+    public Set<String> listTags() {
+        return historian.getTags();
+    }
+
+    @GetMapping("/api/history")
+    public List<HistorySample> query(@RequestParam String tag,
+            @RequestParam(required = false) Long from,
+            @RequestParam(required = false) Long to,
+            @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+            @RequestParam(required = false) Integer width,
+            @RequestParam(defaultValue = "LTTB") Downsampler.Mode mode) {
+
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - 3_600_000L;
+        if (width == null) {
+            return historian.query(tag, start, end, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        }
+
+        List<HistorySample> samples = historian.query(tag, start, end, MAX_LIMIT);
+        long[] timestamps = new long[samples.size()];
+        double[] values = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            timestamps[i] = samples.get(i).getTimestamp();
+            values[i] = samples.get(i).getValue();
+        }
+        TrendSeries reduced = Downsampler.downsample(new TrendSeries(tag, timestamps, values, samples.size()),
+                Math.max(3, Math.min(width, MAX_WIDTH)), mode);
+
+        List<HistorySample> result = new ArrayList<>(reduced.size());
+        for (int i = 0; i < reduced.size(); i++) {
+            result.add(new HistorySample(reduced.getTimestamps()[i], reduced.getValues()[i]));
+        }
+        return result;
+    }
+}
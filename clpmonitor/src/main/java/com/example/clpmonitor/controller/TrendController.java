@@ -0,0 +1,45 @@
+package com.example.clpmonitor.controller;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.clpmonitor.trend.Downsampler;
+import com.example.clpmonitor.trend.TrendSeries;
+import com.example.clpmonitor.trend.TrendService;
+
+/*
+ * Tendências recentes já reduzidas para a largura do gráfico (ver TrendService).
+ *
+ * GET /api/trend/tags
+ * GET /api/trend?tag=clp2-data&minutes=10&width=300&mode=LTTB
+ *     width = pontos desejados (normalmente a largura em pixels); mode = LTTB ou MINMAX
+ *     Resposta: { tag, timestamps: [...], values: [...], rawCount }
+ */
+@RestController
+public class TrendController {
+
+    private static final int MAX_WIDTH = 4000;
+
+    @Autowired
+    private TrendService trendService;
+
+    @GetMapping("/api/trend/tags")
+    public Set<String> listTags() {
+        return trendService.getTags();
+    }
+
+    @GetMapping("/api/trend")
+    public TrendSeries trend(@RequestParam String tag,
+            @RequestParam(defaultValue = "10") double minutes,
+            @RequestParam(defaultValue = "300") int width,
+            @RequestParam(defaultValue = "LTTB") Downsampler.Mode mode) {
+
+        long now = System.currentTimeMillis();
+        long from = now - (long) (minutes * 60_000);
+        return trendService.query(tag, from, now, Math.max(3, Math.min(width, MAX_WIDTH)), mode);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.clpmonitor.historian;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Leitura de bits (mais significativo primeiro) a partir de uma posição de um ByteBuffer,
+ * inclusive de arquivos mapeados em memória (só leituras absolutas, o buffer não é alterado).
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private final int base;
+    private long position;
+
+    BitReader(ByteBuffer buffer, int base) {
+        this.buffer = buffer;
+        this.base = base;
+    }
+
+    boolean readBit() {
+        return readBits(1) == 1;
+    }
+
+    long readBits(int bits) {
+        long value = 0;
+        while (bits > 0) {
+            int current = buffer.get(base + (int) (position >>> 3)) & 0xFF;
+            int available = 8 - (int) (position & 7);
+            int n = Math.min(available, bits);
+            value = (value << n) | ((current >>> (available - n)) & ((1 << n) - 1));
+            bits -= n;
+            position += n;
+        }
+        return value;
+    }
+}
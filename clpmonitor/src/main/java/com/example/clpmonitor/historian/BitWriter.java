@@ -0,0 +1,49 @@
+package com.example.clpmonitor.historian;
+
+import java.util.Arrays;
+
+/*
+ * Escrita de bits (mais significativo primeiro) num array de bytes que cresce conforme a necessidade.
+ */
+final class BitWriter {
+
+    private byte[] buffer;
+    private int bitLength;
+
+    BitWriter(int initialBytes) {
+        this.buffer = new byte[Math.max(16, initialBytes)];
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    // Grava os "bits" bits menos significativos de value (1 a 64)
+    void writeBits(long value, int bits) {
+        ensureCapacity(bitLength + bits);
+        while (bits > 0) {
+            int bitInByte = bitLength & 7;
+            int free = 8 - bitInByte;
+            int n = Math.min(free, bits);
+            int chunk = (int) ((value >>> (bits - n)) & ((1 << n) - 1));
+            buffer[bitLength >>> 3] |= (byte) (chunk << (free - n));
+            bits -= n;
+            bitLength += n;
+        }
+    }
+
+    int byteLength() {
+        return (bitLength + 7) >>> 3;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, byteLength());
+    }
+
+    private void ensureCapacity(int bits) {
+        int bytes = (bits + 7) >>> 3;
+        if (bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(bytes, buffer.length * 2));
+        }
+    }
+}
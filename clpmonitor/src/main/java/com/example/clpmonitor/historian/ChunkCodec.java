@@ -0,0 +1,179 @@
+package com.example.clpmonitor.historian;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/*
+ * Compressão de uma série (instante, valor) no formato do Gorilla (Facebook):
+ *
+ * Instantes: o primeiro vai inteiro (64 bits); os seguintes como delta-of-delta
+ * em ms, com prefixo de tamanho variável:
+ *   '0'               -> dod = 0 (amostragem regular, o caso comum da varredura)
+ *   '10'   + 7 bits   -> dod em [-63, 64]
+ *   '110'  + 9 bits   -> dod em [-255, 256]
+ *   '1110' + 12 bits  -> dod em [-2047, 2048]
+ *   '1111' + 64 bits  -> demais casos
+ *
+ * Valores: o primeiro vai inteiro (bits do double); os seguintes como XOR com o anterior:
+ *   '0'                                -> valor repetido
+ *   '10' + bits significativos         -> cabe na janela (zeros à esquerda/direita) do XOR anterior
+ *   '11' + 5 bits de zeros à esquerda + 6 bits (tamanho - 1) + bits significativos
+ */
+final class ChunkCodec {
+
+    private ChunkCodec() {
+    }
+
+    static final class Encoder {
+        private final BitWriter out;
+        private int count;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long lastDelta;
+        private long lastBits;
+        private int lastLeading = -1;
+        private int lastTrailing;
+
+        Encoder(int expectedSamples) {
+            this.out = new BitWriter(expectedSamples * 2);
+        }
+
+        void append(long timestamp, double value) {
+            long bits = Double.doubleToLongBits(value);
+            if (count == 0) {
+                out.writeBits(timestamp, 64);
+                out.writeBits(bits, 64);
+                firstTimestamp = timestamp;
+            } else {
+                // Relógio que volta não pode gerar delta negativo dentro do bloco
+                timestamp = Math.max(timestamp, lastTimestamp);
+                long delta = timestamp - lastTimestamp;
+                writeDeltaOfDelta(delta - lastDelta);
+                writeXor(bits ^ lastBits);
+                lastDelta = delta;
+            }
+            lastTimestamp = timestamp;
+            lastBits = bits;
+            count++;
+        }
+
+        private void writeDeltaOfDelta(long dod) {
+            if (dod == 0) {
+                out.writeBits(0b0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+        }
+
+        private void writeXor(long xor) {
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBit(true);
+                out.writeBits(leading, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trailing, significant);
+                lastLeading = leading;
+                lastTrailing = trailing;
+            }
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        long getFirstTimestamp() {
+            return firstTimestamp;
+        }
+
+        long getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        int byteLength() {
+            return out.byteLength();
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Decodifica "count" amostras a partir de buffer[offset] e guarda as que caem em [from, to],
+    // parando quando "out" chega a "limit" amostras
+    // --------------------------------------------------------------------------------------------
+    static void decode(ByteBuffer buffer, int offset, int count, long from, long to, int limit,
+            List<HistorySample> out) {
+        BitReader in = new BitReader(buffer, offset);
+        long timestamp = 0;
+        long delta = 0;
+        long bits = 0;
+        int leading = 0;
+        int trailing = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                timestamp = in.readBits(64);
+                bits = in.readBits(64);
+            } else {
+                delta += readDeltaOfDelta(in);
+                timestamp += delta;
+                if (in.readBit()) {
+                    if (in.readBit()) {
+                        leading = (int) in.readBits(5);
+                        int significant = (int) in.readBits(6) + 1;
+                        trailing = 64 - leading - significant;
+                    }
+                    bits ^= in.readBits(64 - leading - trailing) << trailing;
+                }
+            }
+            if (timestamp > to || out.size() >= limit) {
+                return;
+            }
+            if (timestamp >= from) {
+                out.add(new HistorySample(timestamp, Double.longBitsToDouble(bits)));
+            }
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return signed(in.readBits(7), 7);
+        }
+        if (!in.readBit()) {
+            return signed(in.readBits(9), 9);
+        }
+        if (!in.readBit()) {
+            return signed(in.readBits(12), 12);
+        }
+        return in.readBits(64);
+    }
+
+    // Faixa [-(2^(n-1) - 1), 2^(n-1)]: acima de 2^(n-1) o valor é negativo
+    private static long signed(long value, int bits) {
+        return value > (1L << (bits - 1)) ? value - (1L << bits) : value;
+    }
+}
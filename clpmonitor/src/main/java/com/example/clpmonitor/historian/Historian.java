@@ -0,0 +1,495 @@
+package com.example.clpmonitor.historian;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.clpmonitor.scan.ScanGroup;
+import com.example.clpmonitor.scan.ScanListener;
+import com.example.clpmonitor.scan.ScanTag;
+import com.example.clpmonitor.scan.TagValue;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Histórico local dos valores varridos, em arquivos de segmento comprimidos.
+ *
+ * Cada tag (nome qualificado "plc.tag") acumula as amostras que mudaram num
+ * bloco em memória comprimido pelo ChunkCodec (delta-of-delta + XOR). O bloco
+ * é fechado ao atingir chunk-samples, ao virar a janela do segmento ou no
+ * flush periódico, e então anexado pela thread "historian-writer" ao arquivo
+ * do segmento da sua janela de tempo:
+ *
+ *   <dir>/<início da janela em ms>.seg = sequência de registros
+ *     int magic | short tamanho do nome | nome UTF-8 | long primeiro instante |
+ *     long último instante | int amostras | int bytes | dados comprimidos
+ *
+ * O índice (tag -> blocos com intervalo de tempo e posição no arquivo) fica em
+ * memória e é reconstruído na partida lendo só os cabeçalhos. As consultas
+ * mapeiam o segmento em memória (somente leitura) e decodificam apenas os
+ * blocos da tag que cruzam o intervalo pedido. Segmentos cuja janela saiu do
+ * período de retenção são apagados inteiros.
+ *
+ * Amostras ainda no bloco aberto (até flush-interval-ms) se perdem se o
+ * processo cair; no encerramento normal tudo é gravado.
+ */
+@Component
+public class Historian implements ScanListener {
+
+    private static final int RECORD_MAGIC = 0x48535431; // "HST1"
+    private static final int RECORD_FIXED_HEADER = 4 + 2 + 8 + 8 + 4 + 4;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // Bloco já fechado; "data" fica em memória até o writer gravar e anotar a posição no arquivo
+    private static final class ChunkRef {
+        final Segment segment;
+        final long firstTimestamp;
+        final long lastTimestamp;
+        final int count;
+        final int length;
+        volatile long position = -1;
+        volatile byte[] data;
+
+        ChunkRef(Segment segment, long firstTimestamp, long lastTimestamp, int count, int length, byte[] data) {
+            this.segment = segment;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.count = count;
+            this.length = length;
+            this.data = data;
+        }
+    }
+
+    private static final class Segment {
+        final long windowStart;
+        final Path path;
+        volatile long size;
+        volatile boolean deleted;
+        FileChannel channel; // só na thread do writer
+
+        Segment(long windowStart, Path path) {
+            this.windowStart = windowStart;
+            this.path = path;
+        }
+    }
+
+    private static final class Series {
+        final String tag;
+        final ReentrantLock lock = new ReentrantLock();
+        final List<ChunkRef> chunks = new ArrayList<>();
+        ChunkCodec.Encoder open;
+        long openWindow;
+        Object lastValue;
+
+        Series(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Value("${clp.historian.enabled:false}")
+    private boolean enabled;
+
+    @Value("${clp.historian.dir:data/historian}")
+    private String directory;
+
+    @Value("${clp.historian.segment-minutes:60}")
+    private long segmentMinutes;
+
+    @Value("${clp.historian.retention-hours:168}")
+    private long retentionHours;
+
+    @Value("${clp.historian.chunk-samples:1024}")
+    private int chunkSamples;
+
+    @Value("${clp.historian.flush-interval-ms:60000}")
+    private long flushIntervalMs;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong samplesAppended = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private Path root;
+    private long segmentMillis;
+    private ScheduledExecutorService writer;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(directory);
+        segmentMillis = TimeUnit.MINUTES.toMillis(Math.max(1, segmentMinutes));
+        Files.createDirectories(root);
+        loadSegments();
+
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "historian-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleAtFixedRate(this::flushOpenChunks, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        writer.scheduleAtFixedRate(this::applyRetention, 0, 1, TimeUnit.MINUTES);
+        System.out.println("Histórico em " + root.toAbsolutePath() + ": " + segments.size() + " segmento(s), "
+                + series.size() + " tag(s).");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null) {
+            return;
+        }
+        series.values().forEach(this::seal);
+        writer.execute(this::closeChannels);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getSamplesAppended() {
+        return samplesAppended.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Entrada: valores numéricos (e BIT como 0/1) que mudaram em relação à última amostra gravada
+    // --------------------------------------------------------------------------------------------
+    @Override
+    public void onScan(ScanGroup group, List<TagValue> values) {
+        if (!enabled) {
+            return;
+        }
+        for (TagValue value : values) {
+            if (!value.isGood()) {
+                continue;
+            }
+            double number = toDouble(value.getValue());
+            if (!Double.isNaN(number)) {
+                append(value.getName(), value.getTag(), value.getTimestamp(), value.getValue(), number);
+            }
+        }
+    }
+
+    public void append(String tag, long timestamp, double value) {
+        append(tag, null, timestamp, value, value);
+    }
+
+    private void append(String tag, ScanTag scanTag, long timestamp, Object raw, double value) {
+        if (!enabled) {
+            return;
+        }
+        Series target = series.computeIfAbsent(tag, Series::new);
+        target.lock.lock();
+        try {
+            // Banda morta da tag: sem mudança significativa a amostra não é gravada
+            if (target.lastValue != null && scanTag != null && !scanTag.isSignificantChange(target.lastValue, raw)) {
+                return;
+            }
+            long window = timestamp - Math.floorMod(timestamp, segmentMillis);
+            if (target.open != null && (window != target.openWindow || target.open.getCount() >= chunkSamples)) {
+                sealLocked(target);
+            }
+            if (target.open == null) {
+                target.open = new ChunkCodec.Encoder(chunkSamples);
+                target.openWindow = window;
+            }
+            target.open.append(timestamp, value);
+            target.lastValue = raw;
+            samplesAppended.incrementAndGet();
+        } finally {
+            target.lock.unlock();
+        }
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        }
+        if (value instanceof Duration duration) {
+            return duration.toMillis();
+        }
+        return Double.NaN;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Consulta: as primeiras "limit" amostras da tag em [from, to] (epoch ms), em ordem de tempo
+    // --------------------------------------------------------------------------------------------
+    public List<HistorySample> query(String tag, long from, long to) {
+        return query(tag, from, to, Integer.MAX_VALUE);
+    }
+
+    public List<HistorySample> query(String tag, long from, long to, int limit) {
+        List<HistorySample> result = new ArrayList<>();
+        Series target = series.get(tag);
+        if (!enabled || target == null || from > to) {
+            return result;
+        }
+
+        List<ChunkRef> chunks;
+        byte[] openData = null;
+        int openCount = 0;
+        target.lock.lock();
+        try {
+            chunks = new ArrayList<>(target.chunks);
+            if (target.open != null && target.open.getLastTimestamp() >= from && target.open.getFirstTimestamp() <= to) {
+                openData = target.open.toByteArray();
+                openCount = target.open.getCount();
+            }
+        } finally {
+            target.lock.unlock();
+        }
+
+        Map<Segment, MappedByteBuffer> mapped = new HashMap<>();
+        for (ChunkRef chunk : chunks) {
+            if (result.size() >= limit) {
+                return result;
+            }
+            if (chunk.lastTimestamp < from || chunk.firstTimestamp > to) {
+                continue;
+            }
+            byte[] data = chunk.data;
+            if (data != null) {
+                ChunkCodec.decode(ByteBuffer.wrap(data), 0, chunk.count, from, to, limit, result);
+                continue;
+            }
+            // O segmento pode ter crescido depois de mapeado nesta mesma consulta
+            MappedByteBuffer buffer = mapped.get(chunk.segment);
+            if (buffer == null || buffer.capacity() < chunk.position + chunk.length) {
+                buffer = map(chunk.segment);
+                if (buffer == null) {
+                    continue;
+                }
+                mapped.put(chunk.segment, buffer);
+            }
+            ChunkCodec.decode(buffer, (int) chunk.position, chunk.count, from, to, limit, result);
+        }
+        if (openData != null) {
+            ChunkCodec.decode(ByteBuffer.wrap(openData), 0, openCount, from, to, limit, result);
+        }
+        return result;
+    }
+
+    public Set<String> getTags() {
+        return new TreeSet<>(series.keySet());
+    }
+
+    private MappedByteBuffer map(Segment segment) {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        } catch (NoSuchFileException e) {
+            return null; // apagado pela retenção durante a consulta
+        } catch (IOException e) {
+            System.err.println("Erro ao mapear o segmento " + segment.path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Fechamento de blocos e gravação (thread do writer)
+    // --------------------------------------------------------------------------------------------
+    private void seal(Series target) {
+        target.lock.lock();
+        try {
+            sealLocked(target);
+        } finally {
+            target.lock.unlock();
+        }
+    }
+
+    private void sealLocked(Series target) {
+        ChunkCodec.Encoder encoder = target.open;
+        if (encoder == null || encoder.getCount() == 0) {
+            return;
+        }
+        target.open = null;
+        Segment segment = segments.computeIfAbsent(target.openWindow,
+                window -> new Segment(window, root.resolve(window + SEGMENT_SUFFIX)));
+        byte[] data = encoder.toByteArray();
+        ChunkRef chunk = new ChunkRef(segment, encoder.getFirstTimestamp(), encoder.getLastTimestamp(),
+                encoder.getCount(), data.length, data);
+        target.chunks.add(chunk);
+        writer.execute(() -> persist(target.tag, chunk));
+    }
+
+    private void persist(String tag, ChunkRef chunk) {
+        Segment segment = chunk.segment;
+        if (segment.deleted) {
+            return;
+        }
+        byte[] name = tag.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_FIXED_HEADER + name.length + chunk.length);
+        record.putInt(RECORD_MAGIC).putShort((short) name.length).put(name)
+                .putLong(chunk.firstTimestamp).putLong(chunk.lastTimestamp)
+                .putInt(chunk.count).putInt(chunk.length).put(chunk.data).flip();
+        try {
+            if (segment.channel == null) {
+                segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            long start = segment.channel.size();
+            while (record.hasRemaining()) {
+                segment.channel.write(record);
+            }
+            // Ordem importa para a consulta: tamanho do segmento, posição e só então libera os dados
+            segment.size = start + record.limit();
+            chunk.position = start + RECORD_FIXED_HEADER + name.length;
+            chunk.data = null;
+            bytesWritten.addAndGet(record.limit());
+        } catch (IOException e) {
+            // Os dados continuam em memória e ainda aparecem nas consultas até a retenção
+            System.err.println("Erro ao gravar o histórico de " + tag + " em " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    private void flushOpenChunks() {
+        try {
+            series.values().forEach(this::seal);
+            // Segmentos de janelas anteriores não recebem mais blocos: libera o arquivo
+            long current = System.currentTimeMillis() - segmentMillis;
+            for (Segment segment : segments.headMap(current - Math.floorMod(current, segmentMillis)).values()) {
+                closeChannel(segment);
+            }
+        } catch (Exception e) {
+            System.err.println("Erro no flush do histórico: " + e.getMessage());
+        }
+    }
+
+    private void applyRetention() {
+        try {
+            long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                if (segment.windowStart + segmentMillis > cutoff) {
+                    break;
+                }
+                segment.deleted = true;
+                segments.remove(segment.windowStart);
+                closeChannel(segment);
+                Files.deleteIfExists(segment.path);
+                for (Series target : series.values()) {
+                    target.lock.lock();
+                    try {
+                        target.chunks.removeIf(chunk -> chunk.segment == segment);
+                    } finally {
+                        target.lock.unlock();
+                    }
+                }
+                System.out.println("Histórico: segmento removido pela retenção: " + segment.path.getFileName());
+            }
+        } catch (Exception e) {
+            System.err.println("Erro na retenção do histórico: " + e.getMessage());
+        }
+    }
+
+    private void closeChannels() {
+        segments.values().forEach(this::closeChannel);
+    }
+
+    private void closeChannel(Segment segment) {
+        if (segment.channel == null) {
+            return;
+        }
+        try {
+            segment.channel.force(false);
+            segment.channel.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao fechar o segmento " + segment.path + ": " + e.getMessage());
+        }
+        segment.channel = null;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Partida: reconstrói o índice lendo os cabeçalhos; um registro incompleto no fim é descartado
+    // --------------------------------------------------------------------------------------------
+    private void loadSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : files) {
+                String fileName = path.getFileName().toString();
+                try {
+                    long window = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+                    loadSegment(new Segment(window, path));
+                } catch (NumberFormatException e) {
+                    System.err.println("Histórico: arquivo ignorado: " + fileName);
+                }
+            }
+        }
+        series.values().forEach(target -> target.chunks.sort(Comparator.comparingLong(chunk -> chunk.firstTimestamp)));
+    }
+
+    private void loadSegment(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int position = 0;
+            while (fileSize - position >= RECORD_FIXED_HEADER) {
+                if (buffer.getInt(position) != RECORD_MAGIC) {
+                    break;
+                }
+                int nameLength = buffer.getShort(position + 4) & 0xFFFF;
+                int header = RECORD_FIXED_HEADER + nameLength;
+                if (fileSize - position < header) {
+                    break;
+                }
+                byte[] name = new byte[nameLength];
+                buffer.get(position + 6, name);
+                int fields = position + 6 + nameLength;
+                long first = buffer.getLong(fields);
+                long last = buffer.getLong(fields + 8);
+                int count = buffer.getInt(fields + 16);
+                int length = buffer.getInt(fields + 20);
+                if (count <= 0 || length < 0 || fileSize - position - header < length) {
+                    break;
+                }
+                ChunkRef chunk = new ChunkRef(segment, first, last, count, length, null);
+                chunk.position = position + header;
+                series.computeIfAbsent(new String(name, StandardCharsets.UTF_8), Series::new).chunks.add(chunk);
+                position += header + length;
+            }
+            if (position < fileSize) {
+                System.err.println("Histórico: " + (fileSize - position) + " byte(s) inválidos descartados no fim de "
+                        + segment.path.getFileName());
+                channel.truncate(position);
+            }
+            segment.size = position;
+        }
+        segments.put(segment.windowStart, segment);
+    }
+}
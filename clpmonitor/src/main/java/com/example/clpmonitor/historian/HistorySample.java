@@ -0,0 +1,23 @@
+package com.example.clpmonitor.historian;
+
+/*
+ * Amostra do histórico: instante (epoch em ms) e valor.
+ */
+public final class HistorySample {
+
+    private final long timestamp;
+    private final double value;
+
+    public HistorySample(long timestamp, double value) {
+        this.timestamp = timestamp;
+        this.value = value;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.clpmonitor.model;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/*
+ * Formato compacto (opcional) para eventos com lista de valores inteiros.
+ *
+ * Frame binário em base64, decodificado pelo index.html:
+ *   byte 0    versão (1)
+ *   byte 1    codificação: 1 = bits (0/1, 8 por byte, LSB primeiro),
+ *             2 = UINT8 (1 byte por valor), 3 = INT16 (2 bytes big-endian)
+ *   byte 2    clpId
+ *   byte 3-4  quantidade de valores
+ *   byte 5..  valores
+ * A codificação é escolhida pela faixa dos valores, então nada se perde.
+ * No JSON o frame vira uma string simples.
+ */
+public final class CompactFrame {
+
+    public static final int VERSION = 1;
+    public static final int BITS = 1;
+    public static final int UINT8 = 2;
+    public static final int INT16 = 3;
+
+    private static final int HEADER = 5;
+
+    private final String encoded;
+
+    private CompactFrame(String encoded) {
+        this.encoded = encoded;
+    }
+
+    // Retorna null quando o valor não é uma lista de inteiros que caiba em INT16
+    public static CompactFrame of(ClpData data) {
+        int[] values = toInts(data.getValue());
+        if (values == null || values.length > 0xFFFF) {
+            return null;
+        }
+
+        int encoding = BITS;
+        for (int value : values) {
+            if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                return null;
+            }
+            if (value < 0 || value > 255) {
+                encoding = INT16;
+            } else if (value > 1 && encoding == BITS) {
+                encoding = UINT8;
+            }
+        }
+
+        int payload = switch (encoding) {
+            case BITS -> (values.length + 7) / 8;
+            case UINT8 -> values.length;
+            default -> values.length * 2;
+        };
+        ByteBuffer frame = ByteBuffer.allocate(HEADER + payload);
+        frame.put((byte) VERSION).put((byte) encoding).put((byte) data.getClpId()).putShort((short) values.length);
+        for (int i = 0; i < values.length; i++) {
+            switch (encoding) {
+                case BITS -> {
+                    int index = HEADER + i / 8;
+                    frame.put(index, (byte) (frame.get(index) | (values[i] << (i % 8))));
+                }
+                case UINT8 -> frame.put((byte) values[i]);
+                default -> frame.putShort((short) values[i]);
+            }
+        }
+        return new CompactFrame(Base64.getEncoder().encodeToString(frame.array()));
+    }
+
+    private static int[] toInts(Object value) {
+        if (value instanceof byte[] bytes) {
+            int[] values = new int[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                values[i] = bytes[i] & 0xFF;
+            }
+            return values;
+        }
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        int[] values = new int[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object item = list.get(i);
+            if (item instanceof Boolean flag) {
+                values[i] = flag ? 1 : 0;
+            } else if (item instanceof Integer || item instanceof Short || item instanceof Byte) {
+                values[i] = ((Number) item).intValue();
+            } else {
+                return null;
+            }
+        }
+        return values;
+    }
+
+    @JsonValue
+    public String getEncoded() {
+        return encoded;
+    }
+
+    @Override
+    public String toString() {
+        return encoded;
+    }
+}
@@ -2,20 +2,45 @@ package com.example.clpmonitor.model;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
+// Trilha de auditoria das escritas no CLP (gravada em lote pelo WriteAuditLog)
+@Entity
+@Table(name = "tag_log", indexes = {
+        @Index(name = "idx_tag_log_time", columnList = "operation_time"),
+        @Index(name = "idx_tag_log_plc_time", columnList = "plc_ip, operation_time")
+})
 public class TagLog {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    @Column(name = "operation_time", nullable = false)
     private LocalDateTime operationTime;
+    @Column(name = "operation_type", length = 16)
     private String operationType; // "WRITE" ou "READ"
+    @Column(name = "operator", length = 100)
+    private String operator; // usuário autenticado ou IP de origem
+    @Column(name = "plc_ip", length = 64)
     private String plcIp;
+    @Column(name = "address", length = 64)
+    private String address; // ex.: DB9.68 (BYTE), DB9.2.3 (BIT)
+    @Column(name = "old_value", length = 255)
+    private String oldValue;
+    @Column(name = "new_value", length = 255)
+    private String newValue;
+    @Column(name = "details", length = 1000)
     private String details;
+    @Column(name = "success", nullable = false)
     private boolean success;
+    @Column(name = "latency_ms")
+    private long latencyMs;
 
     // Getters e Setters
     public Long getId() {
@@ -36,12 +61,36 @@ public class TagLog {
     public void setOperationType(String operationType) {
         this.operationType = operationType;
     }
+    public String getOperator() {
+        return operator;
+    }
+    public void setOperator(String operator) {
+        this.operator = operator;
+    }
     public String getPlcIp() {
         return plcIp;
     }
     public void setPlcIp(String plcIp) {
         this.plcIp = plcIp;
     }
+    public String getAddress() {
+        return address;
+    }
+    public void setAddress(String address) {
+        this.address = address;
+    }
+    public String getOldValue() {
+        return oldValue;
+    }
+    public void setOldValue(String oldValue) {
+        this.oldValue = oldValue;
+    }
+    public String getNewValue() {
+        return newValue;
+    }
+    public void setNewValue(String newValue) {
+        this.newValue = newValue;
+    }
     public String getDetails() {
         return details;
     }
@@ -54,5 +103,11 @@ public class TagLog {
     public void setSuccess(boolean success) {
         this.success = success;
     }
+    public long getLatencyMs() {
+        return latencyMs;
+    }
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
     
 }
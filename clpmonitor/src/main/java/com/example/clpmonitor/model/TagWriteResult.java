@@ -0,0 +1,60 @@
+package com.example.clpmonitor.model;
+
+/*
+ * Resultado de um item da escrita em lote (/api/write-batch), na mesma
+ * posição (index) do item na requisição.
+ */
+public class TagWriteResult {
+    private int index;
+    private String ip;
+    private int port;
+    private String address;
+    private boolean success;
+    // Return code S7 do item (0xFF = sucesso); nulo se o item nem chegou ao CLP
+    private Integer returnCode;
+    private String error;
+
+    // Getters e Setters
+    public int getIndex() {
+        return index;
+    }
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    public String getIp() {
+        return ip;
+    }
+    public void setIp(String ip) {
+        this.ip = ip;
+    }
+    public int getPort() {
+        return port;
+    }
+    public void setPort(int port) {
+        this.port = port;
+    }
+    public String getAddress() {
+        return address;
+    }
+    public void setAddress(String address) {
+        this.address = address;
+    }
+    public boolean isSuccess() {
+        return success;
+    }
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    public Integer getReturnCode() {
+        return returnCode;
+    }
+    public void setReturnCode(Integer returnCode) {
+        this.returnCode = returnCode;
+    }
+    public String getError() {
+        return error;
+    }
+    public void setError(String error) {
+        this.error = error;
+    }
+}
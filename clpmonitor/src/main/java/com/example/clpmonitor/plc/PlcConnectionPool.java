@@ -0,0 +1,275 @@
+package com.example.clpmonitor.plc;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Pool de sessões S7 mantidas abertas, uma por CLP (chave ip:porta).
+ *
+ * Abrir uma sessão custa três idas e voltas (TCP, COTP e setup S7) e ocupa um
+ * dos poucos slots de conexão das CPUs S7-1200/1500. Por isso a sessão é criada
+ * uma única vez e reaproveitada pelo scanner e pelo endpoint de escrita.
+ * O protocolo S7 atende um pedido por vez em cada conexão, então o acesso à
+ * sessão é serializado (ReentrantLock, para não prender a thread portadora
+ * quando a operação bloqueante roda numa thread virtual).
+ *
+ * Só falha de transporte (IOException, inclusive timeout de leitura, ou sessão
+ * que já não está aberta) descarta a sessão. Recusas do CLP e respostas que não
+ * se consegue interpretar são repassadas com a sessão intacta. Leituras numa
+ * sessão reaproveitada que caiu são repetidas uma vez com sessão nova; escritas
+ * (executeWrite) não, porque o CLP pode já ter aplicado a primeira.
+ */
+@Component
+public class PlcConnectionPool {
+
+    @FunctionalInterface
+    public interface PlcOperation<T> {
+        T execute(PlcConnector plc) throws Exception;
+    }
+
+    // Sessões ociosas por mais tempo que isso são fechadas para liberar o slot no CLP
+    @Value("${clp.pool.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${clp.s7.connect-timeout-ms:" + S7Client.DEFAULT_CONNECT_TIMEOUT + "}")
+    private int connectTimeoutMs;
+
+    @Value("${clp.s7.read-timeout-ms:" + S7Client.DEFAULT_READ_TIMEOUT + "}")
+    private int readTimeoutMs;
+
+    @Value("${clp.s7.max-amq:" + S7Client.DEFAULT_MAX_AMQ + "}")
+    private int maxAmq;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, PooledSession> sessions = new ConcurrentHashMap<>();
+    private ScheduledExecutorService evictor;
+
+    @PostConstruct
+    public void start() {
+        Gauge.builder("plc.sessions", sessions, map -> map.values().stream().filter(PooledSession::isOpen).count())
+                .description("Sessões S7 abertas no pool")
+                .register(meterRegistry);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "plc-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMs / 2);
+        evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        sessions.values().forEach(PooledSession::close);
+        sessions.clear();
+    }
+
+    public static String key(String ipAddress, int port) {
+        return ipAddress.trim() + ":" + port;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Executa uma operação numa sessão já estabelecida (abre/reabre se necessário)
+    // --------------------------------------------------------------------------------------------
+    public <T> T execute(String ipAddress, int port, PlcOperation<T> operation) throws Exception {
+        PooledSession session = sessions.computeIfAbsent(key(ipAddress, port),
+                k -> new PooledSession(ipAddress.trim(), port, connectTimeoutMs, readTimeoutMs, maxAmq));
+        return session.execute(operation, true);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Como execute(), mas sem nova tentativa: a escrita pode ter sido aplicada antes da falha
+    // --------------------------------------------------------------------------------------------
+    public <T> T executeWrite(String ipAddress, int port, PlcOperation<T> operation) throws Exception {
+        PooledSession session = sessions.computeIfAbsent(key(ipAddress, port),
+                k -> new PooledSession(ipAddress.trim(), port, connectTimeoutMs, readTimeoutMs, maxAmq));
+        return session.execute(operation, false);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Sessão para uso assíncrono (readItemsAsync/writeAsync): as chamadas em pipeline
+    // são seguras entre threads, então a sessão é entregue sem exclusividade
+    // --------------------------------------------------------------------------------------------
+    public PlcConnector session(String ipAddress, int port) throws Exception {
+        PooledSession session = sessions.computeIfAbsent(key(ipAddress, port),
+                k -> new PooledSession(ipAddress.trim(), port, connectTimeoutMs, readTimeoutMs, maxAmq));
+        return session.acquire();
+    }
+
+    public void invalidate(String ipAddress, int port) {
+        PooledSession session = sessions.remove(key(ipAddress, port));
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        sessions.values().forEach(session -> session.closeIfIdle(now, idleTimeoutMs));
+    }
+
+    private static final class PooledSession {
+
+        private final String ipAddress;
+        private final int port;
+        private final int connectTimeoutMs;
+        private final int readTimeoutMs;
+        private final int maxAmq;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile PlcConnector connector;
+        private long lastUsed;
+        // Já teve uma sessão aberta: a próxima abertura conta como reconexão
+        private boolean opened;
+
+        PooledSession(String ipAddress, int port, int connectTimeoutMs, int readTimeoutMs, int maxAmq) {
+            this.ipAddress = ipAddress;
+            this.port = port;
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            this.maxAmq = maxAmq;
+        }
+
+        <T> T execute(PlcOperation<T> operation, boolean retry) throws Exception {
+            lock.lock();
+            try {
+                boolean reused = validate();
+                try {
+                    return run(operation);
+                } catch (Exception e) {
+                    if (!isSessionLost(e)) {
+                        // Recusa ou resposta inválida do CLP: a conexão continua utilizável
+                        throw e;
+                    }
+                    close();
+                    if (!reused || !retry) {
+                        throw e;
+                    }
+                    // A sessão reaproveitada pode ter sido derrubada pelo CLP; tenta uma vez com sessão nova
+                    System.err.println("Sessão com o CLP " + ipAddress + ":" + port + " inválida, reconectando: " + e.getMessage());
+                    validate();
+                    try {
+                        return run(operation);
+                    } catch (Exception retryError) {
+                        if (isSessionLost(retryError)) {
+                            close();
+                        }
+                        throw retryError;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Falha de transporte: IOException (também quando embrulhada) ou sessão já fechada
+        private boolean isSessionLost(Throwable error) {
+            if (!isOpen()) {
+                return true;
+            }
+            for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        PlcConnector acquire() throws Exception {
+            lock.lock();
+            try {
+                validate();
+                lastUsed = System.currentTimeMillis();
+                return connector;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private <T> T run(PlcOperation<T> operation) throws Exception {
+            T result = operation.execute(connector);
+            lastUsed = System.currentTimeMillis();
+            return result;
+        }
+
+        // Retorna true se a sessão existente foi reaproveitada
+        private boolean validate() throws Exception {
+            if (connector != null && connector.isConnected()) {
+                return true;
+            }
+            close();
+            PlcConnector plc = new PlcConnector(ipAddress, port, connectTimeoutMs, readTimeoutMs, maxAmq);
+            try {
+                plc.connect();
+            } catch (Exception e) {
+                // Handshake COTP/setup falhou com o socket já aberto
+                plc.disconnect();
+                throw e;
+            }
+            if (opened) {
+                plc.client.getMetrics().reconnect();
+            }
+            connector = plc;
+            opened = true;
+            lastUsed = System.currentTimeMillis();
+            return false;
+        }
+
+        boolean isOpen() {
+            PlcConnector plc = connector;
+            return plc != null && plc.isConnected();
+        }
+
+        void closeIfIdle(long now, long idleTimeoutMs) {
+            // Sessão em uso não é ociosa; não espera a operação terminar
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                if (connector != null && now - lastUsed > idleTimeoutMs) {
+                    close();
+                    // Fechamento por ociosidade não é perda de sessão
+                    opened = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                if (connector == null) {
+                    return;
+                }
+                try {
+                    connector.disconnect();
+                } catch (Exception e) {
+                    System.err.println("Erro ao desconectar do CLP " + ipAddress + ":" + port + ": " + e.getMessage());
+                }
+                connector = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.clpmonitor.plc;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public class PlcConnector {
 
     private String ipAddress;
@@ -15,10 +18,24 @@ public class PlcConnector {
 
     }
 
+    public PlcConnector(String ipAddress, int port, int connectTimeout, int readTimeout) {
+        this.ipAddress = ipAddress;
+        this.port = port;
+
+        client = new S7Client(this.ipAddress, this.port, connectTimeout, readTimeout);
+    }
+
+    // maxAmq: jobs pendentes pedidos no setup (ver S7Client.DEFAULT_MAX_AMQ)
+    public PlcConnector(String ipAddress, int port, int connectTimeout, int readTimeout, int maxAmq) {
+        this(ipAddress, port, connectTimeout, readTimeout);
+        client.setRequestedAmq(maxAmq);
+    }
+
     // --------------------------------------------------------------------------------------------
     // Funções para iniciar e encerrar conexão com o CLP
     // --------------------------------------------------------------------------------------------
     public void connect() throws Exception {
+        long start = System.nanoTime();
         try {
             if (client.connect()) {
                 try {
@@ -34,11 +51,36 @@ public class PlcConnector {
             }
         } catch (Exception e) {
             throw new Exception("Erro ao conectar ao CLP" + e.getMessage(), e);
+        } finally {
+            client.getMetrics().connect(start, connected);
         }
     }
 
+    public boolean isConnected() {
+        return connected && client.isConnected();
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    // Maior bloco de dados que cabe numa resposta de leitura com a PDU negociada
+    public int getMaxReadDataSize() {
+        return client.getMaxReadDataSize();
+    }
+
+    // Jobs que podem ficar pendentes ao mesmo tempo (Max AMQ negociado no setup)
+    public int getMaxAmqCalling() {
+        return client.getMaxAmqCalling();
+    }
+
     public void disconnect() throws Exception {
         try {
+            connected = false;
             client.disconnect();
         } catch (Exception e) {
             throw new Exception("Erro ao tentar desconectar do CLP" + e.getMessage(), e);
@@ -54,7 +96,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        String data = (String) client.sendReadRequest(db, startAdd, 0, size, "string");
+        String data = (String) client.sendReadRequest(S7ReadItem.ofString(db, startAdd, size)).getValue();
 
         return data;
 
@@ -66,7 +108,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        byte[] data = (byte[]) client.sendReadRequest(db, startAdd, 0, size, "block");
+        byte[] data = (byte[]) client.sendReadRequest(S7ReadItem.ofBlock(db, startAdd, size)).getValue();
 
         return data;
 
@@ -78,7 +120,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        float data = (float) client.sendReadRequest(db, startAdd, 0, 4, "float");
+        float data = (float) client.sendReadRequest(S7ReadItem.ofFloat(db, startAdd)).getDouble();
 
         return data;
 
@@ -89,7 +131,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        int data = (int) client.sendReadRequest(db, startAdd, 0, 2, "integer");
+        int data = (int) client.sendReadRequest(S7ReadItem.ofInt(db, startAdd)).getLong();
 
         return data;
     }
@@ -100,7 +142,7 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        byte data = (byte) client.sendReadRequest(db, startAdd, 0, 1, "byte");
+        byte data = (byte) client.sendReadRequest(S7ReadItem.ofByte(db, startAdd)).getLong();
 
         return data;
     }
@@ -111,44 +153,139 @@ public class PlcConnector {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        boolean data = (boolean) client.sendReadRequest(db, startAdd, bitNumber, 1, "boolean");
+        boolean data = client.sendReadRequest(S7ReadItem.ofBit(db, startAdd, bitNumber)).getLong() == 1;
         System.out.println("Valor do BIT = " + data);
         return data;
     }
 
+    // Leitura genérica pelo codec do tipo (DINT, WORD, DWORD, TIME, DATE_AND_TIME, REAL_ARRAY...)
+    public S7ReadResult read(S7ReadItem item) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        return client.sendReadRequest(item);
+    }
+
+    // Lê vários itens (DBs, offsets e tipos diferentes) numa única ida e volta
+    public List<S7ReadResult> readItems(List<S7ReadItem> items) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        return client.sendReadRequest(items);
+    }
+
+    // Caminho sem alocação para varreduras de alta frequência (ver S7PreparedRead)
+    public S7PreparedRead prepareRead(List<S7ReadItem> items) {
+        return client.prepareRead(items);
+    }
+
+    public void read(S7PreparedRead read) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        client.execute(read);
+    }
+
+    // Versões assíncronas: as requisições seguem em pipeline com PDU Reference própria
+    public CompletableFuture<List<S7ReadResult>> readItemsAsync(List<S7ReadItem> items) {
+
+        if (!connected) {
+            return CompletableFuture.failedFuture(new Exception("Conexão não estabelecida. Chame o método connect() primeiro."));
+        }
+
+        return client.sendReadRequestAsync(items);
+    }
+
+    public CompletableFuture<Boolean> writeAsync(int db, int startAdd, int bitNumber, int size, String type, Object value) {
+
+        if (!connected) {
+            return CompletableFuture.failedFuture(new Exception("Conexão não estabelecida. Chame o método connect() primeiro."));
+        }
+
+        return client.sendWriteRequestAsync(db, startAdd, bitNumber, size, type, value);
+    }
+
     // --------------------------------------------------------------------------------------------
     // Funções para escritas de TAGs
     // --------------------------------------------------------------------------------------------
+    // Vários itens no menor número de WriteVar; um resultado por item, na ordem recebida
+    public List<S7WriteResult> writeItems(List<S7WriteItem> items) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        return client.sendWriteRequest(items);
+    }
+
+    public CompletableFuture<List<S7WriteResult>> writeItemsAsync(List<S7WriteItem> items) {
+
+        if (!connected) {
+            return CompletableFuture.failedFuture(new Exception("Conexão não estabelecida. Chame o método connect() primeiro."));
+        }
+
+        return client.sendWriteRequestAsync(items);
+    }
+
+    public S7PreparedWrite prepareWrite(int db, int startAdd, int bitNumber, int size, String type) {
+        return client.prepareWrite(db, startAdd, bitNumber, size, type);
+    }
+
+    public S7PreparedWrite prepareWrite(int db, int startAdd, int bitNumber, int size, S7DataType type) {
+        return client.prepareWrite(db, startAdd, bitNumber, size, type);
+    }
+
+    public boolean write(S7PreparedWrite write) throws Exception {
+
+        if (!connected) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        return client.execute(write);
+    }
+
+    // Escrita genérica: value deve ser do tipo Java produzido por type.parse()
+    public boolean write(int db, int startAdd, int bitNumber, int size, S7DataType type, Object value) throws Exception {
+
+        return client.sendWriteRequest(db, startAdd, bitNumber, size, type, value);
+    }
+
     public boolean writeString(int db, int startAdd, int size, String str) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, size, "string", str);
+        return client.sendWriteRequest(db, startAdd, 0, size, S7DataType.STRING, str);
 
     }
 
     public boolean writeBlock(int db, int startAdd, int size, byte[] block) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, size, "block", block);
+        return client.sendWriteRequest(db, startAdd, 0, size, S7DataType.BLOCK, block);
     }
 
     public boolean writeFloat(int db, int startAdd, float value) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, 4, "float", value);
+        return client.sendWriteRequest(db, startAdd, 0, 4, S7DataType.FLOAT, value);
 
     }
 
     public boolean writeInt(int db, int startAdd, int value) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, 2, "integer", value);
+        return client.sendWriteRequest(db, startAdd, 0, 2, S7DataType.INTEGER, value);
     }
 
     public boolean writeByte(int db, int startAdd, byte value) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, 0, 1, "byte", value);
+        return client.sendWriteRequest(db, startAdd, 0, 1, S7DataType.BYTE, value);
     }
 
     public boolean writeBit(int db, int startAdd, int bitNumber, boolean logic) throws Exception {
 
-        return client.sendWriteRequest(db, startAdd, bitNumber, 1, "boolean", logic);
+        return client.sendWriteRequest(db, startAdd, bitNumber, 1, S7DataType.BOOLEAN, logic);
     }
 
     public static byte[] hexStringToByteArray(String hexString) {
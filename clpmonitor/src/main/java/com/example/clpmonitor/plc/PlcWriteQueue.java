@@ -0,0 +1,214 @@
+package com.example.clpmonitor.plc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.clpmonitor.util.VirtualThreads;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Fila de escrita por CLP (chave ip:porta) com um único escritor.
+ *
+ * Cada escrita entra na fila do CLP e recebe um CompletableFuture. Enquanto
+ * uma escrita está no CLP as seguintes se acumulam; quando ela termina, o
+ * escritor leva todas as pendentes de uma vez, juntas pelo S7WriteCoalescer:
+ * escritas repetidas no mesmo endereço mandam só o último valor e escritas
+ * vizinhas viram um bloco, tudo no menor número de WriteVar (sendWriteRequest).
+ * Numa rajada de escritas o CLP recebe poucos telegramas, em sequência, pela
+ * sessão do pool, em vez de um por requisição HTTP.
+ *
+ * A escrita substituída termina junto com a que a substituiu, com o mesmo
+ * return code. Com a fila cheia (queue-capacity) a escrita é recusada na hora.
+ *
+ *   plc.write.queue       gauge   plc   escritas aguardando o escritor
+ *   plc.writes.coalesced  counter plc   escritas que não precisaram de item próprio
+ */
+@Component
+public class PlcWriteQueue {
+
+    @Value("${clp.write.queue-capacity:1000}")
+    private int queueCapacity;
+
+    // Espera máxima de write()/writeAll() pela confirmação do CLP (fila + telegrama)
+    @Value("${clp.write.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Autowired
+    private PlcConnectionPool connectionPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService writers = VirtualThreads.newPerTaskExecutor("plc-writer");
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+        lanes.values().forEach(Lane::failPending);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Enfileira escritas; os itens de uma chamada entram juntos (mesmo lote, na ordem recebida)
+    // --------------------------------------------------------------------------------------------
+    public CompletableFuture<S7WriteResult> submit(String ipAddress, int port, S7WriteItem item) {
+        return submitAll(ipAddress, port, List.of(item)).get(0);
+    }
+
+    public List<CompletableFuture<S7WriteResult>> submitAll(String ipAddress, int port, List<S7WriteItem> items) {
+        String key = PlcConnectionPool.key(ipAddress, port);
+        return lanes.computeIfAbsent(key, k -> new Lane(ipAddress.trim(), port, k)).submit(items);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Versões síncronas: aguardam até timeout-ms (a escrita ainda pode chegar ao CLP depois disso)
+    // --------------------------------------------------------------------------------------------
+    public S7WriteResult write(String ipAddress, int port, S7WriteItem item) throws Exception {
+        return writeAll(ipAddress, port, List.of(item)).get(0);
+    }
+
+    public List<S7WriteResult> writeAll(String ipAddress, int port, List<S7WriteItem> items) throws Exception {
+        List<CompletableFuture<S7WriteResult>> futures = submitAll(ipAddress, port, items);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<S7WriteResult> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<S7WriteResult> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (TimeoutException e) {
+            throw new Exception("Tempo esgotado aguardando a escrita no CLP " + PlcConnectionPool.key(ipAddress, port)
+                    + " (" + timeoutMs + " ms).");
+        }
+        return results;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Fila de um CLP; no máximo uma tarefa de escrita por vez (draining)
+    // --------------------------------------------------------------------------------------------
+    private final class Lane {
+        private final String ipAddress;
+        private final int port;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Counter coalesced;
+        private List<Pending> pending = new ArrayList<>();
+        private boolean draining;
+
+        Lane(String ipAddress, int port, String key) {
+            this.ipAddress = ipAddress;
+            this.port = port;
+            this.coalesced = Counter.builder("plc.writes.coalesced").tag("plc", key)
+                    .description("Escritas juntadas a outra (mesmo endereço ou vizinhas)").register(meterRegistry);
+            Gauge.builder("plc.write.queue", this, Lane::size).tag("plc", key)
+                    .description("Escritas aguardando o escritor do CLP").register(meterRegistry);
+        }
+
+        List<CompletableFuture<S7WriteResult>> submit(List<S7WriteItem> items) {
+            List<CompletableFuture<S7WriteResult>> futures = new ArrayList<>(items.size());
+            lock.lock();
+            try {
+                if (pending.size() + items.size() > queueCapacity) {
+                    Exception full = new Exception("Fila de escrita do CLP " + ipAddress + ":" + port + " cheia ("
+                            + queueCapacity + " escritas pendentes).");
+                    items.forEach(item -> futures.add(CompletableFuture.failedFuture(full)));
+                    return futures;
+                }
+                for (S7WriteItem item : items) {
+                    Pending write = new Pending(item);
+                    pending.add(write);
+                    futures.add(write.future);
+                }
+                if (!draining) {
+                    draining = true;
+                    writers.execute(this::drain);
+                }
+            } finally {
+                lock.unlock();
+            }
+            return futures;
+        }
+
+        private void drain() {
+            while (true) {
+                List<Pending> batch;
+                lock.lock();
+                try {
+                    if (pending.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    batch = pending;
+                    pending = new ArrayList<>();
+                } finally {
+                    lock.unlock();
+                }
+                flush(batch);
+            }
+        }
+
+        private void flush(List<Pending> batch) {
+            try {
+                List<S7WriteItem> items = new ArrayList<>(batch.size());
+                batch.forEach(write -> items.add(write.item));
+                S7WriteCoalescer plan = new S7WriteCoalescer(items);
+                if (plan.items.size() < batch.size()) {
+                    coalesced.increment(batch.size() - plan.items.size());
+                }
+
+                List<S7WriteResult> results = connectionPool.executeWrite(ipAddress, port, plc -> plc.writeItems(plan.items));
+                for (int i = 0; i < batch.size(); i++) {
+                    int returnCode = results.get(plan.targets[i]).getReturnCode();
+                    batch.get(i).future.complete(new S7WriteResult(batch.get(i).item, returnCode));
+                }
+            } catch (Exception e) {
+                batch.forEach(write -> write.future.completeExceptionally(e));
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return pending.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void failPending() {
+            lock.lock();
+            try {
+                Exception closed = new Exception("Fila de escrita encerrada.");
+                pending.forEach(write -> write.future.completeExceptionally(closed));
+                pending.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Pending {
+        final S7WriteItem item;
+        final CompletableFuture<S7WriteResult> future = new CompletableFuture<>();
+
+        Pending(S7WriteItem item) {
+            this.item = item;
+        }
+    }
+}
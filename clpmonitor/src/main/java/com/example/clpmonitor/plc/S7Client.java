@@ -1,32 +1,91 @@
 package com.example.clpmonitor.plc;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class S7Client {
 
+    // PDU mínima garantida por qualquer CPU S7 até o setup ser respondido
+    public static final int DEFAULT_PDU_SIZE = 240;
+    // Alguns CPUs recusam mais de 20 itens num único ReadVar/WriteVar
+    public static final int MAX_ITEMS_PER_REQUEST = 20;
+
+    // Max AMQ pedido no setup: quantos jobs podem ficar pendentes na conexão. O CLP
+    // responde com o menor entre o pedido e o que suporta (S7-300: 1 a 3; S7-1500: mais)
+    public static final int DEFAULT_MAX_AMQ = 8;
+
+    public static final int DEFAULT_CONNECT_TIMEOUT = 3000;
+    public static final int DEFAULT_READ_TIMEOUT = 2000;
+
+    // Tamanhos fixos (em bytes, sem TPKT/COTP) usados para encaixar itens na PDU
+    static final int READ_REQUEST_OVERHEAD = 12;     // S7 Header (10) + Function + Item Count
+    static final int READ_REQUEST_ITEM = 12;         // Especificação de endereço de cada item
+    static final int READ_RESPONSE_OVERHEAD = 14;    // S7 Header Ack-Data (12) + Function + Item Count
+    static final int READ_RESPONSE_ITEM_HEADER = 4;  // Return Code, Transport Size, Length
+    static final int WRITE_REQUEST_OVERHEAD = 28;    // S7 Header (10) + Parameter (14) + Data Header (4)
+
     private final String plcIpAddress;
     private final int port;
     private Socket socket;
     private OutputStream outputStream;
     private InputStream inputStream;
 
+    // Valores negociados no setup de comunicação
+    private int pduSize = DEFAULT_PDU_SIZE;
+    private int requestedAmq = DEFAULT_MAX_AMQ;
+    private int maxAmqCalling = 1;
+    private int maxAmqCalled = 1;
+
+    // Serializa o acesso direto ao socket; o pipeline assume o socket quando ativado
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private volatile S7Pipeline pipeline;
+
+    // Timeouts do socket (ms); 0 = sem limite
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+    // Latência, bytes e erros por CLP (ver S7Metrics)
+    private final S7Metrics metrics;
+
     public S7Client(String plcIpAddress, int port) {
         this.plcIpAddress = plcIpAddress;
         this.port = port;
+        this.metrics = new S7Metrics(plcIpAddress, port);
+    }
+
+    public S7Client(String plcIpAddress, int port, int connectTimeout, int readTimeout) {
+        this(plcIpAddress, port);
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public boolean isConnected() {
+        return socket != null && socket.isConnected() && !socket.isClosed();
     }
 
     public boolean connect() throws Exception {
         try {
             InetAddress address = InetAddress.getByName(plcIpAddress);
-            socket = new Socket(address, port);
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(address, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            // Os telegramas S7 são pequenos; sem Nagle a requisição sai imediatamente
+            socket.setTcpNoDelay(true);
             outputStream = socket.getOutputStream();
             inputStream = socket.getInputStream();
             System.out.println("Conexão estabelecida com o CLP: " + plcIpAddress + ":" + port);
@@ -36,7 +95,7 @@ public class S7Client {
         }
     }
 
-    private byte[] createConnectionRequest() {
+    static byte[] createConnectionRequest() {
         return new byte[]{
             // TPKT Header
             0x03, 0x00, 0x00, 0x16,
@@ -46,7 +105,9 @@ public class S7Client {
         };
     }
 
-    private byte[] createSetupCommunication() {
+    static byte[] createSetupCommunication(int maxAmq) {
+        byte amqHigh = (byte) ((maxAmq >> 8) & 0xFF);
+        byte amqLow = (byte) (maxAmq & 0xFF);
         return new byte[]{
             // TPKT Header
             0x03, 0x00, 0x00, 0x19,
@@ -54,68 +115,94 @@ public class S7Client {
             0x02, (byte) 0xF0, (byte) 0x80,
             // S7 Header
             0x32, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x08, 0x00, 0x00,
-            // Parameters
-            (byte) 0xF0, 0x00, 0x00, 0x01, 0x00, 0x01, (byte) 0x03, (byte) 0xC0
+            // Parameters: Max AMQ calling, Max AMQ called, PDU 960
+            (byte) 0xF0, 0x00, amqHigh, amqLow, amqHigh, amqLow, (byte) 0x03, (byte) 0xC0
         };
     }
 
     public byte[] createReadRequest(int db, int offset, int bit, int size, String type) {
+        return createReadRequest(List.of(new S7ReadItem(db, offset, bit, size, type)));
+    }
 
-        byte tpSize = 0x00;
-        int startAddress = offset;
+    // Empacota N itens (DBs, offsets e tipos diferentes) num único ReadVar (0x04)
+    public byte[] createReadRequest(List<S7ReadItem> items) {
+        return encodeReadRequest(items);
+    }
 
-        if ((size == 1) & (type.toLowerCase().equals("boolean"))) {
+    static byte[] encodeReadRequest(List<S7ReadItem> items) {
 
-            tpSize = 0x01;
-            startAddress = (offset << 3) & 0xFFF8 | (bit & 0x07);
-        } else {
+        int itemCount = items.size();
+        int parameterLength = 2 + 12 * itemCount;
+        int lengthPacket = 17 + parameterLength;
 
-            tpSize = 0x02;
-            startAddress = offset << 3;
-        }
+        ByteBuffer buffer = ByteBuffer.allocate(lengthPacket);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        // TPKT + ISO 873/X.224 COTP Header
+        buffer.put((byte) 0x03).put((byte) 0x00).putShort((short) lengthPacket);
+        buffer.put((byte) 0x02).put((byte) 0xF0).put((byte) 0x80);
+
+        // S7 Header: Job, PDU Reference 0, Parameter length, Data length 0
+        buffer.put((byte) 0x32).put((byte) 0x01).putShort((short) 0x0000).putShort((short) 0x0000);
+        buffer.putShort((short) parameterLength).putShort((short) 0x0000);
+
+        // Parameter: Function Code, Item Count
+        buffer.put((byte) 0x04).put((byte) itemCount);
+
+        for (int i = 0; i < itemCount; i++) {
+            S7ReadItem item = items.get(i);
+            S7DataType type = item.getDataType();
+            byte tpSize = type.transportSize();
+            int startAddress = type.startAddress(item.getOffset(), item.getBit());
 
-        return new byte[]{
-            // TPKT + ISO 873/X.224 COTP Header
-            0x03, 0x00, 0x00, (byte) (31), 0x02, (byte) 0xF0, (byte) 0x80,
-            // S7 Header
-            0x32, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x0E, 0x00, 0x00,
-            // Parameter: Function Code, Item Count
-            0x04, 0x01,
             // Item Header: Variable Specification, Length of Following, Syntax ID
-            0x12, 0x0A, 0x10,
-            // Transport Size, Parameter length, DB Number (6), Area Type (DB)
-            tpSize, (byte) ((size >> 8) & 0xFF), (byte) (size & 0xFF),
-            (byte) ((db >> 8) & 0xFF), (byte) (db & 0xFF), (byte) 0x84,
-            // Address: Bit Address, Byte Offset (16), Reserved
-            0x00, (byte) ((startAddress >> 8) & 0xFF), (byte) (startAddress & 0xFF)
-        };
+            buffer.put((byte) 0x12).put((byte) 0x0A).put((byte) 0x10);
+            // Transport Size, Length, DB Number, Area Type (DB)
+            buffer.put(tpSize).putShort((short) item.getSize()).putShort((short) item.getDb()).put((byte) 0x84);
+            // Address: Bit Address, Byte Offset (16)
+            buffer.put((byte) ((startAddress >> 16) & 0xFF));
+            buffer.put((byte) ((startAddress >> 8) & 0xFF));
+            buffer.put((byte) (startAddress & 0xFF));
+        }
+
+        return buffer.array();
     }
 
     public byte[] createWriteRequest(int db, int offset, int bit, int size, String type, Object value) {
+        return encodeWriteRequest(db, offset, bit, size, type, value);
+    }
 
-        int lenghtTag;
-        if (type.toLowerCase().equals("string")) {
-            lenghtTag = size + 2;
-        } else {
-            lenghtTag = size;
-        }
+    public byte[] createWriteRequest(int db, int offset, int bit, int size, S7DataType type, Object value) {
+        return encodeWriteRequest(db, offset, bit, size, type, value);
+    }
 
-        ByteBuffer buffer = ByteBuffer.allocate(35 + lenghtTag);
-        buffer.order(ByteOrder.BIG_ENDIAN);
+    static byte[] encodeWriteRequest(int db, int offset, int bit, int size, String type, Object value) {
+        return encodeWriteRequest(db, offset, bit, size, S7DataType.of(type), value);
+    }
 
-        byte tpSize;
-        int startAddress = offset;
+    static byte[] encodeWriteRequest(int db, int offset, int bit, int size, S7DataType type, Object value) {
+        return encodeWriteRequest(List.of(new S7WriteItem(db, offset, bit, size, type, value)));
+    }
 
-        if ((size == 1) & (type.toLowerCase().equals("boolean"))) {
-            tpSize = 0x01;
-            startAddress = (offset << 3) & 0xFFF8 | (bit & 0x07);
-        } else {
-            tpSize = 0x02;
-            startAddress = offset << 3;
+    // Empacota N itens (DBs, offsets e tipos diferentes) num único WriteVar (0x05)
+    public byte[] createWriteRequest(List<S7WriteItem> items) {
+        return encodeWriteRequest(items);
+    }
+
+    static byte[] encodeWriteRequest(List<S7WriteItem> items) {
+
+        int itemCount = items.size();
+        int parameterLength = 2 + 12 * itemCount;
+        // Cada item: Return Code, Transport Size, Length (4) + dados + fill byte se ímpar (exceto o último)
+        int dataLength = 0;
+        for (int i = 0; i < itemCount; i++) {
+            int lenghtTag = items.get(i).getWireSize();
+            dataLength += 4 + lenghtTag + (i < itemCount - 1 ? lenghtTag & 0x01 : 0);
         }
+        int lengthPacket = 17 + parameterLength + dataLength;
 
-        int lengthPacket = 35 + lenghtTag;
-        int dataLength = 4 + size;
+        ByteBuffer buffer = ByteBuffer.allocate(lengthPacket);
+        buffer.order(ByteOrder.BIG_ENDIAN);
 
         // TPKT Header
         buffer.put((byte) 0x03); // Version
@@ -132,79 +219,48 @@ public class S7Client {
         buffer.put((byte) 0x01); // ROSCTR: Job (1)
         buffer.putShort((short) 0x0000); // Redundancy Indentification (Reserved): 0x0000
         buffer.putShort((short) 0x0000); // Protocol Data Unit Reference: 0
-        buffer.putShort((short) 0x000E); // Parameter length: 14
+        buffer.putShort((short) parameterLength); // Parameter length: 2 + 12 por item
         buffer.putShort((short) dataLength); // Data length
 
         // Parameter: Function Code, Item Count
         buffer.put((byte) 0x05); // Function: Write Var (0x05)
-        buffer.put((byte) 0x01); // Item count: 1
-
-        // Item Header: Variable Specification, Length of Following, Syntax ID
-        buffer.put((byte) 0x12); // Variable specification: 0x12
-        buffer.put((byte) 0x0A); // Length of Following address specification: 10
-        buffer.put((byte) 0x10); // Syntax ID: S7ANY (0x10)
-
-        // Transport Size, Parameter length, DB Number (6), Area Type (DB)
-        buffer.put((byte) tpSize); // Transport Size: BIT (1) BYTE (2)
-        buffer.putShort((short) size); // Length
-        buffer.putShort((short) db); // DB number
-        buffer.put((byte) 0x84); // Area: Data blocks (DB) (0x84)
-
-        // Address: Bit Address, Byte Offset (16), Reserved
-        buffer.put((byte) ((byte) (startAddress >> 16) & 0xFF));
-        buffer.put((byte) ((byte) (startAddress >> 8) & 0xFF));
-        buffer.put((byte) ((byte) startAddress & 0xFF));
-
-        // Data
-        buffer.put((byte) 0x00); // Return code: Reserved (0x00)
-        buffer.put((byte) (tpSize + 2)); // Transport Size: BIT (1)+2 , BYTE (2)+2
-
-        if (type.toLowerCase().equals("boolean")) {
-
-            System.out.println("Aqui Boolean: " + value);
-
-            buffer.putShort((short) lenghtTag); // Length
-            buffer.put((byte) ((boolean) value ? 0x01 : 0x00));
-
-        }
-
-        if (type.toLowerCase().equals("integer")) {
-            buffer.putShort((short) (lenghtTag << 3)); // Length
-            buffer.putShort((short) ((int) value));
-
-        }
-
-        if (type.toLowerCase().equals("byte")) {
-            buffer.putShort((short) (lenghtTag << 3)); // Length
-            buffer.put((byte) ((byte) value));
+        buffer.put((byte) itemCount); // Item count
 
-        }
-
-        if (type.toLowerCase().equals("string")) {
-
-            buffer.putShort((short) (lenghtTag << 3)); // Length
-            buffer.put((byte) size);
-            buffer.put((byte) ((String) value).trim().length());
-            buffer.put(((String) value).getBytes(StandardCharsets.UTF_8));
-
-        }
+        for (S7WriteItem item : items) {
+            S7DataType type = item.getDataType();
+            int startAddress = type.startAddress(item.getOffset(), item.getBit());
 
-        if (type.toLowerCase().equals("block")) {
-
-            buffer.putShort((short) (lenghtTag << 3)); // Length
+            // Item Header: Variable Specification, Length of Following, Syntax ID
+            buffer.put((byte) 0x12); // Variable specification: 0x12
+            buffer.put((byte) 0x0A); // Length of Following address specification: 10
+            buffer.put((byte) 0x10); // Syntax ID: S7ANY (0x10)
 
-            buffer.put((byte[]) value);
+            // Transport Size, Parameter length, DB Number (6), Area Type (DB)
+            buffer.put(type.transportSize()); // Transport Size: BIT (1) BYTE (2)
+            // STRING leva os 2 bytes de cabeçalho (tamanho máximo e atual) nos dados e no item
+            buffer.putShort((short) item.getWireSize()); // Length
+            buffer.putShort((short) item.getDb()); // DB number
+            buffer.put((byte) 0x84); // Area: Data blocks (DB) (0x84)
 
+            // Address: Bit Address, Byte Offset (16), Reserved
+            buffer.put((byte) ((byte) (startAddress >> 16) & 0xFF));
+            buffer.put((byte) ((byte) (startAddress >> 8) & 0xFF));
+            buffer.put((byte) ((byte) startAddress & 0xFF));
         }
 
-        if (type.toLowerCase().equals("float")) {
-
-            float valFloat = (float) value;
-            ByteBuffer bufferFloat = ByteBuffer.allocate(Float.BYTES); // Aloca espaço suficiente para um float
-            bufferFloat.putFloat(valFloat); // Coloca o valor float no buffer
-            buffer.putShort((short) (lenghtTag << 3)); // Length
-            buffer.put(bufferFloat.array());
-
+        for (int i = 0; i < itemCount; i++) {
+            S7WriteItem item = items.get(i);
+            S7DataType type = item.getDataType();
+            int lenghtTag = item.getWireSize();
+
+            // Data
+            buffer.put((byte) 0x00); // Return code: Reserved (0x00)
+            buffer.put((byte) (type.transportSize() + 2)); // Transport Size: BIT (1)+2 , BYTE (2)+2
+            buffer.putShort((short) type.dataLength(lenghtTag)); // Length (bits para BYTE, unidades para BIT)
+            type.encode(item.getValue(), buffer, item.getSize());
+            if (i < itemCount - 1 && (lenghtTag & 0x01) == 1) {
+                buffer.put((byte) 0x00); // Fill byte
+            }
         }
 
         return buffer.array();
@@ -238,13 +294,13 @@ public class S7Client {
         byte[] packet = createConnectionRequest();
 
         try {
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
+            writeFrame(packet);
 
-            // Leitura da resposta
-            byte[] response = new byte[1024];
-            int length = inputStream.read(response);
+            // Leitura da resposta: COTP Connection Confirm (0xD0)
+            int length = readFrame();
+            if (length < 6 || (response[5] & 0xFF) != 0xD0) {
+                throw new Exception("CLP recusou a conexão COTP.");
+            }
 
         } catch (Exception e) {
             throw new Exception("Erro ao enviar a solicitação de conexão: " + e.getMessage(), e);
@@ -256,24 +312,89 @@ public class S7Client {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        byte[] packet = createSetupCommunication();
+        byte[] packet = createSetupCommunication(requestedAmq);
 
         try {
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
+            writeFrame(packet);
 
             // Leitura da resposta
-            byte[] response = new byte[1024];
-            int length = inputStream.read(response);
+            int length = readFrame();
+
+            parseSetupResponse(response, length);
 
         } catch (Exception e) {
             throw new Exception("Erro ao enviar o pacote de configuração: " + e.getMessage(), e);
         }
     }
 
+    // --------------------------------------------------------------------------------------------
+    // O CLP responde ao setup com os valores negociados: Max AMQ (calling),
+    // Max AMQ (called) e o tamanho de PDU, que pode ser menor que o solicitado
+    // --------------------------------------------------------------------------------------------
+    private void parseSetupResponse(byte[] response, int length) throws Exception {
+
+        int[] negotiated = parseSetupResponse(ByteBuffer.wrap(response, 0, length).slice());
+        maxAmqCalling = negotiated[0];
+        maxAmqCalled = negotiated[1];
+        pduSize = negotiated[2];
+
+        // Buffer de resposta dimensionado uma vez para o maior telegrama possível
+        if (this.response.length < pduSize + 7) {
+            this.response = new byte[pduSize + 7];
+        }
+
+        System.out.println("PDU negociada com " + plcIpAddress + ": " + pduSize + " bytes, AMQ " + maxAmqCalling + "/" + maxAmqCalled);
+    }
+
+    // Retorna {Max AMQ calling, Max AMQ called, PDU}; índices absolutos a partir do início do telegrama
+    static int[] parseSetupResponse(ByteBuffer frame) throws Exception {
+
+        int length = frame.limit();
+        if (length < 27 || frame.get(7) != 0x32 || frame.get(19) != (byte) 0xF0) {
+            throw new Exception("Resposta de setup inválida (" + length + " bytes).");
+        }
+
+        int errorClass = frame.get(17) & 0xFF;
+        int errorCode = frame.get(18) & 0xFF;
+        if (errorClass != 0 || errorCode != 0) {
+            throw new Exception(String.format("CLP recusou o setup (error class 0x%02X, code 0x%02X)", errorClass, errorCode));
+        }
+
+        return new int[]{
+            frame.getShort(21) & 0xFFFF,
+            frame.getShort(23) & 0xFFFF,
+            frame.getShort(25) & 0xFFFF
+        };
+    }
+
+    public int getPduSize() {
+        return pduSize;
+    }
+
+    // Max AMQ pedido no próximo setup (1 a 65535); o negociado pode ser menor
+    public void setRequestedAmq(int requestedAmq) {
+        this.requestedAmq = Math.max(1, Math.min(requestedAmq, 0xFFFF));
+    }
+
+    public int getMaxAmqCalling() {
+        return maxAmqCalling;
+    }
+
+    public int getMaxAmqCalled() {
+        return maxAmqCalled;
+    }
+
+    // Bytes de dados que cabem na resposta de um ReadVar com um único item
+    public int getMaxReadDataSize() {
+        return pduSize - READ_RESPONSE_OVERHEAD - READ_RESPONSE_ITEM_HEADER;
+    }
+
+    // Bytes de dados que cabem num WriteVar com um único item
+    public int getMaxWriteDataSize() {
+        return pduSize - WRITE_REQUEST_OVERHEAD;
+    }
+
     private String lastReadValue;
-    private Object value;
 
     public String getValueFromLastRead() {
         return lastReadValue;
@@ -282,115 +403,657 @@ public class S7Client {
     byte[] response = new byte[1024];
     int length = 0;
 
+    // --------------------------------------------------------------------------------------------
+    // Lê exatamente um telegrama: cabeçalho TPKT (4 bytes, versão 3) com o tamanho
+    // total, depois o restante. Fragmentação TCP é tratada pelo readFully e o
+    // tempo máximo de espera é o readTimeout do socket.
+    // --------------------------------------------------------------------------------------------
+    private int readFrame() throws IOException {
+
+        readFully(response, 0, 4);
+
+        if (response[0] != 0x03) {
+            throw new IOException(String.format("Cabeçalho TPKT inválido (versão 0x%02X).", response[0]));
+        }
+
+        int frameLength = ((response[2] & 0xFF) << 8) | (response[3] & 0xFF);
+        if (frameLength < 7) {
+            throw new IOException("Tamanho de telegrama inválido: " + frameLength);
+        }
+
+        if (frameLength > response.length) {
+            response = Arrays.copyOf(response, frameLength);
+        }
+
+        readFully(response, 4, frameLength - 4);
+        metrics.received(frameLength);
+        return frameLength;
+    }
+
+    private void readFully(byte[] buffer, int offset, int count) throws IOException {
+        while (count > 0) {
+            int read = inputStream.read(buffer, offset, count);
+            if (read < 0) {
+                throw new EOFException("Conexão encerrada pelo CLP.");
+            }
+            offset += read;
+            count -= read;
+        }
+    }
+
     public Object sendReadRequest(int db, int offset, int bit, int size, String type) throws Exception {
+        return sendReadRequest(new S7ReadItem(db, offset, bit, size, type)).getValue();
+    }
+
+    // Leitura de um item; o chamador usa getValue() ou os acessores primitivos do resultado
+    public S7ReadResult sendReadRequest(S7ReadItem item) throws Exception {
+
+        S7ReadResult result = sendReadRequest(List.of(item)).get(0);
+
+        if (!result.isSuccess()) {
+            throw new Exception(String.format("Erro ao enviar o pacote de leitura: CLP retornou 0x%02X para %s",
+                    result.getReturnCode(), result.getItem()));
+        }
+
+        return result;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Leitura de N itens respeitando a PDU negociada: itens maiores que a PDU são
+    // divididos em fatias e itens pequenos são agrupados no menor número de requisições
+    // --------------------------------------------------------------------------------------------
+    public List<S7ReadResult> sendReadRequest(List<S7ReadItem> items) throws Exception {
 
         if (outputStream == null) {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        byte[] packet = createReadRequest(db, offset, bit, size, type);
+        if (pipeline != null) {
+            return await(sendReadRequestAsync(items));
+        }
 
-        try {
+        ReadPlan plan = new ReadPlan(items, pduSize);
+        List<S7ReadResult> chunkResults = new ArrayList<>(plan.chunks.size());
+        for (List<S7ReadItem> request : plan.requests) {
+            chunkResults.addAll(exchangeRead(request));
+        }
+        return plan.assemble(chunkResults);
+    }
 
-            outputStream.flush();
-            outputStream.write(packet);
-            outputStream.flush();
+    // --------------------------------------------------------------------------------------------
+    // Versão assíncrona: as requisições do plano são enviadas em pipeline (até o
+    // Max AMQ negociado) e o futuro completa quando todas as respostas chegarem
+    // --------------------------------------------------------------------------------------------
+    public CompletableFuture<List<S7ReadResult>> sendReadRequestAsync(List<S7ReadItem> items) {
+
+        ReadPlan plan = new ReadPlan(items, pduSize);
+        List<CompletableFuture<List<S7ReadResult>>> parts = new ArrayList<>(plan.requests.size());
+
+        for (List<S7ReadItem> request : plan.requests) {
+            parts.add(submit(encodeReadRequest(request)).thenApply(frame -> {
+                try {
+                    return parseReadResponse(frame, frame.length, request);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
 
-            Thread.sleep(50);
-            // Leitura da resposta
-            response = new byte[1024];
-            length = inputStream.read(response);
-
-            // Interpretação do valor lido
-            switch (type.toLowerCase()) {
-                case "string" ->
-                    value = extractStringFromResponse(response, size);
-                case "block" ->
-                    value = extractBlockFromResponse(response, size);
-                case "integer" ->
-                    value = extractIntegerFromResponse(response);
-                case "float" ->
-                    value = extractFloatFromResponse(response);
-                case "byte" ->
-                    value = extractByteFromResponse(response);
-                case "boolean" ->
-                    value = extractBooleanFromResponse(response);
-                default ->
-                    throw new IllegalArgumentException("Tipo de variável não suportado.");
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<S7ReadResult> chunkResults = new ArrayList<>(plan.chunks.size());
+            parts.forEach(part -> chunkResults.addAll(part.join()));
+            return plan.assemble(chunkResults);
+        });
+    }
+
+    // Divide/agrupa os itens de leitura conforme a PDU negociada
+    static final class ReadPlan {
+
+        final List<S7ReadItem> items;
+        final List<S7ReadItem> chunks = new ArrayList<>();
+        final List<Integer> owners = new ArrayList<>();
+        final List<List<S7ReadItem>> requests = new ArrayList<>();
+
+        ReadPlan(List<S7ReadItem> items, int pduSize) {
+            this.items = items;
+
+            // Fatia os itens que não cabem numa resposta (owners guarda o item original de cada fatia)
+            int maxData = pduSize - READ_RESPONSE_OVERHEAD - READ_RESPONSE_ITEM_HEADER;
+            for (int i = 0; i < items.size(); i++) {
+                S7ReadItem item = items.get(i);
+                if (item.getSize() <= maxData) {
+                    chunks.add(item);
+                    owners.add(i);
+                    continue;
+                }
+                for (int start = 0; start < item.getSize(); start += maxData) {
+                    int chunkSize = Math.min(maxData, item.getSize() - start);
+                    chunks.add(S7ReadItem.ofBlock(item.getDb(), item.getOffset() + start, chunkSize));
+                    owners.add(i);
+                }
+            }
+
+            // Agrupa as fatias enquanto couberem na requisição e na resposta
+            int first = 0;
+            while (first < chunks.size()) {
+                int requestLength = READ_REQUEST_OVERHEAD;
+                int responseLength = READ_RESPONSE_OVERHEAD;
+                int last = first;
+                while (last < chunks.size() && last - first < MAX_ITEMS_PER_REQUEST) {
+                    int itemResponse = READ_RESPONSE_ITEM_HEADER + chunks.get(last).getSize() + 1;
+                    if (last > first && (requestLength + READ_REQUEST_ITEM > pduSize || responseLength + itemResponse > pduSize)) {
+                        break;
+                    }
+                    requestLength += READ_REQUEST_ITEM;
+                    responseLength += itemResponse;
+                    last++;
+                }
+                requests.add(chunks.subList(first, last));
+                first = last;
+            }
+        }
+
+        // Remonta os itens fatiados na ordem original
+        List<S7ReadResult> assemble(List<S7ReadResult> chunkResults) {
+
+            if (chunks.size() == items.size()) {
+                return chunkResults;
+            }
+
+            List<S7ReadResult> results = new ArrayList<>(items.size());
+            int c = 0;
+            for (int i = 0; i < items.size(); i++) {
+                int returnCode = S7ReadResult.RETURN_CODE_SUCCESS;
+                ByteArrayOutputStream data = new ByteArrayOutputStream(items.get(i).getSize());
+                while (c < chunks.size() && owners.get(c) == i) {
+                    S7ReadResult part = chunkResults.get(c++);
+                    if (!part.isSuccess() && returnCode == S7ReadResult.RETURN_CODE_SUCCESS) {
+                        returnCode = part.getReturnCode();
+                    }
+                    data.write(part.getData(), 0, part.getData().length);
+                }
+                results.add(new S7ReadResult(items.get(i), returnCode, data.toByteArray()));
             }
+            return results;
+        }
+    }
 
-            System.out.println("Retorno de Leitura: " + value);
-            return value;
+    private List<S7ReadResult> exchangeRead(List<S7ReadItem> items) throws Exception {
 
+        try {
+            byte[] frame = exchange(encodeReadRequest(items));
+            return parseReadResponse(frame, frame.length, items);
         } catch (Exception e) {
             throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
         }
     }
 
+    // --------------------------------------------------------------------------------------------
+    // Envio de um telegrama e leitura da resposta. Sem pipeline, é uma ida e volta
+    // direta no socket; com pipeline ativo, o job entra na fila com PDU Reference própria
+    // --------------------------------------------------------------------------------------------
+    private byte[] exchange(byte[] packet) throws Exception {
+
+        long start = System.nanoTime();
+        try {
+            byte[] frame = null;
+            if (pipeline == null) {
+                ioLock.lock();
+                try {
+                    if (pipeline == null) {
+                        writeFrame(packet);
+                        frame = readFrameCopy();
+                    }
+                } finally {
+                    ioLock.unlock();
+                }
+            }
+            if (frame == null) {
+                frame = await(pipeline.submit(packet));
+            }
+            metrics.success(packet, start, frame, frame.length);
+            return frame;
+        } catch (Exception e) {
+            metrics.failure(packet, start, e);
+            throw e;
+        }
+    }
+
+    // Inicia o modo pipeline (thread receptora) na primeira chamada assíncrona
+    private CompletableFuture<byte[]> submit(byte[] packet) {
+
+        S7Pipeline active = pipeline;
+        if (active == null) {
+            ioLock.lock();
+            try {
+                active = pipeline;
+                if (active == null) {
+                    if (outputStream == null) {
+                        return CompletableFuture.failedFuture(
+                                new Exception("Conexão não estabelecida. Chame o método connect() primeiro."));
+                    }
+                    active = new S7Pipeline(this, maxAmqCalling);
+                    pipeline = active;
+                    active.start();
+                }
+            } finally {
+                ioLock.unlock();
+            }
+        }
+        long start = System.nanoTime();
+        return active.submit(packet).whenComplete((frame, error) -> {
+            if (error != null) {
+                metrics.failure(packet, start, error);
+            } else {
+                metrics.success(packet, start, frame, frame.length);
+            }
+        });
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        }
+    }
+
+    void writeFrame(byte[] packet) throws IOException {
+        outputStream.write(packet);
+        outputStream.flush();
+        metrics.sent(packet.length);
+    }
+
+    byte[] readFrameCopy() throws IOException {
+        int frameLength = readFrame();
+        return Arrays.copyOf(response, frameLength);
+    }
+
+    String getPlcIpAddress() {
+        return plcIpAddress;
+    }
+
+    S7Metrics getMetrics() {
+        return metrics;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Caminho sem alocação: requisições pré-montadas, resposta lida no buffer da
+    // conexão e valores copiados para os buffers do próprio S7PreparedRead
+    // --------------------------------------------------------------------------------------------
+    public S7PreparedRead prepareRead(List<S7ReadItem> items) {
+
+        ReadPlan plan = new ReadPlan(items, pduSize);
+        if (plan.requests.size() != 1 || plan.chunks.size() != items.size()) {
+            throw new IllegalArgumentException("Os itens não cabem numa única PDU de " + pduSize + " bytes.");
+        }
+        return new S7PreparedRead(items);
+    }
+
+    public S7PreparedWrite prepareWrite(int db, int offset, int bit, int size, String type) {
+        return prepareWrite(db, offset, bit, size, S7DataType.of(type));
+    }
+
+    public S7PreparedWrite prepareWrite(int db, int offset, int bit, int size, S7DataType type) {
+
+        size = type.size(size);
+        if (type.wireSize(size) > getMaxWriteDataSize()) {
+            throw new IllegalArgumentException("Escrita de " + size + " bytes não cabe numa PDU de " + pduSize + " bytes.");
+        }
+        return new S7PreparedWrite(db, offset, bit, size, type);
+    }
+
+    public void execute(S7PreparedRead read) throws Exception {
+
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        if (pipeline == null) {
+            ioLock.lock();
+            try {
+                if (pipeline == null) {
+                    long start = System.nanoTime();
+                    int frameLength;
+                    try {
+                        writeFrame(read.request);
+                        frameLength = readFrame();
+                    } catch (IOException e) {
+                        metrics.failure(read.request, start, e);
+                        throw e;
+                    }
+                    metrics.success(read.request, start, response, frameLength);
+                    read.decode(response, frameLength);
+                    return;
+                }
+            } finally {
+                ioLock.unlock();
+            }
+        }
+
+        // Com pipeline ativo a resposta chega por outra thread (caminho com alocação)
+        byte[] frame = exchange(read.request);
+        read.decode(frame, frame.length);
+    }
+
+    public boolean execute(S7PreparedWrite write) throws Exception {
+
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
+
+        if (pipeline == null) {
+            ioLock.lock();
+            try {
+                if (pipeline == null) {
+                    long start = System.nanoTime();
+                    int frameLength;
+                    try {
+                        writeFrame(write.request);
+                        frameLength = readFrame();
+                    } catch (IOException e) {
+                        metrics.failure(write.request, start, e);
+                        throw e;
+                    }
+                    metrics.success(write.request, start, response, frameLength);
+                    return frameLength >= 22 && response[21] == (byte) 0xFF;
+                }
+            } finally {
+                ioLock.unlock();
+            }
+        }
+
+        return isWriteAccepted(exchange(write.request));
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Decodifica a resposta de um ReadVar com N itens: cada item traz Return Code,
+    // Transport Size, Length (em bits ou bytes) e os dados, alinhados em posição par
+    // --------------------------------------------------------------------------------------------
+    static List<S7ReadResult> parseReadResponse(byte[] response, int length, List<S7ReadItem> items) throws Exception {
+        return parseReadResponse(ByteBuffer.wrap(response, 0, length).slice(), items);
+    }
+
+    // Versão sobre ByteBuffer (heap ou direto); índices absolutos a partir do início do telegrama
+    static List<S7ReadResult> parseReadResponse(ByteBuffer frame, List<S7ReadItem> items) throws Exception {
+
+        int length = frame.limit();
+        if (length < 21) {
+            throw new Exception("Resposta de leitura incompleta (" + length + " bytes).");
+        }
+
+        int errorClass = frame.get(17) & 0xFF;
+        int errorCode = frame.get(18) & 0xFF;
+        if (errorClass != 0 || errorCode != 0) {
+            throw new Exception(String.format("CLP recusou a leitura (error class 0x%02X, code 0x%02X)", errorClass, errorCode));
+        }
+
+        int parameterLength = frame.getShort(13) & 0xFFFF;
+        int itemCount = frame.get(20) & 0xFF;
+        if (itemCount != items.size()) {
+            throw new Exception("Resposta com " + itemCount + " itens, esperados " + items.size() + ".");
+        }
+
+        List<S7ReadResult> results = new ArrayList<>(itemCount);
+        int pos = 19 + parameterLength;
+
+        for (int i = 0; i < itemCount; i++) {
+            int returnCode = frame.get(pos) & 0xFF;
+            int transportSize = frame.get(pos + 1) & 0xFF;
+            int dataLength = frame.getShort(pos + 2) & 0xFFFF;
+            pos += 4;
+
+            // BIT (0x03), BYTE/WORD/DWORD (0x04) e INT (0x05) informam o tamanho em bits
+            if (transportSize == 0x03 || transportSize == 0x04 || transportSize == 0x05) {
+                dataLength = (dataLength + 7) >> 3;
+            }
+
+            if (pos + dataLength > length) {
+                throw new Exception("Resposta de leitura truncada no item " + i + ".");
+            }
+
+            byte[] data = new byte[dataLength];
+            frame.get(pos, data);
+            results.add(new S7ReadResult(items.get(i), returnCode, data));
+
+            pos += dataLength;
+            // Fill byte entre itens quando o tamanho é ímpar
+            if ((dataLength & 0x01) == 1 && i < itemCount - 1) {
+                pos++;
+            }
+        }
+
+        return results;
+    }
+
     public boolean sendWriteRequest(int db, int offset, int bit, int size, String type, Object value) throws Exception {
+        return sendWriteRequest(db, offset, bit, size, S7DataType.of(type), value);
+    }
+
+    public boolean sendWriteRequest(int db, int offset, int bit, int size, S7DataType type, Object value) throws Exception {
 
         if (outputStream == null) {
             throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
         }
 
-        System.out.println("Tamanho BOOLEAN: " + size);
+        for (byte[] packet : createWritePackets(db, offset, bit, size, type, value, getMaxWriteDataSize())) {
+            if (!exchangeWrite(packet)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        byte[] packet = createWriteRequest(db, offset, bit, size, type, value);
+    public CompletableFuture<Boolean> sendWriteRequestAsync(int db, int offset, int bit, int size, String type, Object value) {
+        return sendWriteRequestAsync(db, offset, bit, size, S7DataType.of(type), value);
+    }
 
-        try {
-            outputStream.write(packet);
-            outputStream.flush();
+    public CompletableFuture<Boolean> sendWriteRequestAsync(int db, int offset, int bit, int size, S7DataType type, Object value) {
 
-            // Leitura da resposta
-            response = new byte[50];
-            length = inputStream.read(response);
+        List<CompletableFuture<Boolean>> parts = new ArrayList<>();
+        for (byte[] packet : createWritePackets(db, offset, bit, size, type, value, getMaxWriteDataSize())) {
+            parts.add(submit(packet).thenApply(S7Client::isWriteAccepted));
+        }
 
-            return response[21] == (byte) 0xFF;
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> parts.stream().allMatch(CompletableFuture::join));
+    }
 
-        } catch (IOException e) {
-            throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
+    // Dados maiores que a PDU negociada são escritos em fatias consecutivas
+    static List<byte[]> createWritePackets(int db, int offset, int bit, int size, S7DataType type, Object value, int maxData) {
+
+        byte[] packet = encodeWriteRequest(db, offset, bit, size, type, value);
+
+        int dataSize = packet.length - 35;
+        if (dataSize <= maxData) {
+            return List.of(packet);
         }
 
+        List<byte[]> packets = new ArrayList<>();
+        byte[] data = Arrays.copyOfRange(packet, 35, packet.length);
+        for (int start = 0; start < data.length; start += maxData) {
+            byte[] chunk = Arrays.copyOfRange(data, start, Math.min(data.length, start + maxData));
+            packets.add(encodeWriteRequest(db, offset + start, 0, chunk.length, S7DataType.BLOCK, chunk));
+        }
+        return packets;
     }
 
     // --------------------------------------------------------------------------------------------
-    // Funções para extração das variáveis (conversão de BYTES para o tipo de
-    // variável desejado
+    // Escrita de N itens respeitando a PDU negociada: itens pequenos vão juntos no
+    // menor número de WriteVar e itens maiores que a PDU são escritos em fatias.
+    // Retorna o return code de cada item, na ordem recebida
     // --------------------------------------------------------------------------------------------
-    private int extractIntegerFromResponse(byte[] response) {
+    public List<S7WriteResult> sendWriteRequest(List<S7WriteItem> items) throws Exception {
 
-        return ByteBuffer.wrap(response, 25, 2).order(ByteOrder.BIG_ENDIAN).getShort();
-    }
+        if (outputStream == null) {
+            throw new Exception("Conexão não estabelecida. Chame o método connect() primeiro.");
+        }
 
-    private float extractFloatFromResponse(byte[] response) {
-        // System.out.println("\n\nResposta de Leitura Float recebida: " +
-        // bytesToHex(response, length));
-        // System.out.println(response.length);
-        return ByteBuffer.wrap(response, 25, 4).order(ByteOrder.BIG_ENDIAN).getFloat();
+        if (pipeline != null) {
+            return await(sendWriteRequestAsync(items));
+        }
+
+        WritePlan plan = new WritePlan(items, getMaxWriteDataSize());
+        List<S7WriteResult> chunkResults = new ArrayList<>(plan.chunks.size());
+        for (List<S7WriteItem> request : plan.requests) {
+            try {
+                byte[] frame = exchange(encodeWriteRequest(request));
+                chunkResults.addAll(parseWriteResponse(frame, request));
+            } catch (Exception e) {
+                throw new Exception("Erro ao enviar o pacote de escrita: " + e.getMessage(), e);
+            }
+        }
+        return plan.assemble(chunkResults);
     }
 
-    private byte extractByteFromResponse(byte[] response) {
+    // Versão assíncrona: os WriteVar do plano seguem em pipeline (até o Max AMQ negociado)
+    public CompletableFuture<List<S7WriteResult>> sendWriteRequestAsync(List<S7WriteItem> items) {
+
+        WritePlan plan = new WritePlan(items, getMaxWriteDataSize());
+        List<CompletableFuture<List<S7WriteResult>>> parts = new ArrayList<>(plan.requests.size());
+
+        for (List<S7WriteItem> request : plan.requests) {
+            parts.add(submit(encodeWriteRequest(request)).thenApply(frame -> {
+                try {
+                    return parseWriteResponse(frame, request);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
 
-        return ByteBuffer.wrap(response, 25, 1).order(ByteOrder.BIG_ENDIAN).get();
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<S7WriteResult> chunkResults = new ArrayList<>(plan.chunks.size());
+            parts.forEach(part -> chunkResults.addAll(part.join()));
+            return plan.assemble(chunkResults);
+        });
     }
 
-    private byte[] extractBlockFromResponse(byte[] response, int size) {
+    // Divide/agrupa os itens de escrita conforme a PDU negociada
+    static final class WritePlan {
+
+        final List<S7WriteItem> items;
+        final List<S7WriteItem> chunks = new ArrayList<>();
+        final List<Integer> owners = new ArrayList<>();
+        final List<List<S7WriteItem>> requests = new ArrayList<>();
+
+        WritePlan(List<S7WriteItem> items, int maxData) {
+            this.items = items;
+
+            // Fatia (como BLOCK) os itens cujos dados não cabem sozinhos num WriteVar
+            for (int i = 0; i < items.size(); i++) {
+                S7WriteItem item = items.get(i);
+                if (item.getWireSize() <= maxData) {
+                    chunks.add(item);
+                    owners.add(i);
+                    continue;
+                }
+                ByteBuffer data = ByteBuffer.allocate(item.getWireSize());
+                item.getDataType().encode(item.getValue(), data, item.getSize());
+                for (int start = 0; start < data.capacity(); start += maxData) {
+                    byte[] chunk = Arrays.copyOfRange(data.array(), start, Math.min(data.capacity(), start + maxData));
+                    chunks.add(new S7WriteItem(item.getDb(), item.getOffset() + start, 0, chunk.length, S7DataType.BLOCK, chunk));
+                    owners.add(i);
+                }
+            }
+
+            // Agrupa enquanto couber: cada item soma 12 bytes de parâmetro e 4 de cabeçalho de dados,
+            // mais o fill byte do item anterior quando ele tem tamanho ímpar
+            int pduSize = maxData + WRITE_REQUEST_OVERHEAD;
+            int first = 0;
+            while (first < chunks.size()) {
+                int requestLength = WRITE_REQUEST_OVERHEAD - 16;
+                int last = first;
+                while (last < chunks.size() && last - first < MAX_ITEMS_PER_REQUEST) {
+                    int fill = last > first ? chunks.get(last - 1).getWireSize() & 0x01 : 0;
+                    int itemLength = 16 + fill + chunks.get(last).getWireSize();
+                    if (last > first && requestLength + itemLength > pduSize) {
+                        break;
+                    }
+                    requestLength += itemLength;
+                    last++;
+                }
+                requests.add(chunks.subList(first, last));
+                first = last;
+            }
+        }
 
-        // int startIndex = 25;
-        return Arrays.copyOfRange(response, 25, (25 + size));
+        // Um item fatiado só tem sucesso se todas as fatias tiveram
+        List<S7WriteResult> assemble(List<S7WriteResult> chunkResults) {
+
+            if (chunks.size() == items.size()) {
+                return chunkResults;
+            }
+
+            List<S7WriteResult> results = new ArrayList<>(items.size());
+            int c = 0;
+            for (int i = 0; i < items.size(); i++) {
+                int returnCode = S7ReadResult.RETURN_CODE_SUCCESS;
+                while (c < chunks.size() && owners.get(c) == i) {
+                    S7WriteResult part = chunkResults.get(c++);
+                    if (!part.isSuccess() && returnCode == S7ReadResult.RETURN_CODE_SUCCESS) {
+                        returnCode = part.getReturnCode();
+                    }
+                }
+                results.add(new S7WriteResult(items.get(i), returnCode));
+            }
+            return results;
+        }
     }
 
-    private boolean extractBooleanFromResponse(byte[] response) {
-        return (response[25] & 0x01) == 1;
+    // Resposta do WriteVar: cabeçalho Ack_Data, Function, Item Count e um return code por item
+    static List<S7WriteResult> parseWriteResponse(byte[] frame, List<S7WriteItem> items) throws Exception {
+
+        if (frame.length < 21) {
+            throw new Exception("Resposta de escrita incompleta (" + frame.length + " bytes).");
+        }
+
+        int errorClass = frame[17] & 0xFF;
+        int errorCode = frame[18] & 0xFF;
+        if (errorClass != 0 || errorCode != 0) {
+            throw new Exception(String.format("CLP recusou a escrita (error class 0x%02X, code 0x%02X)", errorClass, errorCode));
+        }
+
+        int itemCount = frame[20] & 0xFF;
+        if (itemCount != items.size() || frame.length < 21 + itemCount) {
+            throw new Exception("Resposta com " + itemCount + " itens, esperados " + items.size() + ".");
+        }
+
+        List<S7WriteResult> results = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            results.add(new S7WriteResult(items.get(i), frame[21 + i] & 0xFF));
+        }
+        return results;
     }
 
-    private String extractStringFromResponse(byte[] response, int size) {
+    private boolean exchangeWrite(byte[] packet) throws Exception {
 
-        // int startIndex = 25;
-        return new String(response, 25, size).trim();
+        try {
+            return isWriteAccepted(exchange(packet));
+        } catch (IOException e) {
+            throw new Exception("Erro ao enviar o pacote de leitura: " + e.getMessage(), e);
+        }
+    }
+
+    // Return code do (único) item na resposta do WriteVar
+    static boolean isWriteAccepted(byte[] frame) {
+        if (frame.length < 22) {
+            throw new CompletionException(new IOException("Resposta de escrita incompleta (" + frame.length + " bytes)."));
+        }
+        return frame[21] == (byte) 0xFF;
     }
 
     public void disconnect() {
+        S7Pipeline active = pipeline;
+        pipeline = null;
+        if (active != null) {
+            active.fail(new IOException("Conexão com o CLP encerrada."));
+        }
         try {
             if (outputStream != null) {
                 outputStream.close();
@@ -0,0 +1,487 @@
+package com.example.clpmonitor.plc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * Tipos de dado S7 e seus codecs (big-endian, como no CLP).
+ *
+ * Cada tipo sabe o próprio tamanho, o transport size usado no endereço S7,
+ * como converter bytes <-> valor e como interpretar o texto vindo do formulário.
+ * O tipo de uma tag é resolvido uma vez (S7DataType.of) e depois só o enum
+ * circula, sem comparações de string a cada leitura ou escrita.
+ *
+ * Tipos de tamanho variável (BLOCK, STRING, REAL_ARRAY) usam o tamanho em
+ * bytes informado na tag.
+ */
+public enum S7DataType {
+
+    BOOLEAN(1, "bit", "bool") {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return (src[offset] & 0x01) == 1;
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return src[offset] & 0x01;
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.put((byte) ((boolean) value ? 0x01 : 0x00));
+        }
+
+        @Override
+        public Object parse(String text) {
+            String value = text.trim();
+            return value.equals("1") || Boolean.parseBoolean(value);
+        }
+    },
+
+    BYTE(1) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return src[offset];
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return src[offset];
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.put(((Number) value).byteValue());
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Byte.parseByte(text.trim());
+        }
+    },
+
+    // INT (16 bits com sinal)
+    INTEGER(2, "int") {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return (int) readShort(src, offset);
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return readShort(src, offset);
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.putShort(((Number) value).shortValue());
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Integer.parseInt(text.trim());
+        }
+    },
+
+    // WORD (16 bits sem sinal)
+    WORD(2) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return readShort(src, offset) & 0xFFFF;
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return readShort(src, offset) & 0xFFFF;
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.putShort((short) ((Number) value).intValue());
+        }
+
+        @Override
+        public Object parse(String text) {
+            return parseUnsigned(text, 0xFFFFL).intValue();
+        }
+    },
+
+    // DINT (32 bits com sinal)
+    DINT(4) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return readInt(src, offset);
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return readInt(src, offset);
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.putInt(((Number) value).intValue());
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Integer.parseInt(text.trim());
+        }
+    },
+
+    // DWORD (32 bits sem sinal)
+    DWORD(4) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return readInt(src, offset) & 0xFFFFFFFFL;
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return readInt(src, offset) & 0xFFFFFFFFL;
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.putInt((int) ((Number) value).longValue());
+        }
+
+        @Override
+        public Object parse(String text) {
+            return parseUnsigned(text, 0xFFFFFFFFL);
+        }
+    },
+
+    // REAL (IEEE 754, 32 bits)
+    FLOAT(4, "real") {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return Float.intBitsToFloat(readInt(src, offset));
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return (long) decodeDouble(src, offset);
+        }
+
+        @Override
+        public double decodeDouble(byte[] src, int offset) {
+            return Float.intBitsToFloat(readInt(src, offset));
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.putFloat(((Number) value).floatValue());
+        }
+
+        @Override
+        public Object parse(String text) {
+            return Float.parseFloat(text.trim());
+        }
+    },
+
+    // TIME: DINT em milissegundos
+    TIME(4) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return Duration.ofMillis(readInt(src, offset));
+        }
+
+        @Override
+        public long decodeLong(byte[] src, int offset) {
+            return readInt(src, offset);
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            long millis = value instanceof Duration duration ? duration.toMillis() : ((Number) value).longValue();
+            dst.putInt(Math.toIntExact(millis));
+        }
+
+        // Aceita milissegundos ("1500") ou ISO-8601 ("PT1.5S")
+        @Override
+        public Object parse(String text) {
+            String value = text.trim();
+            if (value.toUpperCase(Locale.ROOT).startsWith("PT")) {
+                return Duration.parse(value);
+            }
+            return Duration.ofMillis(Long.parseLong(value));
+        }
+    },
+
+    // DATE_AND_TIME: 8 bytes BCD (ano, mês, dia, hora, minuto, segundo, ms e dia da semana)
+    DATE_AND_TIME(8, "dt") {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            int year = fromBcd(src[offset]);
+            int millis = fromBcd(src[offset + 6]) * 10 + ((src[offset + 7] >> 4) & 0x0F);
+            return LocalDateTime.of(year < 90 ? 2000 + year : 1900 + year,
+                    fromBcd(src[offset + 1]), fromBcd(src[offset + 2]),
+                    fromBcd(src[offset + 3]), fromBcd(src[offset + 4]), fromBcd(src[offset + 5]),
+                    millis * 1_000_000);
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            int millis = dateTime.getNano() / 1_000_000;
+            // Dia da semana no CLP: 1 = domingo ... 7 = sábado
+            int weekday = dateTime.getDayOfWeek().getValue() % 7 + 1;
+            dst.put(toBcd(dateTime.getYear() % 100));
+            dst.put(toBcd(dateTime.getMonthValue()));
+            dst.put(toBcd(dateTime.getDayOfMonth()));
+            dst.put(toBcd(dateTime.getHour()));
+            dst.put(toBcd(dateTime.getMinute()));
+            dst.put(toBcd(dateTime.getSecond()));
+            dst.put(toBcd(millis / 10));
+            dst.put((byte) (((millis % 10) << 4) | weekday));
+        }
+
+        @Override
+        public Object parse(String text) {
+            return LocalDateTime.parse(text.trim());
+        }
+    },
+
+    // ARRAY OF REAL: tamanho em bytes (4 por elemento)
+    REAL_ARRAY(0, "float[]", "real[]") {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            float[] values = new float[size / 4];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Float.intBitsToFloat(readInt(src, offset + 4 * i));
+            }
+            return values;
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            float[] values = (float[]) value;
+            for (int i = 0; i < size / 4; i++) {
+                dst.putFloat(i < values.length ? values[i] : 0f);
+            }
+        }
+
+        // Valores separados por vírgula ou ponto e vírgula
+        @Override
+        public Object parse(String text) {
+            String[] parts = text.trim().split("\\s*[,;]\\s*");
+            float[] values = new float[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = Float.parseFloat(parts[i]);
+            }
+            return values;
+        }
+    },
+
+    BLOCK(0) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return Arrays.copyOfRange(src, offset, offset + size);
+        }
+
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            dst.put((byte[]) value, 0, size);
+        }
+
+        @Override
+        public Object parse(String text) {
+            return PlcConnector.hexStringToByteArray(text.trim());
+        }
+    },
+
+    // STRING S7: no CLP ocupa 2 bytes a mais (tamanho máximo e tamanho atual)
+    STRING(0) {
+        @Override
+        public Object decode(byte[] src, int offset, int size) {
+            return new String(src, offset, size).trim();
+        }
+
+        @Override
+        public int wireSize(int size) {
+            return size + 2;
+        }
+
+        // Um byte por caractere (ISO-8859-1), completado com zeros até o tamanho máximo,
+        // para que os dados ocupem exatamente wireSize() e não desloquem os itens seguintes
+        @Override
+        void encode(Object value, ByteBuffer dst, int size) {
+            String text = ((String) value).trim();
+            check(text, size);
+            dst.put((byte) size);
+            dst.put((byte) text.length());
+            dst.put(text.getBytes(StandardCharsets.ISO_8859_1));
+            for (int i = text.length(); i < size; i++) {
+                dst.put((byte) 0x00);
+            }
+        }
+
+        @Override
+        void check(Object value, int size) {
+            int length = ((String) value).trim().length();
+            if (length > size || size > 254) {
+                throw new IllegalArgumentException("Texto de " + length + " caractere(s) não cabe numa STRING["
+                        + size + "] (máximo 254).");
+            }
+        }
+
+        @Override
+        public Object parse(String text) {
+            return text.trim();
+        }
+    };
+
+    private static final Map<String, S7DataType> BY_NAME = new HashMap<>();
+
+    static {
+        for (S7DataType type : values()) {
+            BY_NAME.put(type.name().toLowerCase(Locale.ROOT), type);
+            for (String alias : type.aliases) {
+                BY_NAME.put(alias, type);
+            }
+        }
+    }
+
+    private final int fixedSize;
+    private final String[] aliases;
+
+    S7DataType(int fixedSize, String... aliases) {
+        this.fixedSize = fixedSize;
+        this.aliases = aliases;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Resolve o nome usado nas tags e no formulário ("INTEGER", "bit", "real"...)
+    // --------------------------------------------------------------------------------------------
+    public static S7DataType of(String name) {
+        S7DataType type = name == null ? null : BY_NAME.get(name.trim().toLowerCase(Locale.ROOT));
+        if (type == null) {
+            throw new IllegalArgumentException("Tipo de variável não suportado: " + name);
+        }
+        return type;
+    }
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isFixedSize() {
+        return fixedSize > 0;
+    }
+
+    // Tamanho em bytes da tag: o do tipo, ou o informado para tipos variáveis
+    public int size(int declaredSize) {
+        return fixedSize > 0 ? fixedSize : declaredSize;
+    }
+
+    // Bytes ocupados na área de dados do WriteVar
+    public int wireSize(int size) {
+        return size;
+    }
+
+    public boolean isBit() {
+        return this == BOOLEAN;
+    }
+
+    // Transport size do endereço S7ANY: BIT (0x01) ou BYTE (0x02)
+    byte transportSize() {
+        return isBit() ? (byte) 0x01 : (byte) 0x02;
+    }
+
+    // Endereço no formato S7: byte offset << 3 | bit
+    int startAddress(int offset, int bit) {
+        return isBit() ? (offset << 3) & 0xFFF8 | (bit & 0x07) : offset << 3;
+    }
+
+    // Length da área de dados do WriteVar: em bits para BYTE/WORD, em unidades para BIT
+    int dataLength(int wireSize) {
+        return isBit() ? wireSize : wireSize << 3;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Codecs
+    // --------------------------------------------------------------------------------------------
+    public abstract Object decode(byte[] src, int offset, int size);
+
+    // Decodificação sem boxing para tipos numéricos
+    public long decodeLong(byte[] src, int offset) {
+        throw new UnsupportedOperationException("Tipo " + this + " não é numérico.");
+    }
+
+    public double decodeDouble(byte[] src, int offset) {
+        return decodeLong(src, offset);
+    }
+
+    abstract void encode(Object value, ByteBuffer dst, int size);
+
+    // Rejeita, antes de qualquer I/O, valores que não cabem no tamanho do item
+    void check(Object value, int size) {
+    }
+
+    // Converte o texto digitado no formulário para o valor aceito por encode()
+    public abstract Object parse(String text);
+
+    // Texto para logs e para a interface
+    public String format(Object value) {
+        if (value instanceof byte[] bytes) {
+            StringBuilder sb = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                sb.append(String.format("%02X", b));
+            }
+            return sb.toString();
+        }
+        if (value instanceof float[] values) {
+            return Arrays.toString(values);
+        }
+        return String.valueOf(value);
+    }
+
+    // Valor neutro usado nos templates de escrita pré-montada
+    Object zero(int size) {
+        return switch (this) {
+            case BOOLEAN -> false;
+            case TIME -> Duration.ZERO;
+            case DATE_AND_TIME -> LocalDateTime.of(1990, 1, 1, 0, 0);
+            case REAL_ARRAY -> new float[size / 4];
+            case BLOCK -> new byte[size];
+            case STRING -> "";
+            default -> 0;
+        };
+    }
+
+    private static short readShort(byte[] src, int offset) {
+        return (short) (((src[offset] & 0xFF) << 8) | (src[offset + 1] & 0xFF));
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return ((src[offset] & 0xFF) << 24) | ((src[offset + 1] & 0xFF) << 16)
+                | ((src[offset + 2] & 0xFF) << 8) | (src[offset + 3] & 0xFF);
+    }
+
+    private static Long parseUnsigned(String text, long max) {
+        String value = text.trim();
+        long parsed = value.toLowerCase(Locale.ROOT).startsWith("0x")
+                ? Long.parseLong(value.substring(2), 16)
+                : Long.parseLong(value);
+        if (parsed < 0 || parsed > max) {
+            throw new NumberFormatException("Valor fora da faixa: " + value);
+        }
+        return parsed;
+    }
+
+    private static int fromBcd(byte value) {
+        return ((value >> 4) & 0x0F) * 10 + (value & 0x0F);
+    }
+
+    private static byte toBcd(int value) {
+        return (byte) (((value / 10) << 4) | (value % 10));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.clpmonitor.plc;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Medidores Micrometer da comunicação com um CLP (tag plc = ip:porta).
+ *
+ * O S7Client não é um bean do Spring, então os medidores vão para o registro
+ * global (Metrics.globalRegistry), ao qual o Spring Boot liga o registro do
+ * Actuator/Prometheus. Fora do Spring (benchmarks, testes) nada é exportado.
+ * Os buckets de histograma dos timers ficam no application.properties
+ * (management.metrics.distribution.slo.*).
+ *
+ *   plc.requests          timer   plc, operation (read/write), outcome (success/error)
+ *   plc.bytes.sent        counter plc
+ *   plc.bytes.received    counter plc
+ *   plc.errors            counter plc, operation, code (return code S7, "class-0xCCDD", timeout, io, protocol)
+ *   plc.connect           timer   plc, outcome
+ */
+final class S7Metrics {
+
+    static final String OP_READ = "read";
+    static final String OP_WRITE = "write";
+
+    private final MeterRegistry registry;
+    private final String plc;
+    private final Timer readSuccess;
+    private final Timer readError;
+    private final Timer writeSuccess;
+    private final Timer writeError;
+    private final Counter bytesSent;
+    private final Counter bytesReceived;
+
+    S7Metrics(String ipAddress, int port) {
+        this(Metrics.globalRegistry, ipAddress, port);
+    }
+
+    S7Metrics(MeterRegistry registry, String ipAddress, int port) {
+        this.registry = registry;
+        this.plc = PlcConnectionPool.key(ipAddress, port);
+        this.readSuccess = requestTimer(OP_READ, "success");
+        this.readError = requestTimer(OP_READ, "error");
+        this.writeSuccess = requestTimer(OP_WRITE, "success");
+        this.writeError = requestTimer(OP_WRITE, "error");
+        this.bytesSent = Counter.builder("plc.bytes.sent").baseUnit("bytes").tag("plc", plc)
+                .description("Bytes enviados ao CLP").register(registry);
+        this.bytesReceived = Counter.builder("plc.bytes.received").baseUnit("bytes").tag("plc", plc)
+                .description("Bytes recebidos do CLP").register(registry);
+    }
+
+    private Timer requestTimer(String operation, String outcome) {
+        return Timer.builder("plc.requests")
+                .description("Ida e volta de um telegrama S7")
+                .tags("plc", plc, "operation", operation, "outcome", outcome)
+                .register(registry);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Ida e volta de um telegrama; "response" pode ser o buffer da conexão (length válido)
+    // --------------------------------------------------------------------------------------------
+    void success(byte[] request, long startNanos, byte[] response, int length) {
+        String operation = operation(request);
+        long elapsed = System.nanoTime() - startNanos;
+        (OP_WRITE.equals(operation) ? writeSuccess : readSuccess).record(elapsed, TimeUnit.NANOSECONDS);
+        countReturnCodes(operation, response, length);
+    }
+
+    void failure(byte[] request, long startNanos, Throwable error) {
+        String operation = operation(request);
+        long elapsed = System.nanoTime() - startNanos;
+        (OP_WRITE.equals(operation) ? writeError : readError).record(elapsed, TimeUnit.NANOSECONDS);
+        error(operation, classify(error));
+    }
+
+    void sent(int bytes) {
+        bytesSent.increment(bytes);
+    }
+
+    void received(int bytes) {
+        bytesReceived.increment(bytes);
+    }
+
+    void connect(long startNanos, boolean success) {
+        Timer.builder("plc.connect")
+                .description("Abertura de sessão (TCP, COTP e setup S7)")
+                .tags("plc", plc, "outcome", success ? "success" : "error")
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void reconnect() {
+        Counter.builder("plc.reconnects").tag("plc", plc)
+                .description("Sessões reabertas depois de perdidas").register(registry).increment();
+    }
+
+    private void error(String operation, String code) {
+        Counter.builder("plc.errors").tags("plc", plc, "operation", operation, "code", code)
+                .description("Falhas de comunicação e return codes de erro do CLP").register(registry).increment();
+    }
+
+    // Código de função no parâmetro do job: 0x04 ReadVar, 0x05 WriteVar
+    static String operation(byte[] request) {
+        return request.length > 17 && request[17] == 0x05 ? OP_WRITE : OP_READ;
+    }
+
+    static String classify(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof SocketTimeoutException) {
+            return "timeout";
+        }
+        if (error instanceof IOException) {
+            return "io";
+        }
+        return "protocol";
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Conta os erros informados pelo CLP na resposta (Ack_Data): erro de cabeçalho
+    // (error class/code) ou return code diferente de 0xFF em cada item
+    // --------------------------------------------------------------------------------------------
+    void countReturnCodes(String operation, byte[] frame, int length) {
+        if (length < 21 || frame[8] != 0x03) {
+            return;
+        }
+        int errorClass = frame[17] & 0xFF;
+        int errorCode = frame[18] & 0xFF;
+        if (errorClass != 0 || errorCode != 0) {
+            error(operation, String.format("class-0x%02X%02X", errorClass, errorCode));
+            return;
+        }
+
+        int itemCount = frame[20] & 0xFF;
+        if (OP_WRITE.equals(operation)) {
+            for (int i = 0; i < itemCount && 21 + i < length; i++) {
+                returnCode(operation, frame[21 + i] & 0xFF);
+            }
+            return;
+        }
+
+        int pos = 19 + (((frame[13] & 0xFF) << 8) | (frame[14] & 0xFF));
+        for (int i = 0; i < itemCount && pos + 4 <= length; i++) {
+            returnCode(operation, frame[pos] & 0xFF);
+            int transportSize = frame[pos + 1] & 0xFF;
+            int dataLength = ((frame[pos + 2] & 0xFF) << 8) | (frame[pos + 3] & 0xFF);
+            if (transportSize == 0x03 || transportSize == 0x04 || transportSize == 0x05) {
+                dataLength = (dataLength + 7) >> 3;
+            }
+            pos += 4 + dataLength + (dataLength & 0x01);
+        }
+    }
+
+    private void returnCode(String operation, int returnCode) {
+        if (returnCode != S7ReadResult.RETURN_CODE_SUCCESS) {
+            error(operation, String.format("0x%02X", returnCode));
+        }
+    }
+}
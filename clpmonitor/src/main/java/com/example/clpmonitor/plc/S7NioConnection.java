@@ -0,0 +1,384 @@
+package com.example.clpmonitor.plc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Conexão S7 não bloqueante (SocketChannel) atendida por um S7NioReactor.
+ *
+ * O handshake (COTP + setup) e todos os jobs correm como máquina de estados no
+ * loop de I/O. Os telegramas são montados e lidos em buffers diretos da
+ * própria conexão; as respostas são decodificadas direto do buffer de leitura,
+ * na thread de I/O, antes de completar o futuro. Continuações pesadas devem
+ * usar os métodos *Async do CompletableFuture para não segurar o loop.
+ */
+public final class S7NioConnection {
+
+    @FunctionalInterface
+    interface FrameDecoder<T> {
+        T decode(ByteBuffer frame) throws Exception;
+    }
+
+    private static final class Job<T> {
+        final byte[] packet;
+        final FrameDecoder<T> decoder;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        long sentAt;
+
+        Job(byte[] packet, FrameDecoder<T> decoder) {
+            this.packet = packet;
+            this.decoder = decoder;
+        }
+
+        void complete(ByteBuffer frame) {
+            try {
+                future.complete(decoder.decode(frame));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private enum State { CONNECTING, COTP, SETUP, READY, CLOSED }
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final String ipAddress;
+    private final int port;
+    private final S7NioReactor reactor;
+    private final long connectTimeoutNanos;
+    private final long readTimeoutNanos;
+    private final int requestedAmq;
+    private final CompletableFuture<S7NioConnection> connected = new CompletableFuture<>();
+
+    // Acessados só pela thread de I/O
+    private final Map<Integer, Job<?>> inFlight = new HashMap<>();
+    private final Queue<Job<?>> waiting = new ConcurrentLinkedQueue<>();
+    private ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private SocketChannel channel;
+    private SelectionKey key;
+    private long stateSince;
+    private int nextReference = 1;
+
+    private volatile State state = State.CONNECTING;
+    private volatile int pduSize = S7Client.DEFAULT_PDU_SIZE;
+    private volatile int maxAmqCalling = 1;
+    private volatile Exception failure;
+
+    S7NioConnection(String ipAddress, int port, S7NioReactor reactor, int connectTimeoutMs, int readTimeoutMs,
+            int requestedAmq) {
+        this.ipAddress = ipAddress;
+        this.port = port;
+        this.reactor = reactor;
+        this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(connectTimeoutMs);
+        this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMs);
+        this.requestedAmq = Math.max(1, Math.min(requestedAmq, 0xFFFF));
+    }
+
+    CompletableFuture<S7NioConnection> open() {
+        reactor.execute(() -> {
+            try {
+                reactor.attach(this);
+                stateSince = System.nanoTime();
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                key = channel.register(reactor.selector(), SelectionKey.OP_CONNECT, this);
+                if (channel.connect(new InetSocketAddress(ipAddress, port))) {
+                    onConnected();
+                }
+            } catch (Exception e) {
+                fail(e);
+            }
+        });
+        return connected;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getPduSize() {
+        return pduSize;
+    }
+
+    // Jobs que podem ficar pendentes ao mesmo tempo (Max AMQ negociado no setup)
+    public int getMaxAmqCalling() {
+        return maxAmqCalling;
+    }
+
+    // Bytes de dados que cabem na resposta de um ReadVar com um único item (como no S7Client)
+    public int getMaxReadDataSize() {
+        return pduSize - S7Client.READ_RESPONSE_OVERHEAD - S7Client.READ_RESPONSE_ITEM_HEADER;
+    }
+
+    public boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // API assíncrona (mesmo plano de divisão por PDU do S7Client)
+    // --------------------------------------------------------------------------------------------
+    public CompletableFuture<List<S7ReadResult>> readAsync(List<S7ReadItem> items) {
+
+        S7Client.ReadPlan plan = new S7Client.ReadPlan(items, pduSize);
+        List<CompletableFuture<List<S7ReadResult>>> parts = new ArrayList<>(plan.requests.size());
+
+        for (List<S7ReadItem> request : plan.requests) {
+            parts.add(submit(S7Client.encodeReadRequest(request), frame -> S7Client.parseReadResponse(frame, request)));
+        }
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<S7ReadResult> chunkResults = new ArrayList<>(plan.chunks.size());
+            parts.forEach(part -> chunkResults.addAll(part.join()));
+            return plan.assemble(chunkResults);
+        });
+    }
+
+    public CompletableFuture<Boolean> writeAsync(int db, int offset, int bit, int size, String type, Object value) {
+        return writeAsync(db, offset, bit, size, S7DataType.of(type), value);
+    }
+
+    public CompletableFuture<Boolean> writeAsync(int db, int offset, int bit, int size, S7DataType type, Object value) {
+
+        List<CompletableFuture<Boolean>> parts = new ArrayList<>();
+        int maxData = pduSize - S7Client.WRITE_REQUEST_OVERHEAD;
+        for (byte[] packet : S7Client.createWritePackets(db, offset, bit, size, type, value, maxData)) {
+            parts.add(submit(packet, frame -> frame.limit() >= 22 && frame.get(21) == (byte) 0xFF));
+        }
+
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> parts.stream().allMatch(CompletableFuture::join));
+    }
+
+    public void close() {
+        reactor.execute(() -> fail(new IOException("Conexão com o CLP encerrada.")));
+    }
+
+    private <T> CompletableFuture<T> submit(byte[] packet, FrameDecoder<T> decoder) {
+        Job<T> job = new Job<>(packet, decoder);
+        if (state == State.CLOSED) {
+            job.future.completeExceptionally(failure);
+            return job.future;
+        }
+        if (packet.length > writeBuffer.capacity()) {
+            job.future.completeExceptionally(new IOException("Telegrama maior que o buffer de escrita: " + packet.length));
+            return job.future;
+        }
+        waiting.add(job);
+        reactor.execute(this::drain);
+        return job.future;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Máquina de estados (thread de I/O)
+    // --------------------------------------------------------------------------------------------
+    void handle(SelectionKey selected) {
+        try {
+            if (!selected.isValid()) {
+                return;
+            }
+            if (selected.isConnectable() && channel.finishConnect()) {
+                onConnected();
+            }
+            if (selected.isValid() && selected.isReadable()) {
+                onReadable();
+            }
+            if (selected.isValid() && selected.isWritable()) {
+                flush();
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void onConnected() throws IOException {
+        key.interestOps(SelectionKey.OP_READ);
+        state = State.COTP;
+        stateSince = System.nanoTime();
+        writeBuffer.put(S7Client.createConnectionRequest());
+        flush();
+    }
+
+    private void onReadable() throws Exception {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("Conexão encerrada pelo CLP.");
+        }
+
+        readBuffer.flip();
+        while (readBuffer.remaining() >= 4) {
+            int start = readBuffer.position();
+            if (readBuffer.get(start) != 0x03) {
+                throw new IOException(String.format("Cabeçalho TPKT inválido (versão 0x%02X).", readBuffer.get(start)));
+            }
+            int frameLength = readBuffer.getShort(start + 2) & 0xFFFF;
+            if (frameLength < 7) {
+                throw new IOException("Tamanho de telegrama inválido: " + frameLength);
+            }
+            if (frameLength > readBuffer.capacity()) {
+                growReadBuffer(frameLength);
+                return;
+            }
+            if (readBuffer.remaining() < frameLength) {
+                break;
+            }
+            onFrame(readBuffer.slice(start, frameLength));
+            readBuffer.position(start + frameLength);
+        }
+        readBuffer.compact();
+    }
+
+    private void growReadBuffer(int frameLength) {
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(frameLength, readBuffer.capacity() * 2));
+        larger.put(readBuffer);
+        readBuffer = larger;
+    }
+
+    private void onFrame(ByteBuffer frame) throws Exception {
+        switch (state) {
+            case COTP -> {
+                if (frame.limit() < 6 || (frame.get(5) & 0xFF) != 0xD0) {
+                    throw new IOException("CLP recusou a conexão COTP.");
+                }
+                state = State.SETUP;
+                stateSince = System.nanoTime();
+                writeBuffer.put(S7Client.createSetupCommunication(requestedAmq));
+                flush();
+            }
+            case SETUP -> {
+                int[] negotiated = S7Client.parseSetupResponse(frame);
+                maxAmqCalling = Math.max(1, negotiated[0]);
+                pduSize = negotiated[2];
+                state = State.READY;
+                connected.complete(this);
+                drain();
+            }
+            case READY -> {
+                int reference = frame.getShort(11) & 0xFFFF;
+                Job<?> job = inFlight.remove(reference);
+                if (job == null) {
+                    System.err.println("Resposta S7 com PDU Reference desconhecida: " + reference);
+                    return;
+                }
+                job.complete(frame);
+                drain();
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Envia jobs da fila enquanto houver vaga dentro do Max AMQ e espaço no buffer
+    private void drain() {
+        if (state != State.READY) {
+            if (state == State.CLOSED) {
+                failPending();
+            }
+            return;
+        }
+        try {
+            while (inFlight.size() < maxAmqCalling) {
+                Job<?> job = waiting.peek();
+                if (job == null || job.packet.length > writeBuffer.remaining()) {
+                    break;
+                }
+                waiting.poll();
+                int reference = nextReference();
+                job.packet[11] = (byte) ((reference >> 8) & 0xFF);
+                job.packet[12] = (byte) (reference & 0xFF);
+                job.sentAt = System.nanoTime();
+                inFlight.put(reference, job);
+                writeBuffer.put(job.packet);
+            }
+            flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private int nextReference() {
+        int reference;
+        do {
+            reference = nextReference;
+            nextReference = nextReference == 0xFFFF ? 1 : nextReference + 1;
+        } while (inFlight.containsKey(reference));
+        return reference;
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        channel.write(writeBuffer);
+        writeBuffer.compact();
+
+        int ops = SelectionKey.OP_READ;
+        if (writeBuffer.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    void checkTimeouts(long now) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        if (state != State.READY) {
+            if (now - stateSince > connectTimeoutNanos) {
+                fail(new IOException("Timeout ao conectar ao CLP " + ipAddress + ":" + port));
+            }
+            return;
+        }
+        for (Job<?> job : inFlight.values()) {
+            if (now - job.sentAt > readTimeoutNanos) {
+                fail(new IOException("CLP " + ipAddress + ":" + port + " não respondeu dentro do timeout de leitura."));
+                return;
+            }
+        }
+    }
+
+    void fail(Exception error) {
+        if (state == State.CLOSED) {
+            return;
+        }
+        failure = error;
+        state = State.CLOSED;
+        reactor.detach(this);
+        try {
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao encerrar a conexão: " + e.getMessage());
+        }
+        connected.completeExceptionally(error);
+        failPending();
+    }
+
+    private void failPending() {
+        inFlight.values().forEach(job -> job.future.completeExceptionally(failure));
+        inFlight.clear();
+        Job<?> job;
+        while ((job = waiting.poll()) != null) {
+            job.future.completeExceptionally(failure);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.clpmonitor.plc;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Thread de I/O com um Selector: atende todas as conexões S7 registradas nela.
+ * Tarefas vindas de outras threads (registro de canal, envio de jobs) entram
+ * numa fila e são executadas no próprio loop, de modo que o estado de cada
+ * conexão só é tocado por esta thread.
+ */
+final class S7NioReactor implements Runnable {
+
+    // Intervalo máximo do select(), usado também para verificar timeouts
+    private static final long SELECT_TIMEOUT_MS = 50;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<S7NioConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    S7NioReactor(String name) throws IOException {
+        this.selector = Selector.open();
+        this.thread = new Thread(this, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void attach(S7NioConnection connection) {
+        connections.add(connection);
+    }
+
+    void detach(S7NioConnection connection) {
+        connections.remove(connection);
+    }
+
+    int connectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MS);
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    ((S7NioConnection) key.attachment()).handle(key);
+                }
+
+                long now = System.nanoTime();
+                connections.forEach(connection -> connection.checkTimeouts(now));
+
+            } catch (Exception e) {
+                System.err.println("Erro no loop de I/O S7: " + e.getMessage());
+            }
+        }
+    }
+
+    void shutdown() {
+        execute(() -> {
+            connections.forEach(connection -> connection.fail(new IOException("Transporte S7 encerrado.")));
+            running = false;
+        });
+        try {
+            thread.join(1000);
+            selector.close();
+        } catch (Exception e) {
+            System.err.println("Erro ao encerrar o loop de I/O S7: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.clpmonitor.plc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Transporte S7 não bloqueante: poucas threads de I/O (uma por Selector)
+ * atendem dezenas de CLPs. Cada CLP (ip:porta) tem uma S7NioConnection
+ * reaproveitada enquanto estiver aberta; conexões novas são distribuídas
+ * para o loop com menos conexões.
+ *
+ * Usado pelo ScanEngine com clp.scan.transport=nio. As threads só são criadas
+ * no primeiro connect(), então o componente não custa nada enquanto o scanner
+ * usar o transporte bloqueante (padrão).
+ */
+@Component
+public class S7NioTransport {
+
+    @Value("${clp.nio.io-threads:1}")
+    private int ioThreads = 1;
+
+    @Value("${clp.s7.connect-timeout-ms:" + S7Client.DEFAULT_CONNECT_TIMEOUT + "}")
+    private int connectTimeoutMs = S7Client.DEFAULT_CONNECT_TIMEOUT;
+
+    @Value("${clp.s7.read-timeout-ms:" + S7Client.DEFAULT_READ_TIMEOUT + "}")
+    private int readTimeoutMs = S7Client.DEFAULT_READ_TIMEOUT;
+
+    @Value("${clp.s7.max-amq:" + S7Client.DEFAULT_MAX_AMQ + "}")
+    private int maxAmq = S7Client.DEFAULT_MAX_AMQ;
+
+    private final Map<String, CompletableFuture<S7NioConnection>> connections = new ConcurrentHashMap<>();
+    private volatile S7NioReactor[] reactors;
+
+    public S7NioTransport() {
+    }
+
+    // Uso fora do Spring (benchmarks, testes de carga)
+    public S7NioTransport(int ioThreads, int connectTimeoutMs, int readTimeoutMs) {
+        this.ioThreads = ioThreads;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public S7NioTransport(int ioThreads, int connectTimeoutMs, int readTimeoutMs, int maxAmq) {
+        this(ioThreads, connectTimeoutMs, readTimeoutMs);
+        this.maxAmq = maxAmq;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Retorna a conexão aberta com o CLP, abrindo uma nova quando necessário
+    // --------------------------------------------------------------------------------------------
+    public CompletableFuture<S7NioConnection> connect(String ipAddress, int port) {
+        String key = PlcConnectionPool.key(ipAddress, port);
+        return connections.compute(key, (k, existing) -> {
+            if (existing != null && !existing.isCompletedExceptionally()
+                    && (!existing.isDone() || existing.join().isOpen())) {
+                return existing;
+            }
+            return new S7NioConnection(ipAddress.trim(), port, leastLoadedReactor(), connectTimeoutMs, readTimeoutMs,
+                    maxAmq).open();
+        });
+    }
+
+    private S7NioReactor leastLoadedReactor() {
+        S7NioReactor[] current = reactors;
+        if (current == null) {
+            synchronized (this) {
+                current = reactors;
+                if (current == null) {
+                    current = new S7NioReactor[Math.max(1, ioThreads)];
+                    for (int i = 0; i < current.length; i++) {
+                        try {
+                            current[i] = new S7NioReactor("s7-nio-" + i);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Falha ao abrir o Selector de I/O S7", e);
+                        }
+                    }
+                    reactors = current;
+                }
+            }
+        }
+
+        S7NioReactor selected = current[0];
+        for (S7NioReactor reactor : current) {
+            if (reactor.connectionCount() < selected.connectionCount()) {
+                selected = reactor;
+            }
+        }
+        return selected;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        S7NioReactor[] current = reactors;
+        reactors = null;
+        connections.clear();
+        if (current != null) {
+            for (S7NioReactor reactor : current) {
+                reactor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.clpmonitor.plc;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.example.clpmonitor.util.VirtualThreads;
+
+/*
+ * Envio em pipeline de telegramas S7 numa conexão já estabelecida.
+ *
+ * Cada job recebe uma PDU Reference única (bytes 11-12 do telegrama) e até
+ * "Max AMQ" jobs ficam pendentes ao mesmo tempo. Uma thread receptora lê as
+ * respostas e completa o CompletableFuture do job com a mesma referência.
+ * Jobs acima do limite aguardam numa fila e são enviados à medida que as
+ * respostas chegam.
+ */
+final class S7Pipeline implements Runnable {
+
+    private static final class PendingJob {
+        final byte[] packet;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        PendingJob(byte[] packet) {
+            this.packet = packet;
+        }
+    }
+
+    private final S7Client client;
+    private final int maxInFlight;
+    private final Map<Integer, PendingJob> inFlight = new ConcurrentHashMap<>();
+    private final Queue<PendingJob> waiting = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final Thread receiver;
+    private int nextReference = 1;
+    private volatile Exception failure;
+
+    S7Pipeline(S7Client client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.receiver = VirtualThreads.factory("s7-receiver-" + client.getPlcIpAddress()).newThread(this);
+    }
+
+    void start() {
+        receiver.start();
+    }
+
+    CompletableFuture<byte[]> submit(byte[] packet) {
+        PendingJob job = new PendingJob(packet);
+        Exception error = failure;
+        if (error != null) {
+            job.future.completeExceptionally(error);
+            return job.future;
+        }
+        waiting.add(job);
+        drain();
+        // A falha pode ter ocorrido entre a verificação e o enfileiramento
+        if (failure != null) {
+            failPending();
+        }
+        return job.future;
+    }
+
+    // Envia jobs da fila enquanto houver vaga dentro do Max AMQ negociado
+    private void drain() {
+        sendLock.lock();
+        try {
+            while (failure == null && inFlight.size() < maxInFlight) {
+                PendingJob job = waiting.poll();
+                if (job == null) {
+                    return;
+                }
+                int reference = nextReference();
+                job.packet[11] = (byte) ((reference >> 8) & 0xFF);
+                job.packet[12] = (byte) (reference & 0xFF);
+                inFlight.put(reference, job);
+                try {
+                    client.writeFrame(job.packet);
+                } catch (IOException e) {
+                    fail(e);
+                    client.disconnect();
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private int nextReference() {
+        int reference;
+        do {
+            reference = nextReference;
+            nextReference = nextReference == 0xFFFF ? 1 : nextReference + 1;
+        } while (inFlight.containsKey(reference));
+        return reference;
+    }
+
+    @Override
+    public void run() {
+        while (failure == null) {
+            try {
+                byte[] frame = client.readFrameCopy();
+                if (frame.length < 13) {
+                    continue;
+                }
+                int reference = ((frame[11] & 0xFF) << 8) | (frame[12] & 0xFF);
+                PendingJob job = inFlight.remove(reference);
+                if (job == null) {
+                    System.err.println("Resposta S7 com PDU Reference desconhecida: " + reference);
+                    continue;
+                }
+                job.future.complete(frame);
+                drain();
+            } catch (SocketTimeoutException e) {
+                // Sem jobs pendentes o timeout é apenas ociosidade da conexão
+                if (!inFlight.isEmpty()) {
+                    fail(new IOException("CLP não respondeu dentro do timeout de leitura.", e));
+                    client.disconnect();
+                }
+            } catch (IOException e) {
+                // Se o pipeline já foi encerrado pelo disconnect(), o erro é esperado
+                if (failure == null) {
+                    fail(e);
+                    client.disconnect();
+                }
+            }
+        }
+    }
+
+    // Encerra o pipeline: todos os jobs pendentes e em fila recebem o erro
+    void fail(Exception error) {
+        if (failure == null) {
+            failure = error;
+        }
+        failPending();
+    }
+
+    private void failPending() {
+        Iterator<PendingJob> iterator = inFlight.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().future.completeExceptionally(failure);
+            iterator.remove();
+        }
+        PendingJob job;
+        while ((job = waiting.poll()) != null) {
+            job.future.completeExceptionally(failure);
+        }
+    }
+}
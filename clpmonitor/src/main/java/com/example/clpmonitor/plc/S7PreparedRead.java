@@ -0,0 +1,153 @@
+package com.example.clpmonitor.plc;
+
+import java.util.List;
+
+/*
+ * Leitura pré-montada para varreduras de alta frequência.
+ *
+ * O telegrama é montado uma única vez; a cada execução o S7Client envia o
+ * template, lê a resposta no buffer da conexão e copia os dados de cada item
+ * para buffers alocados aqui na criação. Os valores saem por acessores
+ * primitivos (sem boxing), então uma varredura não gera lixo.
+ *
+ * Não é thread-safe: cada thread de varredura deve ter os próprios objetos.
+ */
+public final class S7PreparedRead {
+
+    // Posição do primeiro item no template: TPKT (4) + COTP (3) + S7 Header (10) + Function + Item Count
+    private static final int FIRST_ITEM = 19;
+
+    final byte[] request;
+    private final List<S7ReadItem> items;
+    private final byte[][] data;
+    private final int[] lengths;
+    private final int[] returnCodes;
+
+    S7PreparedRead(List<S7ReadItem> items) {
+        this.items = List.copyOf(items);
+        this.request = S7Client.encodeReadRequest(this.items);
+        this.data = new byte[items.size()][];
+        this.lengths = new int[items.size()];
+        this.returnCodes = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            data[i] = new byte[items.get(i).getSize()];
+        }
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public S7ReadItem getItem(int index) {
+        return items.get(index);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Altera o byte offset de um item direto no template (mesmo DB, tipo e tamanho)
+    // --------------------------------------------------------------------------------------------
+    public void setOffset(int index, int offset) {
+        int pos = FIRST_ITEM + 12 * index + 9;
+        int bit = request[pos + 2] & 0x07;
+        int startAddress = (offset << 3) | bit;
+        request[pos] = (byte) ((startAddress >> 16) & 0xFF);
+        request[pos + 1] = (byte) ((startAddress >> 8) & 0xFF);
+        request[pos + 2] = (byte) (startAddress & 0xFF);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Copia os dados de cada item da resposta (mesmo layout de S7Client.parseReadResponse)
+    // --------------------------------------------------------------------------------------------
+    void decode(byte[] response, int length) throws Exception {
+
+        if (length < 21) {
+            throw new Exception("Resposta de leitura incompleta (" + length + " bytes).");
+        }
+        if (response[17] != 0 || response[18] != 0) {
+            throw new Exception(String.format("CLP recusou a leitura (error class 0x%02X, code 0x%02X)",
+                    response[17] & 0xFF, response[18] & 0xFF));
+        }
+
+        int itemCount = response[20] & 0xFF;
+        if (itemCount != data.length) {
+            throw new Exception("Resposta com " + itemCount + " itens, esperados " + data.length + ".");
+        }
+
+        int pos = 19 + (((response[13] & 0xFF) << 8) | (response[14] & 0xFF));
+        for (int i = 0; i < itemCount; i++) {
+            returnCodes[i] = response[pos] & 0xFF;
+            int transportSize = response[pos + 1] & 0xFF;
+            int dataLength = ((response[pos + 2] & 0xFF) << 8) | (response[pos + 3] & 0xFF);
+            pos += 4;
+
+            if (transportSize == 0x03 || transportSize == 0x04 || transportSize == 0x05) {
+                dataLength = (dataLength + 7) >> 3;
+            }
+            if (pos + dataLength > length) {
+                throw new Exception("Resposta de leitura truncada no item " + i + ".");
+            }
+
+            lengths[i] = Math.min(dataLength, data[i].length);
+            System.arraycopy(response, pos, data[i], 0, lengths[i]);
+
+            pos += dataLength;
+            if ((dataLength & 0x01) == 1 && i < itemCount - 1) {
+                pos++;
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Acessores primitivos
+    // --------------------------------------------------------------------------------------------
+    public boolean isSuccess(int index) {
+        return returnCodes[index] == S7ReadResult.RETURN_CODE_SUCCESS;
+    }
+
+    public int getReturnCode(int index) {
+        return returnCodes[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    // INT (16 bits com sinal)
+    public int getInt(int index) {
+        byte[] d = data[index];
+        return (short) (((d[0] & 0xFF) << 8) | (d[1] & 0xFF));
+    }
+
+    // DINT (32 bits com sinal)
+    public int getDInt(int index) {
+        byte[] d = data[index];
+        return ((d[0] & 0xFF) << 24) | ((d[1] & 0xFF) << 16) | ((d[2] & 0xFF) << 8) | (d[3] & 0xFF);
+    }
+
+    public float getFloat(int index) {
+        return Float.intBitsToFloat(getDInt(index));
+    }
+
+    // Decodificação pelo codec do tipo declarado no item (WORD, DWORD, TIME...)
+    public long getLong(int index) {
+        return items.get(index).getDataType().decodeLong(data[index], 0);
+    }
+
+    public double getDouble(int index) {
+        return items.get(index).getDataType().decodeDouble(data[index], 0);
+    }
+
+    public byte getByte(int index) {
+        return data[index][0];
+    }
+
+    public boolean getBoolean(int index) {
+        return (data[index][0] & 0x01) == 1;
+    }
+
+    // Copia os bytes lidos para um buffer do chamador; retorna a quantidade copiada
+    public int copyBytes(int index, byte[] destination, int destinationOffset) {
+        int count = Math.min(lengths[index], destination.length - destinationOffset);
+        System.arraycopy(data[index], 0, destination, destinationOffset, count);
+        return count;
+    }
+}
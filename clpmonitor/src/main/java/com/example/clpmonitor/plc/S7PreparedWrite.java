@@ -0,0 +1,55 @@
+package com.example.clpmonitor.plc;
+
+/*
+ * Escrita pré-montada: o telegrama WriteVar é criado uma vez e o valor é
+ * gravado direto na área de dados do template antes de cada execução.
+ * Suporta todos os tipos exceto STRING (cujo cabeçalho muda com o texto).
+ *
+ * Não é thread-safe: cada thread deve ter os próprios objetos.
+ */
+public final class S7PreparedWrite {
+
+    // Início dos dados no WriteVar de um item: cabeçalhos (31) + Return Code, Transport Size, Length
+    private static final int DATA = 35;
+
+    final byte[] request;
+    private final int size;
+
+    S7PreparedWrite(int db, int offset, int bit, int size, S7DataType type) {
+        if (type == S7DataType.STRING) {
+            throw new IllegalArgumentException("Tipo não suportado em escrita pré-montada: " + type);
+        }
+        this.size = type.size(size);
+        this.request = S7Client.encodeWriteRequest(db, offset, bit, this.size, type, type.zero(this.size));
+    }
+
+    public S7PreparedWrite setInt(int value) {
+        request[DATA] = (byte) ((value >> 8) & 0xFF);
+        request[DATA + 1] = (byte) (value & 0xFF);
+        return this;
+    }
+
+    public S7PreparedWrite setFloat(float value) {
+        int bits = Float.floatToIntBits(value);
+        request[DATA] = (byte) (bits >> 24);
+        request[DATA + 1] = (byte) (bits >> 16);
+        request[DATA + 2] = (byte) (bits >> 8);
+        request[DATA + 3] = (byte) bits;
+        return this;
+    }
+
+    public S7PreparedWrite setByte(byte value) {
+        request[DATA] = value;
+        return this;
+    }
+
+    public S7PreparedWrite setBoolean(boolean value) {
+        request[DATA] = (byte) (value ? 0x01 : 0x00);
+        return this;
+    }
+
+    public S7PreparedWrite setBytes(byte[] source, int sourceOffset, int count) {
+        System.arraycopy(source, sourceOffset, request, DATA, Math.min(count, size));
+        return this;
+    }
+}
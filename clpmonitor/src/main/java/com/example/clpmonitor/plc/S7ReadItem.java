@@ -0,0 +1,89 @@
+package com.example.clpmonitor.plc;
+
+/*
+ * Item de leitura (ReadVar) endereçado em um DB do CLP.
+ * Vários itens podem ser empacotados numa única requisição S7.
+ * O tipo é resolvido para S7DataType na criação do item.
+ */
+public class S7ReadItem {
+
+    private final int db;
+    private final int offset;
+    private final int bit;
+    private final int size;
+    private final S7DataType dataType;
+
+    public S7ReadItem(int db, int offset, int bit, int size, String type) {
+        this(db, offset, bit, size, S7DataType.of(type));
+    }
+
+    public S7ReadItem(int db, int offset, int bit, int size, S7DataType dataType) {
+        this.db = db;
+        this.offset = offset;
+        this.bit = bit;
+        this.size = dataType.size(size);
+        this.dataType = dataType;
+    }
+
+    // Tipos de tamanho fixo (INTEGER, DINT, WORD, TIME, DATE_AND_TIME...)
+    public static S7ReadItem of(int db, int offset, S7DataType dataType) {
+        return new S7ReadItem(db, offset, 0, 0, dataType);
+    }
+
+    public static S7ReadItem ofInt(int db, int offset) {
+        return of(db, offset, S7DataType.INTEGER);
+    }
+
+    public static S7ReadItem ofFloat(int db, int offset) {
+        return of(db, offset, S7DataType.FLOAT);
+    }
+
+    public static S7ReadItem ofByte(int db, int offset) {
+        return of(db, offset, S7DataType.BYTE);
+    }
+
+    public static S7ReadItem ofBit(int db, int offset, int bit) {
+        return new S7ReadItem(db, offset, bit, 1, S7DataType.BOOLEAN);
+    }
+
+    public static S7ReadItem ofBlock(int db, int offset, int size) {
+        return new S7ReadItem(db, offset, 0, size, S7DataType.BLOCK);
+    }
+
+    public static S7ReadItem ofString(int db, int offset, int size) {
+        return new S7ReadItem(db, offset, 0, size, S7DataType.STRING);
+    }
+
+    public static S7ReadItem ofRealArray(int db, int offset, int count) {
+        return new S7ReadItem(db, offset, 0, count * 4, S7DataType.REAL_ARRAY);
+    }
+
+    public int getDb() {
+        return db;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getType() {
+        return dataType.key();
+    }
+
+    public S7DataType getDataType() {
+        return dataType;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DB%d.%d.%d (%s, %d bytes)", db, offset, bit, getType(), size);
+    }
+}
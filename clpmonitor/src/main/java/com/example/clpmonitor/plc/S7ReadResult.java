@@ -0,0 +1,60 @@
+package com.example.clpmonitor.plc;
+
+/*
+ * Resultado de um item de leitura: código de retorno do CLP e dados brutos.
+ * Return code 0xFF indica sucesso; os demais códigos vêm da especificação S7
+ * (0x05 endereço inválido, 0x06 tipo não suportado, 0x0A objeto inexistente...).
+ */
+public class S7ReadResult {
+
+    public static final int RETURN_CODE_SUCCESS = 0xFF;
+
+    private final S7ReadItem item;
+    private final int returnCode;
+    private final byte[] data;
+
+    public S7ReadResult(S7ReadItem item, int returnCode, byte[] data) {
+        this.item = item;
+        this.returnCode = returnCode;
+        this.data = data;
+    }
+
+    public S7ReadItem getItem() {
+        return item;
+    }
+
+    public int getReturnCode() {
+        return returnCode;
+    }
+
+    public boolean isSuccess() {
+        return returnCode == RETURN_CODE_SUCCESS;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    // Converte os bytes lidos para o tipo declarado no item
+    public Object getValue() {
+        checkSuccess();
+        return item.getDataType().decode(data, 0, item.getSize());
+    }
+
+    // Acessores sem boxing para tipos numéricos
+    public long getLong() {
+        checkSuccess();
+        return item.getDataType().decodeLong(data, 0);
+    }
+
+    public double getDouble() {
+        checkSuccess();
+        return item.getDataType().decodeDouble(data, 0);
+    }
+
+    private void checkSuccess() {
+        if (!isSuccess()) {
+            throw new IllegalStateException(String.format("Leitura de %s falhou (return code 0x%02X)", item, returnCode));
+        }
+    }
+}
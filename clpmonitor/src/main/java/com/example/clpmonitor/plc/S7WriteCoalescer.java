@@ -0,0 +1,173 @@
+package com.example.clpmonitor.plc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Junta as escritas pendentes de um CLP no menor conjunto de itens equivalente.
+ *
+ * As escritas de byte (todos os tipos menos BOOLEAN) são aplicadas, na ordem
+ * de chegada, sobre uma imagem em memória de cada DB: a última escrita de cada
+ * byte vence, e cada trecho contínuo de bytes escritos vira um único item
+ * (BLOCK, ou o próprio item quando o trecho é exatamente uma escrita).
+ * Escritas de bit num byte já escrito entram na imagem; um byte escrito depois
+ * descarta os bits pendentes dele; as demais ficam como itens BOOLEAN, com o
+ * último valor de cada bit.
+ *
+ * targets[i] é o item de saída que leva os dados da escrita pendente i: o
+ * return code dele vale para ela (inclusive quando o valor foi substituído).
+ */
+final class S7WriteCoalescer {
+
+    final List<S7WriteItem> items = new ArrayList<>();
+    final int[] targets;
+
+    S7WriteCoalescer(List<S7WriteItem> pending) {
+        targets = new int[pending.size()];
+
+        // Faixa de cada DB tocada por escritas de byte
+        Map<Integer, DbImage> images = new TreeMap<>();
+        for (S7WriteItem item : pending) {
+            if (!item.getDataType().isBit()) {
+                images.computeIfAbsent(item.getDb(), DbImage::new).extend(item.getOffset(), item.getWireSize());
+            }
+        }
+        images.values().forEach(DbImage::allocate);
+
+        // Aplica na ordem de chegada; bits fora da imagem ficam em "bits" (endereço -> última escrita)
+        Map<Long, Integer> bits = new LinkedHashMap<>();
+        for (int i = 0; i < pending.size(); i++) {
+            S7WriteItem item = pending.get(i);
+            DbImage image = images.get(item.getDb());
+            if (!item.getDataType().isBit()) {
+                image.write(item);
+                int start = item.getOffset();
+                int end = start + item.getWireSize();
+                for (Iterator<Map.Entry<Long, Integer>> it = bits.entrySet().iterator(); it.hasNext();) {
+                    S7WriteItem bit = pending.get(it.next().getValue());
+                    if (bit.getDb() == item.getDb() && bit.getOffset() >= start && bit.getOffset() < end) {
+                        it.remove();
+                    }
+                }
+            } else if (image != null && image.isWritten(item.getOffset())) {
+                image.writeBit(item.getOffset(), item.getBit(), Boolean.TRUE.equals(item.getValue()));
+            } else {
+                bits.put(bitKey(item), i);
+            }
+        }
+
+        // Um item por trecho contínuo de cada DB, depois os bits restantes
+        List<int[]> runs = new ArrayList<>();
+        for (DbImage image : images.values()) {
+            image.runs(runs);
+        }
+        int[] writers = new int[runs.size()];
+        int[] lastWriter = new int[runs.size()];
+        int[] runOf = new int[pending.size()];
+        for (int i = 0; i < pending.size(); i++) {
+            S7WriteItem item = pending.get(i);
+            DbImage image = images.get(item.getDb());
+            Integer bit = item.getDataType().isBit() ? bits.get(bitKey(item)) : null;
+            runOf[i] = bit == null && image != null && image.isWritten(item.getOffset()) ? image.runAt(item.getOffset()) : -1;
+            if (runOf[i] >= 0) {
+                writers[runOf[i]]++;
+                lastWriter[runOf[i]] = i;
+            }
+        }
+
+        for (int r = 0; r < runs.size(); r++) {
+            int[] run = runs.get(r);
+            S7WriteItem only = pending.get(lastWriter[r]);
+            if (writers[r] == 1 && !only.getDataType().isBit() && only.getWireSize() == run[2]) {
+                items.add(only);
+            } else {
+                DbImage image = images.get(run[0]);
+                items.add(new S7WriteItem(run[0], run[1], 0, run[2], S7DataType.BLOCK, image.copy(run[1], run[2])));
+            }
+        }
+
+        Map<Long, Integer> bitItems = new LinkedHashMap<>();
+        for (int index : bits.values()) {
+            bitItems.put(bitKey(pending.get(index)), items.size());
+            items.add(pending.get(index));
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            targets[i] = runOf[i] >= 0 ? runOf[i] : bitItems.get(bitKey(pending.get(i)));
+        }
+    }
+
+    private static long bitKey(S7WriteItem item) {
+        return ((long) item.getDb() << 32) | ((long) item.getOffset() << 3) | (item.getBit() & 0x07);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Bytes de um DB entre o menor e o maior endereço escrito, com o mapa do que foi escrito
+    // --------------------------------------------------------------------------------------------
+    private static final class DbImage {
+        final int db;
+        int start = Integer.MAX_VALUE;
+        int end;
+        byte[] data;
+        BitSet written;
+        int[] runIndex;
+
+        DbImage(int db) {
+            this.db = db;
+        }
+
+        void extend(int offset, int length) {
+            start = Math.min(start, offset);
+            end = Math.max(end, offset + length);
+        }
+
+        void allocate() {
+            data = new byte[end - start];
+            written = new BitSet(data.length);
+            runIndex = new int[data.length];
+        }
+
+        void write(S7WriteItem item) {
+            ByteBuffer buffer = ByteBuffer.wrap(data, item.getOffset() - start, item.getWireSize());
+            item.getDataType().encode(item.getValue(), buffer, item.getSize());
+            written.set(item.getOffset() - start, item.getOffset() - start + item.getWireSize());
+        }
+
+        boolean isWritten(int offset) {
+            return offset >= start && offset < end && written.get(offset - start);
+        }
+
+        void writeBit(int offset, int bit, boolean value) {
+            int mask = 1 << (bit & 0x07);
+            data[offset - start] = (byte) (value ? data[offset - start] | mask : data[offset - start] & ~mask);
+        }
+
+        // Acrescenta {db, offset, tamanho} de cada trecho contínuo e guarda o índice do trecho por byte
+        void runs(List<int[]> runs) {
+            for (int from = written.nextSetBit(0); from >= 0; from = written.nextSetBit(from)) {
+                int to = written.nextClearBit(from);
+                for (int i = from; i < to; i++) {
+                    runIndex[i] = runs.size();
+                }
+                runs.add(new int[] { db, start + from, to - from });
+                from = to;
+            }
+        }
+
+        int runAt(int offset) {
+            return runIndex[offset - start];
+        }
+
+        byte[] copy(int offset, int length) {
+            byte[] copy = new byte[length];
+            System.arraycopy(data, offset - start, copy, 0, length);
+            return copy;
+        }
+    }
+}
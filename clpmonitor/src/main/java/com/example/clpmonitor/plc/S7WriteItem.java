@@ -0,0 +1,68 @@
+package com.example.clpmonitor.plc;
+
+/*
+ * Item de escrita (WriteVar) endereçado em um DB do CLP, com o valor já
+ * convertido para o tipo (ver S7DataType.parse). Vários itens podem ser
+ * empacotados numa única requisição S7.
+ */
+public class S7WriteItem {
+
+    private final int db;
+    private final int offset;
+    private final int bit;
+    private final int size;
+    private final S7DataType dataType;
+    private final Object value;
+
+    public S7WriteItem(int db, int offset, int bit, int size, String type, Object value) {
+        this(db, offset, bit, size, S7DataType.of(type), value);
+    }
+
+    public S7WriteItem(int db, int offset, int bit, int size, S7DataType dataType, Object value) {
+        this.db = db;
+        this.offset = offset;
+        this.bit = bit;
+        this.size = dataType.size(size);
+        this.dataType = dataType;
+        this.value = value;
+        dataType.check(value, this.size);
+    }
+
+    public int getDb() {
+        return db;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Bytes do item no telegrama (STRING inclui os 2 bytes de cabeçalho)
+    public int getWireSize() {
+        return dataType.wireSize(size);
+    }
+
+    public String getType() {
+        return dataType.key();
+    }
+
+    public S7DataType getDataType() {
+        return dataType;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DB%d.%d.%d (%s, %d bytes)", db, offset, bit, getType(), size);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.clpmonitor.plc;
+
+/*
+ * Resultado de um item de escrita: código de retorno do CLP para o item.
+ * Return code 0xFF indica sucesso (mesmos códigos do S7ReadResult).
+ */
+public class S7WriteResult {
+
+    private final S7WriteItem item;
+    private final int returnCode;
+
+    public S7WriteResult(S7WriteItem item, int returnCode) {
+        this.item = item;
+        this.returnCode = returnCode;
+    }
+
+    public S7WriteItem getItem() {
+        return item;
+    }
+
+    public int getReturnCode() {
+        return returnCode;
+    }
+
+    public boolean isSuccess() {
+        return returnCode == S7ReadResult.RETURN_CODE_SUCCESS;
+    }
+
+    @Override
+    public String toString() {
+        return item + (isSuccess() ? " ok" : String.format(" falhou (return code 0x%02X)", returnCode));
+    }
+}
@@ -0,0 +1,577 @@
+package com.example.clpmonitor.plc.emulator;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.example.clpmonitor.util.VirtualThreads;
+
+/*
+ * CLP S7 emulado sobre TCP (TPKT/COTP/S7comm), para testes de integração e de
+ * carga sem uma CPU real.
+ *
+ * Atende o handshake COTP, o Setup Communication (negocia PDU e Max AMQ pelo
+ * menor valor entre o pedido e o configurado), ReadVar (0x04) e WriteVar
+ * (0x05) com vários itens, sobre DBs definidas com defineDb(). Códigos de
+ * retorno por item seguem o CLP real:
+ *   0xFF sucesso | 0x0A DB/área inexistente | 0x05 endereço fora da DB |
+ *   0x06 transport size não suportado | 0x07 tamanho dos dados inconsistente
+ * Telegramas (pedido ou resposta) maiores que a PDU negociada recebem erro
+ * no cabeçalho (classe 0x85), como numa CPU real.
+ *
+ * Falhas injetáveis, lidas a cada telegrama (podem mudar com o emulador rodando):
+ *   latência aleatória entre latencyMinMs e latencyMaxMs, descarte da resposta
+ *   (o cliente cai no timeout), desconexão, erro de cabeçalho e recusa do COTP.
+ *
+ * Cada conexão tem uma thread leitora (virtual no Java 21+). Depois do setup,
+ * cada job roda na sua própria thread, até o Max AMQ (calling) negociado ao
+ * mesmo tempo, como numa CPU real: a latência injetada dos jobs se sobrepõe e
+ * as respostas podem sair fora de ordem (o cliente casa pela PDU Reference).
+ * Jobs acima do limite ficam no buffer do socket até abrir uma vaga.
+ */
+public class S7Emulator implements AutoCloseable {
+
+    public static final int RC_SUCCESS = 0xFF;
+    public static final int RC_ADDRESS_OUT_OF_RANGE = 0x05;
+    public static final int RC_TYPE_NOT_SUPPORTED = 0x06;
+    public static final int RC_TYPE_INCONSISTENT = 0x07;
+    public static final int RC_OBJECT_DOES_NOT_EXIST = 0x0A;
+
+    private static final int AREA_DB = 0x84;
+
+    private final String name;
+    private final int requestedPort;
+    private final Map<Integer, byte[]> dbs = new ConcurrentHashMap<>();
+    private final ReentrantLock memoryLock = new ReentrantLock();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong injectedFaults = new AtomicLong();
+    private final AtomicInteger peakJobsInFlight = new AtomicInteger();
+    private final ThreadFactory threads;
+
+    private ServerSocket server;
+    private volatile boolean running;
+
+    private volatile int maxPduSize = 480;
+    private volatile int maxAmq = 8;
+    private volatile int latencyMinMs;
+    private volatile int latencyMaxMs;
+    private volatile double dropProbability;
+    private volatile double disconnectProbability;
+    private volatile double errorProbability;
+    private volatile boolean refuseConnections;
+
+    // port = 0 escolhe uma porta livre (ver getPort() depois do start())
+    public S7Emulator(String name, int port) {
+        this.name = name;
+        this.requestedPort = port;
+        this.threads = VirtualThreads.factory("s7-emulator-" + name);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Memória
+    // --------------------------------------------------------------------------------------------
+    public void defineDb(int db, int size) {
+        dbs.put(db, new byte[size]);
+    }
+
+    public byte[] readDb(int db, int offset, int length) {
+        memoryLock.lock();
+        try {
+            byte[] memory = dbs.get(db);
+            if (memory == null || offset < 0 || offset + length > memory.length) {
+                throw new IllegalArgumentException("Área inválida: DB" + db + "." + offset + " (" + length + " bytes)");
+            }
+            byte[] copy = new byte[length];
+            System.arraycopy(memory, offset, copy, 0, length);
+            return copy;
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    public void writeDb(int db, int offset, byte[] data) {
+        memoryLock.lock();
+        try {
+            byte[] memory = dbs.get(db);
+            if (memory == null || offset < 0 || offset + data.length > memory.length) {
+                throw new IllegalArgumentException("Área inválida: DB" + db + "." + offset + " (" + data.length + " bytes)");
+            }
+            System.arraycopy(data, 0, memory, offset, data.length);
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Ciclo de vida
+    // --------------------------------------------------------------------------------------------
+    public void start() throws IOException {
+        server = new ServerSocket();
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort), 100);
+        running = true;
+        threads.newThread(this::acceptLoop).start();
+    }
+
+    public int getPort() {
+        return server != null ? server.getLocalPort() : requestedPort;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao encerrar o emulador " + name + ": " + e.getMessage());
+        }
+        connections.forEach(S7Emulator::closeQuietly);
+    }
+
+    // Derruba as conexões abertas sem parar o emulador (simula queda de rede/CPU)
+    public void dropConnections() {
+        connections.forEach(S7Emulator::closeQuietly);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Configuração e falhas injetadas
+    // --------------------------------------------------------------------------------------------
+    public void setMaxPduSize(int maxPduSize) {
+        this.maxPduSize = maxPduSize;
+    }
+
+    public void setMaxAmq(int maxAmq) {
+        this.maxAmq = maxAmq;
+    }
+
+    public void setLatency(int minMs, int maxMs) {
+        this.latencyMinMs = Math.max(0, minMs);
+        this.latencyMaxMs = Math.max(latencyMinMs, maxMs);
+    }
+
+    public void setDropProbability(double dropProbability) {
+        this.dropProbability = dropProbability;
+    }
+
+    public void setDisconnectProbability(double disconnectProbability) {
+        this.disconnectProbability = disconnectProbability;
+    }
+
+    public void setErrorProbability(double errorProbability) {
+        this.errorProbability = errorProbability;
+    }
+
+    public void setRefuseConnections(boolean refuseConnections) {
+        this.refuseConnections = refuseConnections;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    public long getInjectedFaultCount() {
+        return injectedFaults.get();
+    }
+
+    // Maior número de jobs atendidos ao mesmo tempo numa mesma conexão
+    public int getPeakJobsInFlight() {
+        return peakJobsInFlight.get();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Conexões
+    // --------------------------------------------------------------------------------------------
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                threads.newThread(() -> serve(socket)).start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Emulador " + name + ": erro no accept: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Session session = new Session();
+        try (socket) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (running) {
+                byte[] frame = readFrame(in);
+                if (session.slots == null || !isJob(frame)) {
+                    respond(session, out, handle(session, frame, socket));
+                    continue;
+                }
+                session.slots.acquire();
+                threads.newThread(() -> serveJob(session, frame, socket, out)).start();
+            }
+        } catch (EOFException | SocketException e) {
+            // Cliente encerrou ou a conexão foi derrubada
+        } catch (Exception e) {
+            System.err.println("Emulador " + name + ": conexão encerrada por erro: " + e.getMessage());
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void serveJob(Session session, byte[] frame, Socket socket, OutputStream out) {
+        peakJobsInFlight.accumulateAndGet(session.active.incrementAndGet(), Math::max);
+        try {
+            respond(session, out, handle(session, frame, socket));
+        } catch (EOFException | SocketException e) {
+            // Desconexão injetada ou conexão derrubada enquanto o job rodava
+        } catch (Exception e) {
+            System.err.println("Emulador " + name + ": conexão encerrada por erro: " + e.getMessage());
+            closeQuietly(socket);
+        } finally {
+            session.active.decrementAndGet();
+            session.slots.release();
+        }
+    }
+
+    private static void respond(Session session, OutputStream out, byte[] response) throws IOException {
+        if (response == null) {
+            return;
+        }
+        session.writeLock.lock();
+        try {
+            out.write(response);
+            out.flush();
+        } finally {
+            session.writeLock.unlock();
+        }
+    }
+
+    // ReadVar/WriteVar e funções desconhecidas; COTP e setup são atendidos pela thread leitora
+    private static boolean isJob(byte[] frame) {
+        return (frame[5] & 0xFF) == 0xF0 && frame.length > 17 && (frame[17] & 0xFF) != 0xF0;
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        byte[] header = new byte[4];
+        in.readFully(header);
+        if (header[0] != 0x03) {
+            throw new IOException(String.format("Cabeçalho TPKT inválido (versão 0x%02X).", header[0]));
+        }
+        int length = ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        if (length < 7) {
+            throw new IOException("Tamanho de telegrama inválido: " + length);
+        }
+        byte[] frame = new byte[length];
+        System.arraycopy(header, 0, frame, 0, 4);
+        in.readFully(frame, 4, length - 4);
+        return frame;
+    }
+
+    private static final class Session {
+        int pduSize;
+        // Vagas para jobs simultâneos (Max AMQ calling), criadas no setup
+        Semaphore slots;
+        final AtomicInteger active = new AtomicInteger();
+        final ReentrantLock writeLock = new ReentrantLock();
+    }
+
+    // Retorna a resposta ou null quando o telegrama não deve ser respondido
+    private byte[] handle(Session session, byte[] frame, Socket socket) throws IOException {
+        int cotpType = frame[5] & 0xFF;
+
+        if (cotpType == 0xE0) {
+            if (refuseConnections) {
+                injectedFaults.incrementAndGet();
+                throw new EOFException();
+            }
+            return connectionConfirm(frame);
+        }
+        if (cotpType != 0xF0 || frame.length < 17 || frame[7] != 0x32) {
+            throw new IOException(String.format("Telegrama não suportado (COTP 0x%02X).", cotpType));
+        }
+
+        requests.incrementAndGet();
+        if (injectFaults(socket)) {
+            return null;
+        }
+
+        ByteBuffer request = ByteBuffer.wrap(frame);
+        int reference = request.getShort(11) & 0xFFFF;
+        int parameterLength = request.getShort(13) & 0xFFFF;
+        int function = frame[17] & 0xFF;
+
+        if (function == 0xF0) {
+            return setupResponse(session, request, reference);
+        }
+        if (session.pduSize == 0) {
+            return errorResponse(reference, function, 0x81, 0x04);
+        }
+        if (frame.length - 7 > session.pduSize) {
+            return errorResponse(reference, function, 0x85, 0x00);
+        }
+        if (errorProbability > 0 && ThreadLocalRandom.current().nextDouble() < errorProbability) {
+            injectedFaults.incrementAndGet();
+            return errorResponse(reference, function, 0x84, 0x04);
+        }
+
+        return switch (function) {
+            case 0x04 -> readVar(session, request, reference);
+            case 0x05 -> writeVar(request, reference, 17 + parameterLength);
+            default -> errorResponse(reference, function, 0x84, 0x01);
+        };
+    }
+
+    // true quando o pedido deve ficar sem resposta (a conexão segue aberta)
+    private boolean injectFaults(Socket socket) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (disconnectProbability > 0 && random.nextDouble() < disconnectProbability) {
+            injectedFaults.incrementAndGet();
+            closeQuietly(socket);
+            throw new EOFException();
+        }
+        int min = latencyMinMs;
+        int max = latencyMaxMs;
+        if (max > 0) {
+            try {
+                Thread.sleep(min == max ? min : random.nextInt(min, max + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EOFException();
+            }
+        }
+        if (dropProbability > 0 && random.nextDouble() < dropProbability) {
+            injectedFaults.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Respostas
+    // --------------------------------------------------------------------------------------------
+    private static byte[] connectionConfirm(byte[] request) {
+        byte[] response = request.clone();
+        response[5] = (byte) 0xD0;
+        // Destination reference = source reference do pedido; source reference própria
+        response[6] = request[8];
+        response[7] = request[9];
+        response[8] = 0x00;
+        response[9] = 0x01;
+        return response;
+    }
+
+    private byte[] setupResponse(Session session, ByteBuffer request, int reference) {
+        int amqCalling = Math.min(request.getShort(19) & 0xFFFF, maxAmq);
+        int amqCalled = Math.min(request.getShort(21) & 0xFFFF, maxAmq);
+        session.pduSize = Math.min(request.getShort(23) & 0xFFFF, maxPduSize);
+        session.slots = new Semaphore(Math.max(1, amqCalling));
+
+        ByteBuffer response = ackData(reference, 8, 0, 0, 0);
+        response.put((byte) 0xF0).put((byte) 0x00)
+                .putShort((short) Math.max(1, amqCalling))
+                .putShort((short) Math.max(1, amqCalled))
+                .putShort((short) session.pduSize);
+        return response.array();
+    }
+
+    private byte[] readVar(Session session, ByteBuffer request, int reference) {
+        reads.incrementAndGet();
+        int count = request.get(18) & 0xFF;
+
+        ByteBuffer data = ByteBuffer.allocate(65535);
+        for (int i = 0; i < count; i++) {
+            int item = 19 + 12 * i;
+            int transportSize = request.get(item + 3) & 0xFF;
+            int length = request.getShort(item + 4) & 0xFFFF;
+            int db = request.getShort(item + 6) & 0xFFFF;
+            int area = request.get(item + 8) & 0xFF;
+            int address = ((request.get(item + 9) & 0xFF) << 16) | ((request.get(item + 10) & 0xFF) << 8)
+                    | (request.get(item + 11) & 0xFF);
+
+            int elementSize = elementSize(transportSize);
+            int returnCode = checkArea(area, db, address, transportSize, length * Math.max(1, elementSize));
+            if (returnCode != RC_SUCCESS) {
+                data.put((byte) returnCode).put((byte) 0x00).putShort((short) 0);
+                continue;
+            }
+
+            byte[] value;
+            int responseSize;
+            int lengthField;
+            if (transportSize == 0x01) {
+                value = new byte[]{(byte) ((readDb(db, address >> 3, 1)[0] >> (address & 0x07)) & 0x01)};
+                responseSize = 0x03;
+                lengthField = 1;
+            } else {
+                value = readDb(db, address >> 3, length * elementSize);
+                responseSize = 0x04;
+                lengthField = value.length << 3;
+            }
+            data.put((byte) RC_SUCCESS).put((byte) responseSize).putShort((short) lengthField).put(value);
+            if ((value.length & 0x01) == 1 && i < count - 1) {
+                data.put((byte) 0x00);
+            }
+        }
+
+        // Resposta não cabe na PDU negociada
+        if (12 + 2 + data.position() > session.pduSize) {
+            return errorResponse(reference, 0x04, 0x85, 0x00);
+        }
+        ByteBuffer response = ackData(reference, 2, data.position(), 0, 0);
+        response.put((byte) 0x04).put((byte) count).put(data.array(), 0, data.position());
+        return response.array();
+    }
+
+    private byte[] writeVar(ByteBuffer request, int reference, int dataStart) {
+        writes.incrementAndGet();
+        int count = request.get(18) & 0xFF;
+        byte[] returnCodes = new byte[count];
+
+        int pos = dataStart;
+        for (int i = 0; i < count; i++) {
+            int item = 19 + 12 * i;
+            int transportSize = request.get(item + 3) & 0xFF;
+            int length = request.getShort(item + 4) & 0xFFFF;
+            int db = request.getShort(item + 6) & 0xFFFF;
+            int area = request.get(item + 8) & 0xFF;
+            int address = ((request.get(item + 9) & 0xFF) << 16) | ((request.get(item + 10) & 0xFF) << 8)
+                    | (request.get(item + 11) & 0xFF);
+
+            if (pos + 4 > request.limit()) {
+                returnCodes[i] = (byte) RC_TYPE_INCONSISTENT;
+                continue;
+            }
+            int dataSize = request.get(pos + 1) & 0xFF;
+            int dataLength = request.getShort(pos + 2) & 0xFFFF;
+            pos += 4;
+            // BIT (0x03) informa 1 bit; BYTE/WORD (0x04) e INT (0x05) em bits; REAL (0x07) e OCTET STRING (0x09) em bytes
+            int bytes = dataSize == 0x03 ? 1 : (dataSize == 0x04 || dataSize == 0x05) ? dataLength >> 3 : dataLength;
+            int elementSize = elementSize(transportSize);
+            int expected = transportSize == 0x01 ? 1 : length * Math.max(1, elementSize);
+
+            int returnCode = checkArea(area, db, address, transportSize, expected);
+            if (returnCode == RC_SUCCESS && (bytes != expected || pos + bytes > request.limit())) {
+                returnCode = RC_TYPE_INCONSISTENT;
+            }
+            if (returnCode == RC_SUCCESS) {
+                byte[] value = new byte[bytes];
+                request.get(pos, value);
+                store(db, address, transportSize, value);
+            }
+            returnCodes[i] = (byte) returnCode;
+
+            pos += Math.min(bytes, Math.max(0, request.limit() - pos));
+            if ((bytes & 0x01) == 1 && i < count - 1) {
+                pos++;
+            }
+        }
+
+        ByteBuffer response = ackData(reference, 2, count, 0, 0);
+        response.put((byte) 0x05).put((byte) count).put(returnCodes);
+        return response.array();
+    }
+
+    private void store(int db, int address, int transportSize, byte[] value) {
+        memoryLock.lock();
+        try {
+            byte[] memory = dbs.get(db);
+            int offset = address >> 3;
+            if (transportSize == 0x01) {
+                int mask = 1 << (address & 0x07);
+                memory[offset] = (byte) ((value[0] & 0x01) == 1 ? memory[offset] | mask : memory[offset] & ~mask);
+            } else {
+                System.arraycopy(value, 0, memory, offset, value.length);
+            }
+        } finally {
+            memoryLock.unlock();
+        }
+    }
+
+    private int checkArea(int area, int db, int address, int transportSize, int bytes) {
+        if (area != AREA_DB || !dbs.containsKey(db)) {
+            return RC_OBJECT_DOES_NOT_EXIST;
+        }
+        if (elementSize(transportSize) == 0) {
+            return RC_TYPE_NOT_SUPPORTED;
+        }
+        int offset = address >> 3;
+        if (offset + (transportSize == 0x01 ? 1 : bytes) > dbs.get(db).length) {
+            return RC_ADDRESS_OUT_OF_RANGE;
+        }
+        return RC_SUCCESS;
+    }
+
+    // Bytes por elemento de cada transport size do item (0 = não suportado)
+    private static int elementSize(int transportSize) {
+        return switch (transportSize) {
+            case 0x01, 0x02, 0x03 -> 1;       // BIT, BYTE, CHAR
+            case 0x04, 0x05 -> 2;             // WORD, INT
+            case 0x06, 0x07, 0x08 -> 4;       // DWORD, DINT, REAL
+            default -> 0;
+        };
+    }
+
+    private static byte[] errorResponse(int reference, int function, int errorClass, int errorCode) {
+        ByteBuffer response = ackData(reference, 2, 0, errorClass, errorCode);
+        response.put((byte) function).put((byte) 0x00);
+        return response.array();
+    }
+
+    // TPKT + COTP DT + cabeçalho Ack-Data (12 bytes); o chamador completa parâmetros e dados
+    private static ByteBuffer ackData(int reference, int parameterLength, int dataLength, int errorClass, int errorCode) {
+        int length = 19 + parameterLength + dataLength;
+        ByteBuffer response = ByteBuffer.allocate(length);
+        response.put((byte) 0x03).put((byte) 0x00).putShort((short) length);
+        response.put((byte) 0x02).put((byte) 0xF0).put((byte) 0x80);
+        response.put((byte) 0x32).put((byte) 0x03).putShort((short) 0x0000).putShort((short) reference);
+        response.putShort((short) parameterLength).putShort((short) dataLength);
+        response.put((byte) errorClass).put((byte) errorCode);
+        return response;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // já encerrado
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.clpmonitor.plc.emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Sobe "count" CLPs emulados em 127.0.0.1, nas portas base-port, base-port + 1, ...
+ * para desenvolvimento e testes de carga locais (clp.emulator.enabled=true).
+ * Basta apontar clp.scan.plcs[*].ip/port ou o formulário de escrita para essas portas.
+ */
+@Component
+@ConditionalOnProperty(name = "clp.emulator.enabled", havingValue = "true")
+public class S7EmulatorLauncher {
+
+    @Value("${clp.emulator.count:1}")
+    private int count;
+
+    @Value("${clp.emulator.base-port:11102}")
+    private int basePort;
+
+    // Lista "db:tamanho" separada por vírgula
+    @Value("${clp.emulator.dbs:9:1024}")
+    private String dbs;
+
+    @Value("${clp.emulator.pdu-size:480}")
+    private int pduSize;
+
+    @Value("${clp.emulator.max-amq:8}")
+    private int maxAmq;
+
+    @Value("${clp.emulator.latency-min-ms:0}")
+    private int latencyMinMs;
+
+    @Value("${clp.emulator.latency-max-ms:0}")
+    private int latencyMaxMs;
+
+    private final List<S7Emulator> emulators = new ArrayList<>();
+
+    @PostConstruct
+    public void start() throws Exception {
+        for (int i = 0; i < count; i++) {
+            S7Emulator emulator = new S7Emulator("plc" + i, basePort + i);
+            for (String db : dbs.split(",")) {
+                String[] parts = db.trim().split(":");
+                emulator.defineDb(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            }
+            emulator.setMaxPduSize(pduSize);
+            emulator.setMaxAmq(maxAmq);
+            emulator.setLatency(latencyMinMs, latencyMaxMs);
+            emulator.start();
+            emulators.add(emulator);
+        }
+        System.out.println("CLPs emulados: " + count + " (portas " + basePort + " a " + (basePort + count - 1) + ")");
+    }
+
+    @PreDestroy
+    public void stop() {
+        emulators.forEach(S7Emulator::close);
+    }
+
+    public List<S7Emulator> getEmulators() {
+        return emulators;
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.clpmonitor.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,4 +12,6 @@ public interface OrderRepository extends JpaRepository<Order, Integer> {
 
     Optional<Order> findByProductionOrder(String productionOrder);
 
+    List<Order> findByProductionOrderIn(Collection<String> productionOrders);
+
 }
@@ -1,8 +1,15 @@
 package com.example.clpmonitor.repository;
 
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.example.clpmonitor.model.TagLog;
 
 public interface TagLogRepository extends JpaRepository<TagLog, Long>{
-    
+
+    Page<TagLog> findByOperationTimeBetween(LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    Page<TagLog> findByPlcIpAndOperationTimeBetween(String plcIp, LocalDateTime from, LocalDateTime to, Pageable pageable);
 }
@@ -0,0 +1,43 @@
+package com.example.clpmonitor.scan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Guarda o último valor publicado de cada tag e diz se um novo ciclo trouxe
+ * alguma mudança relevante (ver ScanTag.isSignificantChange). Mudança de
+ * qualidade (leitura boa <-> falha) sempre conta.
+ */
+public final class ChangeDetector {
+
+    private final Map<String, TagValue> published = new ConcurrentHashMap<>();
+
+    public boolean hasChanged(List<TagValue> values) {
+        for (TagValue value : values) {
+            if (isChanged(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isChanged(TagValue value) {
+        TagValue last = published.get(value.getName());
+        if (last == null || last.isGood() != value.isGood()) {
+            return true;
+        }
+        return value.isGood() && value.getTag().isSignificantChange(last.getValue(), value.getValue());
+    }
+
+    // Os valores enviados passam a ser a referência das próximas comparações
+    public void markPublished(List<TagValue> values) {
+        for (TagValue value : values) {
+            published.put(value.getName(), value);
+        }
+    }
+
+    public void reset() {
+        published.clear();
+    }
+}
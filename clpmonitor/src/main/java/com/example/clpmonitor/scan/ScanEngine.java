@@ -0,0 +1,248 @@
+package com.example.clpmonitor.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.clpmonitor.config.ScanProperties;
+import com.example.clpmonitor.plc.PlcConnectionPool;
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7NioTransport;
+import com.example.clpmonitor.util.VirtualThreads;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Motor de varredura: monta os grupos declarados em clp.scan, agenda cada um
+ * na sua taxa e entrega os valores aos ScanListener. As leituras usam a
+ * sessão do PlcConnectionPool, compartilhada com o endpoint de escrita.
+ *
+ * Uma única thread de plataforma cuida só do tempo; cada ciclo roda numa
+ * thread virtual, de modo que um CLP lento não atrasa os demais. Se o ciclo
+ * anterior de um grupo ainda estiver em andamento, o disparo é pulado.
+ *
+ * Com clp.scan.transport=nio as leituras vão pelo S7NioTransport: o ciclo não
+ * ocupa thread enquanto espera o CLP, e poucas threads de I/O atendem todos os
+ * CLPs. Só a entrega aos listeners roda numa thread virtual. A escrita continua
+ * pelo pool (sessão bloqueante própria de cada CLP).
+ *
+ * Métricas por grupo (tags plc = ip:porta, group): plc.scan.duration (duração
+ * do ciclo), plc.scan.period (rate-ms), plc.scan.overruns (ciclos mais longos
+ * que o período) e plc.scan.skipped (disparos pulados porque o ciclo anterior
+ * não terminou).
+ */
+@Service
+public class ScanEngine {
+
+    @Autowired
+    private ScanProperties properties;
+
+    @Autowired
+    private PlcConnectionPool connectionPool;
+
+    @Autowired
+    private S7NioTransport nioTransport;
+
+    @Autowired(required = false)
+    private List<ScanListener> listeners = new ArrayList<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<ScanGroup> groups = new ArrayList<>();
+    private final Map<ScanGroup, AtomicBoolean> running = new ConcurrentHashMap<>();
+    private final Map<ScanGroup, ScanMeters> meters = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        listeners = new CopyOnWriteArrayList<>(listeners);
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        groups.addAll(buildGroups(properties));
+        System.out.println("Varredura: " + groups.size() + " grupo(s), transporte "
+                + (properties.isNio() ? "nio" : "bloqueante") + ".");
+
+        workers = VirtualThreads.newPerTaskExecutor("plc-scan");
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "plc-scan-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (ScanGroup group : groups) {
+            running.put(group, new AtomicBoolean());
+            meters.put(group, new ScanMeters(meterRegistry, group));
+            scheduler.scheduleAtFixedRate(() -> dispatch(group), 0, group.getRateMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public List<ScanGroup> getGroups() {
+        return List.copyOf(groups);
+    }
+
+    public void addListener(ScanListener listener) {
+        listeners.add(listener);
+    }
+
+    private void dispatch(ScanGroup group) {
+        AtomicBoolean busy = running.get(group);
+        if (!busy.compareAndSet(false, true)) {
+            meters.get(group).skipped.increment();
+            return;
+        }
+        if (properties.isNio()) {
+            scanAsync(group).whenComplete((done, error) -> busy.set(false));
+            return;
+        }
+        workers.execute(() -> {
+            try {
+                scan(group);
+            } finally {
+                busy.set(false);
+            }
+        });
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Um ciclo de varredura de um grupo
+    // --------------------------------------------------------------------------------------------
+    void scan(ScanGroup group) {
+        long start = System.nanoTime();
+        try {
+            deliver(group, connectionPool.execute(group.getIp(), group.getPort(), group::read), start);
+        } catch (Exception e) {
+            fail(group, e);
+        }
+    }
+
+    // Ciclo pelo transporte não bloqueante; a conexão caída é reaberta no próximo ciclo
+    CompletableFuture<Void> scanAsync(ScanGroup group) {
+        long start = System.nanoTime();
+        return nioTransport.connect(group.getIp(), group.getPort())
+                .thenCompose(group::readAsync)
+                .handleAsync((values, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause != null) {
+                        fail(group, cause instanceof Exception exception ? exception : new Exception(cause));
+                    } else {
+                        deliver(group, values, start);
+                    }
+                    return null;
+                }, workers);
+    }
+
+    private void deliver(ScanGroup group, List<TagValue> values, long start) {
+        ScanMeters groupMeters = meters.get(group);
+        if (groupMeters != null) {
+            groupMeters.record(System.nanoTime() - start, group.getRateMs());
+        }
+        for (ScanListener listener : listeners) {
+            try {
+                listener.onScan(group, values);
+            } catch (Exception e) {
+                System.err.println("Erro ao processar varredura de " + group + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void fail(ScanGroup group, Exception error) {
+        System.err.println("Falha na varredura de " + group + ": " + error.getMessage());
+        for (ScanListener listener : listeners) {
+            listener.onScanError(group, error);
+        }
+    }
+
+    private static final class ScanMeters {
+        final Timer duration;
+        final Counter overruns;
+        final Counter skipped;
+
+        ScanMeters(MeterRegistry registry, ScanGroup group) {
+            Tags tags = Tags.of("plc", PlcConnectionPool.key(group.getIp(), group.getPort()), "group", group.toString());
+            duration = Timer.builder("plc.scan.duration").description("Duração da leitura de um ciclo de varredura")
+                    .tags(tags).register(registry);
+            overruns = Counter.builder("plc.scan.overruns").description("Ciclos mais longos que o período")
+                    .tags(tags).register(registry);
+            skipped = Counter.builder("plc.scan.skipped").description("Disparos pulados com o ciclo anterior em andamento")
+                    .tags(tags).register(registry);
+            long rateMs = group.getRateMs();
+            Gauge.builder("plc.scan.period", () -> rateMs / 1000.0).baseUnit("seconds")
+                    .description("Período configurado (rate-ms)").tags(tags).strongReference(true).register(registry);
+        }
+
+        void record(long nanos, long rateMs) {
+            duration.record(nanos, TimeUnit.NANOSECONDS);
+            if (nanos > TimeUnit.MILLISECONDS.toNanos(rateMs)) {
+                overruns.increment();
+            }
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Resolve as tags declaradas (tipo, tamanho e repetições) uma única vez
+    // --------------------------------------------------------------------------------------------
+    static List<ScanGroup> buildGroups(ScanProperties properties) {
+
+        List<ScanGroup> result = new ArrayList<>();
+        for (ScanProperties.Plc plc : properties.getPlcs()) {
+            for (ScanProperties.Group group : plc.getGroups()) {
+                List<ScanTag> tags = new ArrayList<>();
+                for (ScanProperties.TagDefinition definition : group.getTags()) {
+                    S7DataType type = S7DataType.of(definition.getType());
+                    int size = type.size(definition.getSize());
+                    if (definition.getCount() <= 1) {
+                        tags.add(new ScanTag(plc.getName(), definition.getName(), definition.getDb(),
+                                definition.getOffset(), definition.getBit(), size, type,
+                                definition.getDeadband(), definition.getDeadbandPercent()));
+                        continue;
+                    }
+                    int stride = definition.getStride() > 0 ? definition.getStride() : size;
+                    for (int i = 0; i < definition.getCount(); i++) {
+                        tags.add(new ScanTag(plc.getName(), definition.getName() + "[" + i + "]", definition.getDb(),
+                                definition.getOffset() + i * stride, definition.getBit(), size, type,
+                                definition.getDeadband(), definition.getDeadbandPercent()));
+                    }
+                }
+                result.add(new ScanGroup(plc.getName(), group.getName(), plc.getIp().trim(), plc.getPort(),
+                        group.getRateMs(), group.getEvent(), group.getClpId(), tags, properties.getMaxGap()));
+            }
+        }
+        return result;
+    }
+}
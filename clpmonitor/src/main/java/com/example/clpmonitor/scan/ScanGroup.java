@@ -0,0 +1,122 @@
+package com.example.clpmonitor.scan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.example.clpmonitor.plc.PlcConnector;
+import com.example.clpmonitor.plc.S7NioConnection;
+import com.example.clpmonitor.plc.S7ReadResult;
+
+/*
+ * Grupo de tags de um CLP lido na mesma taxa. O plano de leitura é montado
+ * na primeira varredura, com a PDU negociada, e refeito só se ela mudar.
+ */
+public final class ScanGroup {
+
+    private final String plc;
+    private final String name;
+    private final String ip;
+    private final int port;
+    private final long rateMs;
+    private final String event;
+    private final int clpId;
+    private final List<ScanTag> tags;
+    private final int maxGap;
+
+    private ScanPlan plan;
+    private int planBlockSize;
+
+    public ScanGroup(String plc, String name, String ip, int port, long rateMs, String event, int clpId,
+            List<ScanTag> tags, int maxGap) {
+        this.plc = plc;
+        this.name = name;
+        this.ip = ip;
+        this.port = port;
+        this.rateMs = rateMs;
+        this.event = event;
+        this.clpId = clpId;
+        this.tags = List.copyOf(tags);
+        this.maxGap = maxGap;
+    }
+
+    public String getPlc() {
+        return plc;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public long getRateMs() {
+        return rateMs;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public int getClpId() {
+        return clpId;
+    }
+
+    public List<ScanTag> getTags() {
+        return tags;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Um ciclo: lê os blocos do plano e recorta o valor de cada tag
+    // --------------------------------------------------------------------------------------------
+    List<TagValue> read(PlcConnector plc) throws Exception {
+
+        ScanPlan current = planFor(plc.getMaxReadDataSize());
+        return toValues(current, plc.readItems(current.getItems()));
+    }
+
+    // Mesmo ciclo pelo transporte não bloqueante; os valores são recortados na thread de I/O
+    CompletableFuture<List<TagValue>> readAsync(S7NioConnection connection) {
+
+        ScanPlan current = planFor(connection.getMaxReadDataSize());
+        return connection.readAsync(current.getItems()).thenApply(results -> toValues(current, results));
+    }
+
+    private List<TagValue> toValues(ScanPlan current, List<S7ReadResult> results) {
+        long now = System.currentTimeMillis();
+
+        List<TagValue> values = new ArrayList<>(tags.size());
+        List<ScanPlan.Block> blocks = current.getBlocks();
+        for (int i = 0; i < blocks.size(); i++) {
+            ScanPlan.Block block = blocks.get(i);
+            S7ReadResult result = results.get(i);
+            boolean good = result.isSuccess() && result.getData().length >= block.getLength();
+            for (ScanTag tag : block.getTags()) {
+                values.add(good ? new TagValue(tag, tag.decode(result.getData(), block.getStart()), now, true)
+                        : TagValue.bad(tag, now));
+            }
+        }
+        return values;
+    }
+
+    synchronized ScanPlan planFor(int maxBlockSize) {
+        if (plan == null || planBlockSize != maxBlockSize) {
+            plan = ScanPlan.build(new ArrayList<>(tags), maxBlockSize, maxGap);
+            planBlockSize = maxBlockSize;
+            System.out.println("Plano de varredura " + this + ": " + tags.size() + " tags em "
+                    + plan.getBlocks().size() + " bloco(s) " + plan);
+        }
+        return plan;
+    }
+
+    @Override
+    public String toString() {
+        return plc + "/" + name;
+    }
+}
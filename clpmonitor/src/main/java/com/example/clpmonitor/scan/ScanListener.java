@@ -0,0 +1,17 @@
+package com.example.clpmonitor.scan;
+
+import java.util.List;
+
+/*
+ * Recebe os valores de cada ciclo de varredura. Os beans que implementam esta
+ * interface são registrados automaticamente no ScanEngine.
+ * As chamadas acontecem na thread de varredura: processamento demorado deve
+ * ser repassado para outra thread.
+ */
+public interface ScanListener {
+
+    void onScan(ScanGroup group, List<TagValue> values);
+
+    default void onScanError(ScanGroup group, Exception error) {
+    }
+}
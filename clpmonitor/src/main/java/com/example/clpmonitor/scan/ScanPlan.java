@@ -0,0 +1,115 @@
+package com.example.clpmonitor.scan;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.example.clpmonitor.plc.S7ReadItem;
+
+/*
+ * Plano de leitura de um grupo: as tags de cada DB são ordenadas por offset e
+ * unidas em blocos contíguos sempre que a lacuna entre elas for pequena
+ * (maxGap) e o bloco couber numa resposta (maxBlockSize). Os blocos seguem
+ * como itens de um único ReadVar, que o S7Client ainda agrupa por PDU.
+ */
+public final class ScanPlan {
+
+    public static final class Block {
+
+        private final int db;
+        private final int start;
+        private int length;
+        private final List<ScanTag> tags = new ArrayList<>();
+
+        Block(ScanTag first) {
+            this.db = first.getDb();
+            this.start = first.getOffset();
+            this.length = first.getSize();
+            this.tags.add(first);
+        }
+
+        public int getDb() {
+            return db;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public List<ScanTag> getTags() {
+            return tags;
+        }
+
+        int end() {
+            return start + length;
+        }
+
+        void add(ScanTag tag) {
+            length = Math.max(end(), tag.end()) - start;
+            tags.add(tag);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("DB%d.%d (%d bytes, %d tags)", db, start, length, tags.size());
+        }
+    }
+
+    private final List<Block> blocks;
+    private final List<S7ReadItem> items;
+
+    private ScanPlan(List<Block> blocks) {
+        this.blocks = blocks;
+        this.items = new ArrayList<>(blocks.size());
+        for (Block block : blocks) {
+            items.add(S7ReadItem.ofBlock(block.db, block.start, block.length));
+        }
+    }
+
+    public static ScanPlan build(List<ScanTag> tags, int maxBlockSize, int maxGap) {
+
+        Map<Integer, List<ScanTag>> byDb = new TreeMap<>();
+        for (ScanTag tag : tags) {
+            byDb.computeIfAbsent(tag.getDb(), db -> new ArrayList<>()).add(tag);
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        for (List<ScanTag> dbTags : byDb.values()) {
+            dbTags.sort(Comparator.comparingInt(ScanTag::getOffset));
+
+            Block current = null;
+            for (ScanTag tag : dbTags) {
+                // Tags maiores que a resposta ficam sozinhas; o S7Client as divide em fatias
+                boolean fits = current != null
+                        && tag.getOffset() - current.end() <= maxGap
+                        && Math.max(current.end(), tag.end()) - current.start <= maxBlockSize;
+                if (fits) {
+                    current.add(tag);
+                } else {
+                    current = new Block(tag);
+                    blocks.add(current);
+                }
+            }
+        }
+        return new ScanPlan(blocks);
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    List<S7ReadItem> getItems() {
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        return blocks.toString();
+    }
+}
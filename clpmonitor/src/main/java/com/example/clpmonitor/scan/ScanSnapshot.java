@@ -0,0 +1,74 @@
+package com.example.clpmonitor.scan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.example.clpmonitor.plc.PlcConnectionPool;
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7WriteItem;
+
+/*
+ * Último valor lido pela varredura em cada endereço (ip:porta, DB, offset,
+ * bit, tipo e tamanho). Serve de "valor anterior" para a auditoria das
+ * escritas sem uma leitura extra no CLP.
+ *
+ * Só vale o valor bom de um ciclo recente: com mais de dois períodos do grupo
+ * ou depois de um ciclo com erro, o endereço deixa de ter valor conhecido.
+ */
+@Component
+public class ScanSnapshot implements ScanListener {
+
+    private static final class Entry {
+        final TagValue value;
+        final long maxAgeMs;
+
+        Entry(TagValue value, long maxAgeMs) {
+            this.value = value;
+            this.maxAgeMs = maxAgeMs;
+        }
+    }
+
+    private final Map<String, Entry> latest = new ConcurrentHashMap<>();
+
+    @Override
+    public void onScan(ScanGroup group, List<TagValue> values) {
+        String plc = PlcConnectionPool.key(group.getIp(), group.getPort());
+        for (TagValue value : values) {
+            String key = key(plc, value.getTag());
+            if (value.isGood()) {
+                latest.put(key, new Entry(value, 2 * group.getRateMs()));
+            } else {
+                latest.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void onScanError(ScanGroup group, Exception error) {
+        String plc = PlcConnectionPool.key(group.getIp(), group.getPort());
+        for (ScanTag tag : group.getTags()) {
+            latest.remove(key(plc, tag));
+        }
+    }
+
+    // Valor atual formatado como na auditoria, ou null se a varredura não cobre o endereço
+    public String currentValue(String ip, int port, S7WriteItem item) {
+        Entry entry = latest.get(key(PlcConnectionPool.key(ip, port), item.getDb(), item.getOffset(),
+                item.getBit(), item.getSize(), item.getDataType()));
+        if (entry == null || System.currentTimeMillis() - entry.value.getTimestamp() > entry.maxAgeMs) {
+            return null;
+        }
+        return item.getDataType().format(entry.value.getValue());
+    }
+
+    private static String key(String plc, ScanTag tag) {
+        return key(plc, tag.getDb(), tag.getOffset(), tag.getBit(), tag.getSize(), tag.getDataType());
+    }
+
+    private static String key(String plc, int db, int offset, int bit, int size, S7DataType type) {
+        return plc + "/DB" + db + "." + offset + "." + (type.isBit() ? bit : 0) + ":" + type.key() + ":" + size;
+    }
+}
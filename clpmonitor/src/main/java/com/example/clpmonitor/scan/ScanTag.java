@@ -0,0 +1,123 @@
+package com.example.clpmonitor.scan;
+
+import java.util.Objects;
+
+import com.example.clpmonitor.plc.S7DataType;
+
+/*
+ * Tag já resolvida (tipo e endereço) pertencente a um grupo de varredura.
+ * O valor é recortado do bloco lido que contém o endereço da tag.
+ */
+public final class ScanTag {
+
+    private final String plc;
+    private final String name;
+    private final int db;
+    private final int offset;
+    private final int bit;
+    private final int size;
+    private final S7DataType dataType;
+    private final double deadband;
+    private final double deadbandPercent;
+
+    public ScanTag(String plc, String name, int db, int offset, int bit, int size, S7DataType dataType) {
+        this(plc, name, db, offset, bit, size, dataType, 0, 0);
+    }
+
+    public ScanTag(String plc, String name, int db, int offset, int bit, int size, S7DataType dataType,
+            double deadband, double deadbandPercent) {
+        this.plc = plc;
+        this.name = name;
+        this.db = db;
+        this.offset = offset;
+        this.bit = bit;
+        this.size = dataType.size(size);
+        this.dataType = dataType;
+        this.deadband = deadband;
+        this.deadbandPercent = deadbandPercent;
+    }
+
+    public String getPlc() {
+        return plc;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Nome único na aplicação: clp.tag
+    public String getQualifiedName() {
+        return plc + "." + name;
+    }
+
+    public int getDb() {
+        return db;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public S7DataType getDataType() {
+        return dataType;
+    }
+
+    public double getDeadband() {
+        return deadband;
+    }
+
+    public double getDeadbandPercent() {
+        return deadbandPercent;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Mudança relevante para publicação: valores numéricos precisam sair da banda
+    // morta (a maior entre a absoluta e a percentual); os demais mudam em qualquer diferença
+    // --------------------------------------------------------------------------------------------
+    public boolean isSignificantChange(Object previous, Object current) {
+        if (previous instanceof Number before && current instanceof Number after) {
+            double threshold = Math.max(deadband, Math.abs(before.doubleValue()) * deadbandPercent / 100.0);
+            if (threshold > 0) {
+                return Math.abs(after.doubleValue() - before.doubleValue()) > threshold;
+            }
+        }
+        return !Objects.deepEquals(previous, current);
+    }
+
+    // Primeiro byte após a tag
+    int end() {
+        return offset + size;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Decodificação a partir do bloco lido (blockStart = byte offset do início do bloco)
+    // --------------------------------------------------------------------------------------------
+    public Object decode(byte[] block, int blockStart) {
+        int pos = offset - blockStart;
+        if (dataType.isBit()) {
+            return ((block[pos] >> bit) & 0x01) == 1;
+        }
+        return dataType.decode(block, pos, size);
+    }
+
+    public double decodeDouble(byte[] block, int blockStart) {
+        int pos = offset - blockStart;
+        if (dataType.isBit()) {
+            return (block[pos] >> bit) & 0x01;
+        }
+        return dataType.decodeDouble(block, pos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (DB%d.%d.%d %s)", getQualifiedName(), db, offset, bit, dataType);
+    }
+}
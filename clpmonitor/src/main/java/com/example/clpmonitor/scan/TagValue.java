@@ -0,0 +1,49 @@
+package com.example.clpmonitor.scan;
+
+/*
+ * Valor de uma tag num ciclo de varredura. Quando a leitura do bloco falha
+ * o valor vem nulo e isGood() retorna false.
+ */
+public final class TagValue {
+
+    private final ScanTag tag;
+    private final Object value;
+    private final long timestamp;
+    private final boolean good;
+
+    public TagValue(ScanTag tag, Object value, long timestamp, boolean good) {
+        this.tag = tag;
+        this.value = value;
+        this.timestamp = timestamp;
+        this.good = good;
+    }
+
+    public static TagValue bad(ScanTag tag, long timestamp) {
+        return new TagValue(tag, null, timestamp, false);
+    }
+
+    public ScanTag getTag() {
+        return tag;
+    }
+
+    public String getName() {
+        return tag.getQualifiedName();
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isGood() {
+        return good;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "=" + (good ? tag.getDataType().format(value) : "<falha>");
+    }
+}
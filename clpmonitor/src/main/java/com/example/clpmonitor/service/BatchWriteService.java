@@ -0,0 +1,261 @@
+package com.example.clpmonitor.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.clpmonitor.model.TagLog;
+import com.example.clpmonitor.model.TagWriteRequest;
+import com.example.clpmonitor.model.TagWriteResult;
+import com.example.clpmonitor.plc.PlcConnectionPool;
+import com.example.clpmonitor.plc.PlcConnector;
+import com.example.clpmonitor.plc.PlcWriteQueue;
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7ReadItem;
+import com.example.clpmonitor.plc.S7ReadResult;
+import com.example.clpmonitor.plc.S7WriteItem;
+import com.example.clpmonitor.plc.S7WriteResult;
+import com.example.clpmonitor.scan.ScanSnapshot;
+import com.example.clpmonitor.util.VirtualThreads;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Escrita em lote: os itens são agrupados por CLP (ip:porta) e cada grupo entra
+ * de uma vez na fila de escrita do CLP (PlcWriteQueue), que o manda no menor
+ * número possível de WriteVar multi-item. Grupos de CLPs diferentes rodam em
+ * paralelo. O CLP devolve um return code por item, então uma falha (endereço
+ * fora do DB, por exemplo) não derruba os demais.
+ *
+ * Depois da escrita, cada item aceito pelo CLP vai para o StorageProjector (os
+ * mesmos efeitos no banco da escrita individual, aplicados em segundo plano) e
+ * todos os itens vão para a auditoria (operation_type WRITE_BATCH, com a
+ * latência da requisição do grupo). O valor anterior vem da varredura
+ * (ScanSnapshot); a leitura extra no CLP antes da escrita só acontece com
+ * clp.audit.read-old-value=true e para itens que a varredura não cobre.
+ */
+@Service
+public class BatchWriteService {
+
+    private static final String OPERATION_TYPE = "WRITE_BATCH";
+
+    @Autowired
+    private PlcConnectionPool connectionPool;
+
+    @Autowired
+    private PlcWriteQueue writeQueue;
+
+    @Autowired
+    private StorageProjector storageProjector;
+
+    @Autowired
+    private WriteAuditLog auditLog;
+
+    @Autowired
+    private ScanSnapshot scanSnapshot;
+
+    @Value("${clp.audit.read-old-value:false}")
+    private boolean readOldValue;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = VirtualThreads.newPerTaskExecutor("batch-write");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Escreve todos os itens; um resultado por item, na ordem da requisição
+    // --------------------------------------------------------------------------------------------
+    public List<TagWriteResult> write(List<TagWriteRequest> requests, String operator) {
+        List<TagWriteResult> results = new ArrayList<>(requests.size());
+        List<TagLog> audits = new ArrayList<>(requests.size());
+        Map<String, PlcBatch> batches = new LinkedHashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            TagWriteRequest request = requests.get(i);
+            TagWriteResult result = new TagWriteResult();
+            result.setIndex(i);
+            result.setIp(request.getIp());
+            result.setPort(request.getPort());
+            results.add(result);
+
+            TagLog audit = new TagLog();
+            audit.setOperationTime(LocalDateTime.now());
+            audit.setOperationType(OPERATION_TYPE);
+            audit.setOperator(operator);
+            audit.setPlcIp(request.getIp());
+            audit.setNewValue(request.getValue());
+            audits.add(audit);
+
+            try {
+                if (request.getIp() == null || request.getIp().isBlank()) {
+                    throw new IllegalArgumentException("IP do CLP é obrigatório");
+                }
+                S7DataType type = S7DataType.of(request.getType());
+                int bitNumber = type.isBit() ? request.getBitNumber() : 0;
+                Object value = type.parse(request.getValue());
+                S7WriteItem item = new S7WriteItem(request.getDb(), request.getOffset(), bitNumber,
+                        request.getSize(), type, value);
+
+                String address = type.isBit()
+                        ? String.format("DB%d.%d.%d", request.getDb(), request.getOffset(), bitNumber)
+                        : String.format("DB%d.%d (%s)", request.getDb(), request.getOffset(), type);
+                result.setAddress(address);
+                audit.setAddress(address);
+                audit.setNewValue(type.format(value));
+                audit.setDetails(address + " = " + type.format(value));
+                audit.setOldValue(scanSnapshot.currentValue(request.getIp(), request.getPort(), item));
+
+                PlcBatch batch = batches.computeIfAbsent(PlcConnectionPool.key(request.getIp(), request.getPort()),
+                        k -> new PlcBatch(request.getIp(), request.getPort()));
+                batch.add(i, item);
+                batch.readOldValues |= readOldValue && audit.getOldValue() == null;
+            } catch (Exception e) {
+                // Item inválido não chega ao CLP; os demais seguem
+                result.setError(e.getMessage());
+                audit.setSuccess(false);
+                audit.setDetails(e.getMessage());
+            }
+        }
+
+        List<Future<?>> pending = new ArrayList<>(batches.size());
+        for (PlcBatch batch : batches.values()) {
+            pending.add(executor.submit(() -> batch.run(connectionPool, writeQueue)));
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                // Falhas de cada grupo já ficam em PlcBatch.error
+            }
+        }
+
+        for (PlcBatch batch : batches.values()) {
+            applyResults(batch, requests, results, audits);
+        }
+
+        audits.forEach(auditLog::record);
+        return results;
+    }
+
+    private void applyResults(PlcBatch batch, List<TagWriteRequest> requests, List<TagWriteResult> results,
+            List<TagLog> audits) {
+        for (int i = 0; i < batch.indexes.size(); i++) {
+            int index = batch.indexes.get(i);
+            TagWriteRequest request = requests.get(index);
+            TagWriteResult result = results.get(index);
+            TagLog audit = audits.get(index);
+            audit.setLatencyMs(batch.latencyMs);
+            if (batch.oldValues != null && audit.getOldValue() == null) {
+                audit.setOldValue(batch.oldValues.get(i));
+            }
+
+            if (batch.results == null) {
+                String message = batch.error != null ? batch.error.getMessage() : "Escrita não concluída";
+                result.setError(message);
+                audit.setSuccess(false);
+                audit.setDetails(message);
+                continue;
+            }
+
+            S7WriteResult writeResult = batch.results.get(i);
+            result.setReturnCode(writeResult.getReturnCode());
+            result.setSuccess(writeResult.isSuccess());
+            audit.setSuccess(writeResult.isSuccess());
+            if (!writeResult.isSuccess()) {
+                result.setError(String.format("Return code 0x%02X", writeResult.getReturnCode()));
+                audit.setDetails(audit.getDetails() + String.format(" (return code 0x%02X)", writeResult.getReturnCode()));
+                continue;
+            }
+
+            storageProjector.submit(batch.ip, batch.port, writeResult.getItem());
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Itens de um CLP: escrita pela fila do CLP e, se pedido, valores anteriores numa leitura pela sessão do pool
+    // --------------------------------------------------------------------------------------------
+    private static final class PlcBatch {
+        final String ip;
+        final int port;
+        final List<Integer> indexes = new ArrayList<>();
+        final List<S7WriteItem> items = new ArrayList<>();
+        // Algum item sem valor anterior da varredura, com clp.audit.read-old-value=true
+        boolean readOldValues;
+        volatile List<String> oldValues;
+        volatile List<S7WriteResult> results;
+        volatile Exception error;
+        volatile long latencyMs;
+
+        PlcBatch(String ip, int port) {
+            this.ip = ip;
+            this.port = port;
+        }
+
+        void add(int index, S7WriteItem item) {
+            indexes.add(index);
+            items.add(item);
+        }
+
+        void run(PlcConnectionPool pool, PlcWriteQueue writeQueue) {
+            if (readOldValues) {
+                try {
+                    oldValues = pool.execute(ip, port, this::readCurrentValues);
+                } catch (Exception e) {
+                    System.err.println("[WARN] Valores anteriores não lidos: " + e.getMessage());
+                }
+            }
+
+            long start = System.nanoTime();
+            try {
+                results = writeQueue.writeAll(ip, port, items);
+            } catch (Exception e) {
+                error = e;
+                System.err.println("[ERROR] Escrita em lote em " + PlcConnectionPool.key(ip, port) + ": " + e.getMessage());
+            } finally {
+                latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+        }
+
+        // Valores anteriores para a auditoria, numa só leitura; uma falha aqui não impede a escrita
+        private List<String> readCurrentValues(PlcConnector plc) {
+            try {
+                List<S7ReadItem> reads = new ArrayList<>(items.size());
+                for (S7WriteItem item : items) {
+                    reads.add(new S7ReadItem(item.getDb(), item.getOffset(), item.getBit(), item.getSize(),
+                            item.getDataType()));
+                }
+                List<S7ReadResult> current = plc.readItems(reads);
+                List<String> values = new ArrayList<>(current.size());
+                for (int i = 0; i < current.size(); i++) {
+                    S7ReadResult read = current.get(i);
+                    values.add(read.isSuccess() ? items.get(i).getDataType().format(read.getValue()) : null);
+                }
+                return values;
+            } catch (Exception e) {
+                System.err.println("[WARN] Valores anteriores não lidos: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -1,68 +1,142 @@
 package com.example.clpmonitor.service;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.example.clpmonitor.model.Block;
+import com.example.clpmonitor.config.ScanProperties;
 import com.example.clpmonitor.model.ClpData;
+import com.example.clpmonitor.model.CompactFrame;
 import com.example.clpmonitor.plc.PlcConnector;
+import com.example.clpmonitor.scan.ChangeDetector;
+import com.example.clpmonitor.scan.ScanGroup;
+import com.example.clpmonitor.scan.ScanListener;
+import com.example.clpmonitor.scan.TagValue;
+import com.example.clpmonitor.trend.TrendService;
+import com.example.clpmonitor.util.VirtualThreads;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
-import com.example.clpmonitor.repository.BlockRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Service
-public class ClpSimulatorService {
+public class ClpSimulatorService implements ScanListener {
 
     private byte[] indxColorBlk = new byte[28];
     private PlcConnector plcStock;
     private PlcConnector plcExpedition;
 
     @Autowired
-    private BlockRepository blockRepository;
+    private StorageMatrixCache storageMatrix;
 
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
-    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    @Autowired
+    private ScanProperties scanProperties;
+
+    @Autowired
+    private SseBroadcaster broadcaster;
+
+    @Autowired
+    private TrendService trendService;
+
+    // Sem mudanças, cada evento é reenviado no máximo a cada heartbeat
+    @Value("${clp.publish.heartbeat-ms:30000}")
+    private long heartbeatMs;
+
+    // Listas de inteiros vão como frame binário em base64 (ver CompactFrame)
+    @Value("${clp.sse.compact:false}")
+    private boolean compact;
+
+    // Último payload publicado por evento (também enviado a quem se inscreve)
+    private final Map<String, PublishedEvent> publishedEvents = new ConcurrentHashMap<>();
+    private final ChangeDetector changeDetector = new ChangeDetector();
+
+    // Thread de plataforma só para o tempo; consultas ao banco rodam em threads virtuais
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService workers = VirtualThreads.newPerTaskExecutor("clp-update");
 
     @PostConstruct
     public void startSimulation() {
-        executor.scheduleAtFixedRate(this::sendClp1Update, 0, 3800, TimeUnit.MILLISECONDS);
-        executor.scheduleAtFixedRate(this::sendClp2to4Updates, 0, 3, TimeUnit.SECONDS);
-        executor.scheduleAtFixedRate(this::sendClp4Ocupacao, 0, 2, TimeUnit.SECONDS);
+        // Com a varredura ativa, as matrizes vêm do CLP (onScan) e não do banco
+        if (!scanProperties.isEnabled()) {
+            schedule(this::sendClp1Update, 3800);
+            schedule(this::sendClp4Ocupacao, 2000);
+        }
+        schedule(this::sendClp2to4Updates, 3000);
+    }
+
+    @PreDestroy
+    public void stopSimulation() {
+        executor.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    // Disparo periódico sem sobreposição: se a execução anterior não terminou, pula o ciclo
+    private void schedule(Runnable job, long periodMs) {
+        AtomicBoolean busy = new AtomicBoolean();
+        executor.scheduleAtFixedRate(() -> {
+            if (busy.compareAndSet(false, true)) {
+                workers.execute(() -> {
+                    try {
+                        job.run();
+                    } finally {
+                        busy.set(false);
+                    }
+                });
+            }
+        }, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Grupos de varredura com "event" configurado viram eventos SSE: um BLOCK
+    // único é enviado como lista de bytes, os demais como lista de valores
+    // --------------------------------------------------------------------------------------------
+    @Override
+    public void onScan(ScanGroup group, List<TagValue> values) {
+        if (group.getEvent() == null || group.getEvent().isBlank()) {
+            return;
+        }
+
+        boolean changed = !publishedEvents.containsKey(group.getEvent()) || changeDetector.hasChanged(values);
+
+        List<Object> payload = new ArrayList<>();
+        if (values.size() == 1 && values.get(0).getValue() instanceof byte[] bytes) {
+            for (byte b : bytes) {
+                payload.add((int) b);
+            }
+        } else {
+            for (TagValue value : values) {
+                payload.add(value.isGood() ? value.getValue() : 0);
+            }
+        }
+        if (publish(group.getEvent(), new ClpData(group.getClpId(), payload), changed)) {
+            changeDetector.markPublished(values);
+        }
     }
 
     public SseEmitter subscribe() {
-        SseEmitter emitter = new SseEmitter(0L);
-        emitters.add(emitter);
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        return emitter;
+        // Como só mudanças são publicadas, o novo cliente recebe o estado atual
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        publishedEvents.forEach((eventName, published) -> snapshot.put(eventName, toWire(published.data)));
+        return broadcaster.subscribe(snapshot);
     }
 
+    // Matrizes de cor e ocupação saem da cópia em memória do estoque, sem consulta ao banco
     private void sendClp1Update() {
         try {
-            List<Integer> byteArray = new ArrayList<>();
-            List<Block> blocks = blockRepository.findByStorageIdOrderByPositionAsc(1);
-            
-            for (Block block : blocks) {
-                byteArray.add(block.getColor());
-            }
-            
-            while (byteArray.size() < 28) {
-                byteArray.add(0);
-            }
-            
-            ClpData clp1 = new ClpData(1, byteArray);
-            sendToEmitters("clp1-data", clp1);
+            publishIfChanged("clp1-data", new ClpData(1, storageMatrix.get(1).colors(28)));
         } catch (Exception e) {
             System.err.println("Erro ao atualizar CLP1: " + e.getMessage());
         }
@@ -70,46 +144,69 @@ public class ClpSimulatorService {
 
     private void sendClp2to4Updates() {
         Random rand = new Random();
-        sendToEmitters("clp2-data", new ClpData(2, rand.nextInt(100)));
-        sendToEmitters("clp3-data", new ClpData(3, rand.nextInt(100)));
-        sendToEmitters("clp4-data", new ClpData(4, rand.nextInt(100)));
+        long now = System.currentTimeMillis();
+        for (int clpId = 2; clpId <= 4; clpId++) {
+            int value = rand.nextInt(100);
+            String eventName = "clp" + clpId + "-data";
+            // Toda amostra entra na tendência, mesmo quando o evento SSE é suprimido
+            trendService.record(eventName, now, value);
+            publishIfChanged(eventName, new ClpData(clpId, value));
+        }
     }
 
     private void sendClp4Ocupacao() {
         try {
-            List<Integer> ocupacao = new ArrayList<>();
-            List<Block> blocks = blockRepository.findByStorageIdOrderByPositionAsc(1);
-            
-            for (Block block : blocks) {
-                ocupacao.add(block.getProductionOrder() != null ? 1 : 0);
-            }
-            
-            while (ocupacao.size() < 12) {
-                ocupacao.add(0);
-            }
-            
-            sendToEmitters("clp4-ocupacao", new ClpData(4, ocupacao));
+            publishIfChanged("clp4-ocupacao", new ClpData(4, storageMatrix.get(1).occupancy(12)));
         } catch (Exception e) {
             System.err.println("Erro ao atualizar ocupação: " + e.getMessage());
         }
     }
 
-    private void sendToEmitters(String eventName, ClpData clpData) {
-        List<SseEmitter> deadEmitters = new ArrayList<>();
-        emitters.forEach(emitter -> {
-            try {
-                emitter.send(SseEmitter.event().name(eventName).data(clpData));
-            } catch (IOException e) {
-                deadEmitters.add(emitter);
-            }
-        });
-        emitters.removeAll(deadEmitters);
+    // --------------------------------------------------------------------------------------------
+    // Publicação por mudança: payload igual ao último enviado só sai no heartbeat
+    // --------------------------------------------------------------------------------------------
+    private void publishIfChanged(String eventName, ClpData clpData) {
+        PublishedEvent last = publishedEvents.get(eventName);
+        publish(eventName, clpData, last == null || !Objects.equals(last.data.getValue(), clpData.getValue()));
     }
 
+    private boolean publish(String eventName, ClpData clpData, boolean changed) {
+        long now = System.currentTimeMillis();
+        PublishedEvent last = publishedEvents.get(eventName);
+        if (!changed && last != null && now - last.sentAt < heartbeatMs) {
+            return false;
+        }
+        publishedEvents.put(eventName, new PublishedEvent(clpData, now));
+        broadcaster.broadcast(eventName, toWire(clpData));
+        return true;
+    }
+
+    private Object toWire(ClpData clpData) {
+        if (!compact) {
+            return clpData;
+        }
+        CompactFrame frame = CompactFrame.of(clpData);
+        return frame != null ? frame : clpData;
+    }
+
+    private static final class PublishedEvent {
+        final ClpData data;
+        final long sentAt;
+
+        PublishedEvent(ClpData data, long sentAt) {
+            this.data = data;
+            this.sentAt = sentAt;
+        }
+    }
+
+    // Atualização forçada: o próximo envio de cada evento sai mesmo sem mudança
     public void triggerManualUpdate() {
-        sendClp1Update();
+        publishedEvents.clear();
+        if (!scanProperties.isEnabled()) {
+            sendClp1Update();
+            sendClp4Ocupacao();
+        }
         sendClp2to4Updates();
-        sendClp4Ocupacao();
     }
 }
 
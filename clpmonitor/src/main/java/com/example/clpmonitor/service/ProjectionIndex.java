@@ -0,0 +1,166 @@
+package com.example.clpmonitor.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.clpmonitor.config.ProjectionProperties;
+import com.example.clpmonitor.config.ProjectionProperties.Field;
+import com.example.clpmonitor.plc.PlcConnectionPool;
+import com.example.clpmonitor.plc.S7DataType;
+
+/*
+ * Regras de projeção compiladas num índice por endereço.
+ *
+ * Para cada CLP (ip:porta) e DB há um array indexado pelo byte offset (do menor
+ * ao maior endereço das regras daquele DB); cada casa guarda as regras cujo
+ * valor começa naquele byte, já com a posição calculada. A consulta de um
+ * endereço é um acesso ao mapa do CLP/DB e outro ao array, sem percorrer as
+ * regras. Imutável depois de construído.
+ */
+final class ProjectionIndex {
+
+    static final ProjectionIndex EMPTY = new ProjectionIndex(List.of());
+
+    // Destino de um endereço: posição de um estoque e o campo a atualizar
+    static final class Target {
+        // Nome da regra (opcional)
+        final String rule;
+        final S7DataType type;
+        final int storageId;
+        final int position;
+        final Field field;
+
+        Target(String rule, S7DataType type, int storageId, int position, Field field) {
+            this.rule = rule;
+            this.type = type;
+            this.storageId = storageId;
+            this.position = position;
+            this.field = field;
+        }
+    }
+
+    private static final Target[] NONE = new Target[0];
+
+    private final Map<String, Map<Integer, DbSlots>> plcs = new HashMap<>();
+    private final int ruleCount;
+
+    ProjectionIndex(List<ProjectionProperties.Rule> rules) {
+        Map<String, Map<Integer, List<ProjectionProperties.Rule>>> grouped = new HashMap<>();
+        for (ProjectionProperties.Rule rule : rules) {
+            validate(rule);
+            grouped.computeIfAbsent(PlcConnectionPool.key(rule.getIp(), rule.getPort()), k -> new HashMap<>())
+                    .computeIfAbsent(rule.getDb(), k -> new ArrayList<>())
+                    .add(rule);
+        }
+        grouped.forEach((plc, dbs) -> {
+            Map<Integer, DbSlots> slots = new HashMap<>();
+            dbs.forEach((db, dbRules) -> slots.put(db, new DbSlots(dbRules)));
+            plcs.put(plc, slots);
+        });
+        ruleCount = rules.size();
+    }
+
+    private static void validate(ProjectionProperties.Rule rule) {
+        String name = rule.getName() != null ? rule.getName() : "DB" + rule.getDb() + "." + rule.getOffset();
+        if (rule.getIp() == null || rule.getIp().isBlank()) {
+            throw new IllegalArgumentException("Regra de projeção " + name + ": ip é obrigatório");
+        }
+        S7DataType type = S7DataType.of(rule.getType());
+        if (type.isBit() || !type.isFixedSize()) {
+            throw new IllegalArgumentException("Regra de projeção " + name + ": tipo " + type
+                    + " não suportado (use tipos de tamanho fixo, como BYTE ou INTEGER)");
+        }
+        if (rule.getCount() < 1 || rule.getOffset() < 0 || rule.getStride() < 0) {
+            throw new IllegalArgumentException("Regra de projeção " + name + ": offset, count ou stride inválido");
+        }
+    }
+
+    int getRuleCount() {
+        return ruleCount;
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Destinos do valor de tipo "type" que começa em DB<db>.<offset> do CLP ip:porta
+    // --------------------------------------------------------------------------------------------
+    Target[] lookup(String ip, int port, int db, int offset, S7DataType type) {
+        Map<Integer, DbSlots> dbs = plcs.get(PlcConnectionPool.key(ip, port));
+        if (dbs == null) {
+            return NONE;
+        }
+        DbSlots slots = dbs.get(db);
+        if (slots == null) {
+            return NONE;
+        }
+        Target[] targets = slots.at(offset);
+        if (targets.length == 1) {
+            return targets[0].type == type ? targets : NONE;
+        }
+        int matches = 0;
+        for (Target target : targets) {
+            if (target.type == type) {
+                matches++;
+            }
+        }
+        if (matches == targets.length) {
+            return targets;
+        }
+        Target[] result = new Target[matches];
+        int i = 0;
+        for (Target target : targets) {
+            if (target.type == type) {
+                result[i++] = target;
+            }
+        }
+        return result;
+    }
+
+    // Endereços de um DB, do primeiro ao último valor das regras
+    private static final class DbSlots {
+        final int start;
+        final Target[][] slots;
+
+        DbSlots(List<ProjectionProperties.Rule> rules) {
+            int first = Integer.MAX_VALUE;
+            int last = 0;
+            for (ProjectionProperties.Rule rule : rules) {
+                first = Math.min(first, rule.getOffset());
+                last = Math.max(last, rule.getOffset() + (rule.getCount() - 1) * stride(rule));
+            }
+            start = first;
+            slots = new Target[last - first + 1][];
+
+            for (ProjectionProperties.Rule rule : rules) {
+                S7DataType type = S7DataType.of(rule.getType());
+                for (int i = 0; i < rule.getCount(); i++) {
+                    int slot = rule.getOffset() + i * stride(rule) - start;
+                    Target target = new Target(rule.getName(), type, rule.getStorageId(), rule.getPosition() + i, rule.getField());
+                    Target[] current = slots[slot];
+                    if (current == null) {
+                        slots[slot] = new Target[] { target };
+                    } else {
+                        Target[] grown = new Target[current.length + 1];
+                        System.arraycopy(current, 0, grown, 0, current.length);
+                        grown[current.length] = target;
+                        slots[slot] = grown;
+                    }
+                }
+            }
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] == null) {
+                    slots[i] = NONE;
+                }
+            }
+        }
+
+        Target[] at(int offset) {
+            int slot = offset - start;
+            return slot >= 0 && slot < slots.length ? slots[slot] : NONE;
+        }
+
+        private static int stride(ProjectionProperties.Rule rule) {
+            return rule.getStride() > 0 ? rule.getStride() : S7DataType.of(rule.getType()).size(0);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.clpmonitor.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.clpmonitor.util.VirtualThreads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Distribuição de eventos SSE para os navegadores.
+ *
+ * Cada evento é serializado uma única vez (JSON + frame SSE) e colocado na
+ * fila limitada de cada inscrito; o envio acontece nas threads do próprio
+ * broadcaster (virtuais no Java 21+), nunca na thread que publicou. Um cliente lento só afeta a
+ * própria fila, tratada conforme a política configurada:
+ *  - DROP_OLDEST: fila cheia descarta o evento mais antigo;
+ *  - COALESCE: um evento substitui o pendente de mesmo nome (o painel só
+ *    precisa do estado mais recente); se ainda faltar espaço, descarta o mais antigo;
+ *  - DISCONNECT: fila cheia encerra a conexão do cliente (o EventSource reconecta).
+ */
+@Component
+public class SseBroadcaster {
+
+    public enum SlowConsumerPolicy {
+        DROP_OLDEST, COALESCE, DISCONNECT
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${clp.sse.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${clp.sse.slow-consumer-policy:COALESCE}")
+    private SlowConsumerPolicy policy;
+
+    @Value("${clp.sse.sender-threads:4}")
+    private int senderThreads;
+
+    private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void start() {
+        if (VirtualThreads.isAvailable()) {
+            senders = VirtualThreads.newPerTaskExecutor("sse-sender");
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread thread = new Thread(r, "sse-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.close(false));
+        senders.shutdownNow();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Novo cliente; initialEvents (nome -> payload) é enfileirado antes de qualquer publicação
+    // --------------------------------------------------------------------------------------------
+    public SseEmitter subscribe(Map<String, ?> initialEvents) {
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscriber.close(true));
+        emitter.onError(error -> subscriber.close(false));
+
+        initialEvents.forEach((name, data) -> subscriber.offer(encode(name, data)));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public void broadcast(String eventName, Object data) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        EncodedEvent event = encode(eventName, data);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private EncodedEvent encode(String eventName, Object data) {
+        try {
+            String json = objectMapper.writeValueAsString(data);
+            return new EncodedEvent(eventName, SseEmitter.event().name(eventName).data(json).build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Erro ao serializar o evento " + eventName + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static final class EncodedEvent {
+        final String name;
+        final Set<DataWithMediaType> frames;
+
+        EncodedEvent(String name, Set<DataWithMediaType> frames) {
+            this.name = name;
+            this.frames = frames;
+        }
+    }
+
+    private final class Subscriber implements Runnable {
+
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<EncodedEvent> queue = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private boolean closed;
+        private int dropped;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(EncodedEvent event) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (policy == SlowConsumerPolicy.COALESCE) {
+                    queue.removeIf(pending -> pending.name.equals(event.name));
+                }
+                if (queue.size() >= queueCapacity) {
+                    if (policy == SlowConsumerPolicy.DISCONNECT) {
+                        System.err.println("Cliente SSE lento desconectado (fila com " + queue.size() + " eventos).");
+                        close(true);
+                        return;
+                    }
+                    queue.pollFirst();
+                    dropped++;
+                }
+                queue.addLast(event);
+            } finally {
+                lock.unlock();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                senders.execute(this);
+            }
+        }
+
+        // Esvazia a fila; só uma thread por vez atende cada cliente
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    EncodedEvent event;
+                    lock.lock();
+                    try {
+                        event = queue.pollFirst();
+                        if (event == null || closed) {
+                            scheduled.set(false);
+                            return;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                    emitter.send(event.frames);
+                }
+            } catch (IOException | IllegalStateException e) {
+                close(false);
+            }
+        }
+
+        void close(boolean complete) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (dropped > 0) {
+                    System.err.println("Cliente SSE encerrado após descartar " + dropped + " eventos.");
+                }
+                queue.clear();
+            } finally {
+                lock.unlock();
+            }
+            subscribers.remove(this);
+            if (complete) {
+                // Fora da thread de publicação: o complete() espera um envio em andamento
+                senders.execute(emitter::complete);
+            }
+        }
+    }
+}
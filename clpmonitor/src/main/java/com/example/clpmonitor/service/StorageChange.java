@@ -0,0 +1,60 @@
+package com.example.clpmonitor.service;
+
+import com.example.clpmonitor.config.ProjectionProperties.Field;
+
+/*
+ * Valor de um endereço do CLP já projetado numa posição de estoque
+ * (ver ProjectionIndex), a aplicar no banco pelo StorageProjector.
+ * "value" é o valor em texto (cor ou número da ordem de produção).
+ */
+public final class StorageChange {
+
+    private final int storageId;
+    private final int position;
+    private final Field field;
+    private final String value;
+    // Origem para os logs (regra e endereço)
+    private final String source;
+
+    public StorageChange(int storageId, int position, Field field, String value, String source) {
+        this.storageId = storageId;
+        this.position = position;
+        this.field = field;
+        this.value = value;
+        this.source = source;
+    }
+
+    public int getStorageId() {
+        return storageId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    // Mudanças com a mesma chave se substituem: só o último valor precisa chegar ao banco
+    String key() {
+        return key(storageId, position, field);
+    }
+
+    static String key(int storageId, int position, Field field) {
+        return storageId + "|" + position + "|" + field;
+    }
+
+    @Override
+    public String toString() {
+        return "estoque " + storageId + " posição " + position + " " + field + " = " + value + " (" + source + ")";
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.clpmonitor.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.clpmonitor.model.Block;
+import com.example.clpmonitor.model.Order;
+import com.example.clpmonitor.model.Storage;
+import com.example.clpmonitor.repository.BlockRepository;
+import com.example.clpmonitor.repository.OrderRepository;
+import com.example.clpmonitor.repository.StorageRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/*
+ * Cópia em memória das posições de cada estoque (cor e ordem de produção).
+ *
+ * Carregada do banco uma vez na partida; depois disso só muda pelos caminhos
+ * de escrita (StorageUpdateService), que atualizam o banco e chamam setColor/setOrder
+ * (aplicados após o commit, se houver transação). Cada estoque é um Snapshot
+ * imutável com arrays primitivos indexados pela posição: leitores pegam a
+ * referência atual sem lock e escritores trocam por uma cópia alterada.
+ */
+@Component
+public class StorageMatrixCache {
+
+    public static final class Snapshot {
+        private final int[] colors;
+        // Id da Order na posição; 0 = posição livre, -1 = ordem sem cadastro em "orders"
+        private final int[] orderIds;
+        private final long version;
+
+        Snapshot(int[] colors, int[] orderIds, long version) {
+            this.colors = colors;
+            this.orderIds = orderIds;
+            this.version = version;
+        }
+
+        public int getCapacity() {
+            return colors.length;
+        }
+
+        public int getColor(int position) {
+            return position < colors.length ? colors[position] : 0;
+        }
+
+        public int getOrderId(int position) {
+            return position < orderIds.length ? orderIds[position] : 0;
+        }
+
+        public boolean isOccupied(int position) {
+            return getOrderId(position) != 0;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // Cores por posição, completadas com 0 até minSize
+        public List<Integer> colors(int minSize) {
+            List<Integer> list = new ArrayList<>(Math.max(minSize, colors.length));
+            for (int color : colors) {
+                list.add(color);
+            }
+            while (list.size() < minSize) {
+                list.add(0);
+            }
+            return list;
+        }
+
+        // 1 para posição com ordem de produção, 0 para livre, completada até minSize
+        public List<Integer> occupancy(int minSize) {
+            List<Integer> list = new ArrayList<>(Math.max(minSize, orderIds.length));
+            for (int orderId : orderIds) {
+                list.add(orderId != 0 ? 1 : 0);
+            }
+            while (list.size() < minSize) {
+                list.add(0);
+            }
+            return list;
+        }
+
+        private Snapshot with(int position, int color, int orderId, boolean setColor) {
+            int size = Math.max(colors.length, position + 1);
+            int[] newColors = Arrays.copyOf(colors, size);
+            int[] newOrderIds = Arrays.copyOf(orderIds, size);
+            if (setColor) {
+                newColors[position] = color;
+            } else {
+                newOrderIds[position] = orderId;
+            }
+            return new Snapshot(newColors, newOrderIds, version + 1);
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(new int[0], new int[0], 0);
+
+    @Autowired
+    private StorageRepository storageRepository;
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final Map<Integer, Snapshot> storages = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // Sem banco na partida: nova tentativa na primeira leitura
+            System.err.println("Erro ao carregar a matriz de estoque: " + e.getMessage());
+        }
+    }
+
+    // Recarrega todos os estoques do banco (partida e atualização manual)
+    public synchronized void reload() {
+        Map<String, Integer> orderIds = new HashMap<>();
+        for (Storage storage : storageRepository.findAll()) {
+            List<Block> blocks = blockRepository.findByStorageIdOrderByPositionAsc(storage.getId());
+
+            int size = storage.getCapacity() != null ? storage.getCapacity() : 0;
+            for (Block block : blocks) {
+                size = Math.max(size, block.getPosition() + 1);
+            }
+
+            int[] colors = new int[size];
+            int[] orders = new int[size];
+            for (Block block : blocks) {
+                int position = block.getPosition();
+                colors[position] = block.getColor() != null ? block.getColor() : 0;
+                String productionOrder = block.getProductionOrder();
+                if (productionOrder != null) {
+                    orders[position] = orderIds.computeIfAbsent(productionOrder, value -> orderRepository
+                            .findByProductionOrder(value).map(Order::getId).orElse(-1));
+                }
+            }
+
+            Snapshot previous = storages.get(storage.getId());
+            long version = previous != null ? previous.version + 1 : 1;
+            storages.put(storage.getId(), new Snapshot(colors, orders, version));
+        }
+        loaded = true;
+        System.out.println("Matriz de estoque carregada: " + storages.size() + " estoque(s).");
+    }
+
+    // Estado atual do estoque, sem acesso ao banco (vazio se o estoque não existe)
+    public Snapshot get(int storageId) {
+        if (!loaded) {
+            init();
+        }
+        return storages.getOrDefault(storageId, EMPTY);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Escrita: chamadas depois de salvar no banco; com transação ativa só valem após o commit
+    // --------------------------------------------------------------------------------------------
+    public void setColor(int storageId, int position, int color) {
+        runAfterCommit(() -> update(storageId, position, color, 0, true));
+    }
+
+    public void setOrder(int storageId, int position, int orderId) {
+        runAfterCommit(() -> update(storageId, position, 0, orderId, false));
+    }
+
+    private void update(int storageId, int position, int color, int orderId, boolean setColor) {
+        if (position < 0) {
+            throw new IllegalArgumentException("Posição inválida: " + position);
+        }
+        storages.compute(storageId, (id, current) ->
+                (current != null ? current : EMPTY).with(position, color, orderId, setColor));
+    }
+
+    // Executa na hora sem transação ativa; com transação, após o commit (na ordem de registro)
+    public static void runAfterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
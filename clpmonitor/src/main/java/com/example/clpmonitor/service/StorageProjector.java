@@ -0,0 +1,250 @@
+package com.example.clpmonitor.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.clpmonitor.config.ProjectionProperties;
+import com.example.clpmonitor.plc.PlcConnectionPool;
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7WriteItem;
+import com.example.clpmonitor.scan.ScanGroup;
+import com.example.clpmonitor.scan.ScanListener;
+import com.example.clpmonitor.scan.ScanTag;
+import com.example.clpmonitor.scan.TagValue;
+import com.example.clpmonitor.util.VirtualThreads;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Projeção assíncrona dos valores do CLP no banco (estoque e ordens de produção).
+ *
+ * As regras (clp.projection.rules, ver ProjectionProperties) são compiladas na
+ * partida num ProjectionIndex: cada escrita confirmada pelo CLP e, com
+ * clp.projection.from-scan, cada valor varrido é resolvido por endereço em
+ * tempo constante para as posições de estoque que ele alimenta. Valores sem
+ * regra não custam nada além da consulta; valores varridos só entram na fila
+ * quando mudam em relação ao último projetado (uma mudança que falhar no banco
+ * só é tentada de novo quando o valor mudar outra vez).
+ *
+ * O caminho de escrita não abre transação: escreve no CLP e, confirmada a
+ * escrita, só chama submit(), que enfileira a mudança. Uma thread própria junta
+ * as mudanças em lotes (por tamanho ou por flush-interval-ms desde a primeira),
+ * mantém só o último valor de cada posição e aplica o lote em massa numa
+ * transação (StorageUpdateService). Se o lote falhar (uma posição inválida, por
+ * exemplo), as mudanças são reaplicadas uma a uma para que só a inválida fique
+ * de fora. Assim um CLP lento nunca prende uma conexão do pool JDBC, e a
+ * resposta HTTP sai assim que o CLP confirma.
+ *
+ * Como na auditoria, a fila é limitada: cheia, submit() espera até
+ * offer-timeout-ms e depois descarta a mudança (contada em getDroppedCount);
+ * a varredura nunca espera. "Atualizar" na tela (/manual-refresh) relê o
+ * estoque do banco.
+ */
+@Component
+public class StorageProjector implements ScanListener {
+
+    @Autowired
+    private StorageUpdateService storageUpdates;
+
+    @Autowired
+    private ProjectionProperties projectionProperties;
+
+    @Value("${clp.projector.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${clp.projector.batch-size:200}")
+    private int batchSize;
+
+    @Value("${clp.projector.flush-interval-ms:100}")
+    private long flushIntervalMs;
+
+    @Value("${clp.projector.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private volatile ProjectionIndex index = ProjectionIndex.EMPTY;
+    // Último valor enfileirado por posição (chave de StorageChange), para filtrar a varredura
+    private final Map<String, String> lastProjected = new ConcurrentHashMap<>();
+    private BlockingQueue<StorageChange> queue;
+    private Thread projector;
+    private volatile boolean running = true;
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        index = new ProjectionIndex(projectionProperties.getRules());
+        System.out.println("Projeção no banco: " + index.getRuleCount() + " regra(s)"
+                + (projectionProperties.isFromScan() ? ", valores varridos incluídos." : "."));
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        projector = VirtualThreads.factory("storage-projector").newThread(this::run);
+        projector.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // O projetor esvazia a fila antes de sair
+        running = false;
+        try {
+            projector.join(flushIntervalMs + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Escrita confirmada pelo CLP; false se alguma mudança foi descartada por falta de vaga
+    // --------------------------------------------------------------------------------------------
+    public boolean submit(String ip, int port, S7WriteItem item) {
+        return project(ip, port, item.getDb(), item.getOffset(), item.getDataType(), item.getValue(), false);
+    }
+
+    @Override
+    public void onScan(ScanGroup group, List<TagValue> values) {
+        if (!projectionProperties.isFromScan()) {
+            return;
+        }
+        for (TagValue value : values) {
+            if (value.isGood() && value.getValue() != null) {
+                ScanTag tag = value.getTag();
+                project(group.getIp(), group.getPort(), tag.getDb(), tag.getOffset(), tag.getDataType(), value.getValue(),
+                        true);
+            }
+        }
+    }
+
+    // BLOCK é projetado byte a byte, como BYTEs consecutivos
+    private boolean project(String ip, int port, int db, int offset, S7DataType type, Object value, boolean scanned) {
+        if (type == S7DataType.BLOCK && value instanceof byte[] bytes) {
+            boolean accepted = true;
+            for (int i = 0; i < bytes.length; i++) {
+                accepted &= project(ip, port, db, offset + i, S7DataType.BYTE, bytes[i], scanned);
+            }
+            return accepted;
+        }
+
+        boolean accepted = true;
+        for (ProjectionIndex.Target target : index.lookup(ip, port, db, offset, type)) {
+            String text = value instanceof Byte b ? String.valueOf(Byte.toUnsignedInt(b)) : type.format(value);
+            String key = StorageChange.key(target.storageId, target.position, target.field);
+            if (scanned && text.equals(lastProjected.get(key))) {
+                continue;
+            }
+            lastProjected.put(key, text);
+            String source = PlcConnectionPool.key(ip, port) + " DB" + db + "." + offset;
+            StorageChange change = new StorageChange(target.storageId, target.position, target.field, text,
+                    target.rule != null ? target.rule + " " + source : source);
+            accepted &= enqueue(change, scanned);
+        }
+        return accepted;
+    }
+
+    // A varredura não espera por vaga (roda na thread do ciclo)
+    private boolean enqueue(StorageChange change, boolean scanned) {
+        try {
+            if (scanned ? queue.offer(change) : queue.offer(change, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Descartada: a próxima leitura igual precisa tentar de novo
+        lastProjected.remove(change.key());
+        long total = dropped.incrementAndGet();
+        System.err.println("Projeção no banco: fila cheia, mudança descartada (" + total + " descartadas até agora).");
+        return false;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Thread do projetor: lote fecha por tamanho ou por tempo desde a primeira mudança
+    // --------------------------------------------------------------------------------------------
+    private void run() {
+        List<StorageChange> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                StorageChange first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (running && batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long waitNanos = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || waitNanos <= 0) {
+                        break;
+                    }
+                    StorageChange next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                apply(latestPerAddress(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Mantém a ordem de chegada da última mudança de cada posição
+    private static List<StorageChange> latestPerAddress(List<StorageChange> batch) {
+        Map<String, StorageChange> latest = new LinkedHashMap<>();
+        for (StorageChange change : batch) {
+            latest.remove(change.key());
+            latest.put(change.key(), change);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private void apply(List<StorageChange> changes) {
+        try {
+            storageUpdates.applyAll(changes);
+            applied.addAndGet(changes.size());
+            return;
+        } catch (Exception e) {
+            if (changes.size() == 1) {
+                failed.incrementAndGet();
+                System.err.println("Projeção no banco: " + changes.get(0) + " não aplicada: " + e.getMessage());
+                return;
+            }
+            System.err.println("Projeção no banco: lote de " + changes.size() + " mudança(s) falhou ("
+                    + e.getMessage() + "), aplicando uma a uma.");
+        }
+        for (StorageChange change : changes) {
+            apply(List.of(change));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.clpmonitor.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.clpmonitor.config.ProjectionProperties.Field;
+import com.example.clpmonitor.model.Block;
+import com.example.clpmonitor.model.Order;
+import com.example.clpmonitor.model.Storage;
+import com.example.clpmonitor.repository.BlockRepository;
+import com.example.clpmonitor.repository.OrderRepository;
+import com.example.clpmonitor.repository.StorageRepository;
+
+import jakarta.transaction.Transactional;
+
+/*
+ * Aplica no banco um lote de mudanças já projetadas (cor do bloco, ordem de
+ * produção), numa única transação e em massa: os estoques do lote são lidos
+ * com um findAllById, os blocos de cada estoque uma vez, as ordens citadas com
+ * uma consulta IN (as que faltam são criadas juntas) e os blocos alterados
+ * gravados com um saveAll. Chamado pelo StorageProjector.
+ */
+@Service
+public class StorageUpdateService {
+
+    @Autowired
+    private BlockRepository blockRepository;
+
+    @Autowired
+    private StorageRepository storageRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StorageMatrixCache storageMatrix;
+
+    @Autowired
+    private ClpSimulatorService simulatorService;
+
+    @Transactional
+    public void applyAll(List<StorageChange> changes) {
+        Set<Integer> storageIds = new LinkedHashSet<>();
+        Set<String> orderValues = new LinkedHashSet<>();
+        for (StorageChange change : changes) {
+            storageIds.add(change.getStorageId());
+            if (change.getField() == Field.ORDER && !isEmptyOrder(change.getValue())) {
+                orderValues.add(change.getValue().trim());
+            }
+        }
+
+        Map<Integer, Storage> storages = new HashMap<>();
+        storageRepository.findAllById(storageIds).forEach(storage -> storages.put(storage.getId(), storage));
+        Map<Integer, Map<Integer, Block>> blocks = new HashMap<>();
+        Map<String, Order> orders = loadOrders(orderValues);
+        Set<Block> changed = new LinkedHashSet<>();
+        boolean refreshMatrix = false;
+
+        for (StorageChange change : changes) {
+            Storage storage = storages.get(change.getStorageId());
+            if (storage == null) {
+                throw new RuntimeException("Storage não encontrado: " + change.getStorageId());
+            }
+            Map<Integer, Block> storageBlocks = blocks.computeIfAbsent(storage.getId(), this::loadBlocks);
+
+            Block block = change.getField() == Field.COLOR
+                    ? updateBlockColor(storage, storageBlocks, change.getPosition(), Integer.parseInt(change.getValue().trim()))
+                    : updateProductionOrder(storage, storageBlocks, orders, change.getPosition(), change.getValue().trim());
+            changed.add(block);
+            refreshMatrix |= change.getField() == Field.COLOR;
+        }
+
+        blockRepository.saveAll(changed);
+
+        // Atualização imediata da matriz, após o commit para já ver a nova cor
+        if (refreshMatrix) {
+            StorageMatrixCache.runAfterCommit(simulatorService::triggerManualUpdate);
+        }
+    }
+
+    private Block updateBlockColor(Storage storage, Map<Integer, Block> blocks, int position, int color) {
+        // Verifica se a posição é válida
+        if (position < 0 || position >= storage.getCapacity()) {
+            throw new IllegalArgumentException("Posição inválida: " + position);
+        }
+
+        // Busca ou cria o bloco
+        Block block = blocks.computeIfAbsent(position, p -> {
+            Block newBlock = new Block();
+            newBlock.setStorage(storage);
+            newBlock.setPosition(p);
+            return newBlock;
+        });
+
+        // Atualiza a cor (banco e cópia em memória lida pelo ClpSimulatorService)
+        block.setColor(color);
+        storageMatrix.setColor(storage.getId(), position, color);
+        return block;
+    }
+
+    private Block updateProductionOrder(Storage storage, Map<Integer, Block> blocks, Map<String, Order> orders,
+            int position, String orderValue) {
+        Block block = blocks.get(position);
+        if (block == null) {
+            throw new RuntimeException("Bloco não encontrado para a posição: " + position);
+        }
+
+        // Cria ou atualiza a ordem de produção
+        if (!isEmptyOrder(orderValue)) {
+            block.setProductionOrder(orderValue);
+            storageMatrix.setOrder(storage.getId(), position, orders.get(orderValue).getId());
+        } else {
+            block.setProductionOrder(null);
+            storageMatrix.setOrder(storage.getId(), position, 0);
+        }
+        return block;
+    }
+
+    private Map<Integer, Block> loadBlocks(int storageId) {
+        Map<Integer, Block> blocks = new HashMap<>();
+        for (Block block : blockRepository.findByStorageIdOrderByPositionAsc(storageId)) {
+            blocks.put(block.getPosition(), block);
+        }
+        return blocks;
+    }
+
+    // Ordens citadas no lote, numa consulta; as que não existem são criadas de uma vez
+    private Map<String, Order> loadOrders(Set<String> orderValues) {
+        Map<String, Order> orders = new HashMap<>();
+        if (orderValues.isEmpty()) {
+            return orders;
+        }
+        orderRepository.findByProductionOrderIn(orderValues).forEach(order -> orders.put(order.getProductionOrder(), order));
+
+        List<Order> created = new ArrayList<>();
+        for (String value : orderValues) {
+            if (!orders.containsKey(value)) {
+                Order newOrder = new Order();
+                newOrder.setProductionOrder(value);
+                created.add(newOrder);
+            }
+        }
+        orderRepository.saveAll(created).forEach(order -> orders.put(order.getProductionOrder(), order));
+        return orders;
+    }
+
+    private static boolean isEmptyOrder(String value) {
+        return value.trim().isEmpty() || value.trim().equals("0");
+    }
+}
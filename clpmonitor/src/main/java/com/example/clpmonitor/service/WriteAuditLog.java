@@ -0,0 +1,267 @@
+package com.example.clpmonitor.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.clpmonitor.model.TagLog;
+import com.example.clpmonitor.util.VirtualThreads;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/*
+ * Gravação assíncrona da trilha de auditoria (tabela tag_log).
+ *
+ * record() só enfileira o registro numa fila limitada; uma thread própria
+ * junta os registros e grava com INSERT em lote (JDBC batch) quando o lote
+ * enche ou quando o intervalo de flush vence, o que vier primeiro. Com o banco
+ * lento a fila enche e record() passa a esperar até offer-timeout-ms por
+ * vaga (contrapressão limitada); esgotado o prazo o registro é descartado e
+ * contado, para que a escrita no CLP nunca fique presa ao banco.
+ *
+ * Os campos são cortados no tamanho das colunas de tag_log já em record()
+ * (um BLOCK grande em hexa passa dos 255 de old_value/new_value). Se ainda
+ * assim o lote for recusado, os registros são gravados um a um para que só o
+ * inválido se perca. Com o banco fora (falha de conexão ou transitória) o
+ * lote é tentado de novo com espera crescente antes de ser descartado.
+ */
+@Component
+public class WriteAuditLog {
+
+    private static final String INSERT_SQL = "INSERT INTO tag_log (operation_time, operation_type, operator, plc_ip,"
+            + " address, old_value, new_value, details, success, latency_ms) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // Tentativas de gravar o mesmo lote antes de descartá-lo
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Tamanho das colunas de tag_log (ver TagLog)
+    private static final int OPERATION_TYPE_LENGTH = 16;
+    private static final int OPERATOR_LENGTH = 100;
+    private static final int PLC_IP_LENGTH = 64;
+    private static final int ADDRESS_LENGTH = 64;
+    private static final int VALUE_LENGTH = 255;
+    private static final int DETAILS_LENGTH = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Cada lote numa transação: lote recusado não deixa linhas gravadas (a regravação um a um não duplica)
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${clp.audit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${clp.audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${clp.audit.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${clp.audit.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<TagLog> queue;
+    private Thread writer;
+    private volatile boolean running = true;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        writer = VirtualThreads.factory("audit-writer").newThread(this::run);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // O writer esvazia a fila antes de sair
+        running = false;
+        try {
+            writer.join(flushIntervalMs + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Enfileira o registro; false se foi descartado por falta de vaga
+    // --------------------------------------------------------------------------------------------
+    public boolean record(TagLog entry) {
+        entry.setOperationType(truncate(entry.getOperationType(), OPERATION_TYPE_LENGTH));
+        entry.setOperator(truncate(entry.getOperator(), OPERATOR_LENGTH));
+        entry.setPlcIp(truncate(entry.getPlcIp(), PLC_IP_LENGTH));
+        entry.setAddress(truncate(entry.getAddress(), ADDRESS_LENGTH));
+        entry.setOldValue(truncate(entry.getOldValue(), VALUE_LENGTH));
+        entry.setNewValue(truncate(entry.getNewValue(), VALUE_LENGTH));
+        entry.setDetails(truncate(entry.getDetails(), DETAILS_LENGTH));
+        try {
+            if (queue.offer(entry, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long total = dropped.incrementAndGet();
+        System.err.println("Auditoria: fila cheia, registro descartado (" + total + " descartados até agora).");
+        return false;
+    }
+
+    // Corta o texto no tamanho da coluna, marcando o corte com "..."
+    static String truncate(String value, int length) {
+        if (value == null || value.length() <= length) {
+            return value;
+        }
+        return value.substring(0, length - 3) + "...";
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // Thread de gravação: lote fecha por tamanho ou por tempo desde o primeiro registro
+    // --------------------------------------------------------------------------------------------
+    private void run() {
+        List<TagLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                TagLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (running && batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long waitNanos = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || waitNanos <= 0) {
+                        break;
+                    }
+                    TagLog next = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queue.drainTo(batch, batchSize - batch.size());
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<TagLog> batch) throws InterruptedException {
+        Exception error = insert(batch);
+        if (error == null) {
+            return;
+        }
+        System.err.println("Auditoria: erro ao gravar lote de " + batch.size() + " registro(s) (tentativa 1/"
+                + MAX_ATTEMPTS + "): " + error.getMessage());
+
+        // Um registro recusado não pode levar o lote inteiro: grava um a um, a não ser que o banco esteja fora
+        List<TagLog> pending = batch;
+        if (batch.size() > 1 && !isUnavailable(error)) {
+            pending = new ArrayList<>();
+            int rejected = 0;
+            for (TagLog entry : batch) {
+                Exception rowError = pending.isEmpty() ? insert(List.of(entry)) : error;
+                if (rowError == null) {
+                    continue;
+                }
+                if (isUnavailable(rowError)) {
+                    pending.add(entry);
+                    error = rowError;
+                } else {
+                    rejected++;
+                    System.err.println("Auditoria: registro recusado pelo banco e descartado (" + entry.getAddress()
+                            + "): " + rowError.getMessage());
+                }
+            }
+            dropped.addAndGet(rejected);
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+
+        // Banco indisponível: novas tentativas com espera crescente
+        for (int attempt = 2; attempt <= MAX_ATTEMPTS; attempt++) {
+            // Enquanto espera, a fila enche e aplica contrapressão em record()
+            Thread.sleep(flushIntervalMs * (attempt - 1));
+            error = insert(pending);
+            if (error == null) {
+                return;
+            }
+            System.err.println("Auditoria: erro ao gravar lote de " + pending.size() + " registro(s) (tentativa "
+                    + attempt + "/" + MAX_ATTEMPTS + "): " + error.getMessage());
+        }
+        dropped.addAndGet(pending.size());
+    }
+
+    // Falha de conexão ou transitória (vale tentar de novo), ao contrário de um registro inválido
+    private static boolean isUnavailable(Exception error) {
+        return error instanceof TransientDataAccessException || error instanceof RecoverableDataAccessException
+                || error instanceof DataAccessResourceFailureException;
+    }
+
+    // null se gravou; senão o erro
+    private Exception insert(List<TagLog> entries) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    TagLog entry = entries.get(i);
+                    ps.setTimestamp(1, Timestamp.valueOf(entry.getOperationTime()));
+                    ps.setString(2, entry.getOperationType());
+                    ps.setString(3, entry.getOperator());
+                    ps.setString(4, entry.getPlcIp());
+                    ps.setString(5, entry.getAddress());
+                    ps.setString(6, entry.getOldValue());
+                    ps.setString(7, entry.getNewValue());
+                    ps.setString(8, entry.getDetails());
+                    ps.setBoolean(9, entry.isSuccess());
+                    ps.setLong(10, entry.getLatencyMs());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return entries.size();
+                }
+            }));
+            written.addAndGet(entries.size());
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.clpmonitor.trend;
+
+import java.util.Arrays;
+
+/*
+ * Redução de séries para a largura do gráfico, feita no servidor.
+ *
+ * LTTB (Largest-Triangle-Three-Buckets, Steinarsson 2013): mantém o primeiro
+ * e o último ponto e, em cada balde intermediário, o ponto que forma o maior
+ * triângulo com o ponto escolhido no balde anterior e a média do próximo.
+ * Preserva o formato visual da curva com exatamente "threshold" pontos.
+ *
+ * MINMAX: divide o intervalo de tempo em "buckets" faixas iguais e mantém o
+ * mínimo e o máximo de cada faixa (na ordem em que ocorreram). Picos nunca
+ * se perdem; gera até 2 pontos por faixa.
+ */
+public final class Downsampler {
+
+    public enum Mode {
+        LTTB, MINMAX
+    }
+
+    private Downsampler() {
+    }
+
+    public static TrendSeries downsample(TrendSeries series, int width, Mode mode) {
+        return mode == Mode.MINMAX ? minMax(series, width) : lttb(series, width);
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // LTTB
+    // --------------------------------------------------------------------------------------------
+    public static TrendSeries lttb(TrendSeries series, int threshold) {
+        long[] t = series.getTimestamps();
+        double[] v = series.getValues();
+        int n = t.length;
+        if (threshold >= n || threshold < 3) {
+            return series;
+        }
+
+        long[] outT = new long[threshold];
+        double[] outV = new double[threshold];
+        outT[0] = t[0];
+        outV[0] = v[0];
+
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int selected = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // Média do próximo balde (no último, o próprio ponto final)
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            double avgT = 0;
+            double avgV = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgT += t[i];
+                avgV += v[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgT /= nextCount;
+            avgV /= nextCount;
+
+            double baseT = t[selected];
+            double baseV = v[selected];
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((baseT - avgT) * (v[i] - baseV) - (baseT - t[i]) * (avgV - baseV));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            outT[bucket + 1] = t[best];
+            outV[bucket + 1] = v[best];
+            selected = best;
+        }
+
+        outT[threshold - 1] = t[n - 1];
+        outV[threshold - 1] = v[n - 1];
+        return new TrendSeries(series.getTag(), outT, outV, series.getRawCount());
+    }
+
+    // --------------------------------------------------------------------------------------------
+    // MINMAX
+    // --------------------------------------------------------------------------------------------
+    public static TrendSeries minMax(TrendSeries series, int buckets) {
+        long[] t = series.getTimestamps();
+        double[] v = series.getValues();
+        int n = t.length;
+        if (buckets < 1 || n <= 2 * buckets) {
+            return series;
+        }
+
+        long first = t[0];
+        double span = Math.max(1, t[n - 1] - first + 1);
+        long[] outT = new long[2 * buckets];
+        double[] outV = new double[2 * buckets];
+        int out = 0;
+
+        int i = 0;
+        while (i < n) {
+            int bucket = (int) ((t[i] - first) * buckets / span);
+            int min = i;
+            int max = i;
+            int j = i + 1;
+            while (j < n && (int) ((t[j] - first) * buckets / span) == bucket) {
+                if (v[j] < v[min]) {
+                    min = j;
+                }
+                if (v[j] > v[max]) {
+                    max = j;
+                }
+                j++;
+            }
+            int a = Math.min(min, max);
+            int b = Math.max(min, max);
+            outT[out] = t[a];
+            outV[out++] = v[a];
+            if (b != a) {
+                outT[out] = t[b];
+                outV[out++] = v[b];
+            }
+            i = j;
+        }
+
+        return new TrendSeries(series.getTag(), Arrays.copyOf(outT, out), Arrays.copyOf(outV, out),
+                series.getRawCount());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.clpmonitor.trend;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Buffer circular das últimas amostras de uma tag, em arrays primitivos
+ * (sem boxing). Quando cheio, a amostra nova sobrescreve a mais antiga.
+ * Os instantes são mantidos em ordem não decrescente, o que permite localizar
+ * o início de um intervalo por busca binária.
+ */
+public final class TrendBuffer {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int head; // posição da próxima escrita
+    private int size;
+
+    public TrendBuffer(int capacity) {
+        this.timestamps = new long[Math.max(2, capacity)];
+        this.values = new double[timestamps.length];
+    }
+
+    public void add(long timestamp, double value) {
+        lock.lock();
+        try {
+            if (size > 0) {
+                timestamp = Math.max(timestamp, timestamps[index(size - 1)]);
+            }
+            timestamps[head] = timestamp;
+            values[head] = value;
+            head = (head + 1) % timestamps.length;
+            if (size < timestamps.length) {
+                size++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cópia das amostras em [from, to], em ordem de tempo
+    public TrendSeries snapshot(String tag, long from, long to) {
+        lock.lock();
+        try {
+            int start = from == Long.MIN_VALUE ? 0 : firstAfter(from - 1);
+            int end = firstAfter(to);
+            int count = Math.max(0, end - start);
+            long[] t = new long[count];
+            double[] v = new double[count];
+            for (int i = 0; i < count; i++) {
+                int slot = index(start + i);
+                t[i] = timestamps[slot];
+                v[i] = values[slot];
+            }
+            return new TrendSeries(tag, t, v, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    // i-ésima amostra mais antiga -> posição no array
+    private int index(int i) {
+        return (head - size + i + timestamps.length) % timestamps.length;
+    }
+
+    // Primeira amostra com instante maior que timestamp (size se nenhuma)
+    private int firstAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[index(mid)] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.clpmonitor.trend;
+
+/*
+ * Série para gráficos: instantes (epoch em ms) e valores em arrays paralelos,
+ * serializados como dois arrays JSON (bem menor que uma lista de objetos).
+ */
+public final class TrendSeries {
+
+    private final String tag;
+    private final long[] timestamps;
+    private final double[] values;
+    private final int rawCount;
+
+    public TrendSeries(String tag, long[] timestamps, double[] values, int rawCount) {
+        this.tag = tag;
+        this.timestamps = timestamps;
+        this.values = values;
+        this.rawCount = rawCount;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    // Quantidade de amostras antes da redução
+    public int getRawCount() {
+        return rawCount;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+}
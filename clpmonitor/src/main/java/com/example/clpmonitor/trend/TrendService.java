@@ -0,0 +1,62 @@
+package com.example.clpmonitor.trend;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.clpmonitor.scan.ScanGroup;
+import com.example.clpmonitor.scan.ScanListener;
+import com.example.clpmonitor.scan.TagValue;
+
+/*
+ * Últimas amostras de cada tag em memória para sparklines e gráficos de tendência.
+ *
+ * Cada valor numérico varrido (BIT como 0/1) entra no TrendBuffer da tag
+ * ("plc.tag"); outras fontes, como os valores simulados dos CLPs 2 a 4,
+ * chamam record() com o nome do evento. Com capacity amostras por tag, a
+ * janela coberta é capacity x período de varredura.
+ */
+@Component
+public class TrendService implements ScanListener {
+
+    @Value("${clp.trend.capacity:3600}")
+    private int capacity;
+
+    private final Map<String, TrendBuffer> buffers = new ConcurrentHashMap<>();
+
+    @Override
+    public void onScan(ScanGroup group, List<TagValue> values) {
+        for (TagValue value : values) {
+            if (!value.isGood()) {
+                continue;
+            }
+            if (value.getValue() instanceof Number number) {
+                record(value.getName(), value.getTimestamp(), number.doubleValue());
+            } else if (value.getValue() instanceof Boolean bool) {
+                record(value.getName(), value.getTimestamp(), bool ? 1 : 0);
+            }
+        }
+    }
+
+    public void record(String tag, long timestamp, double value) {
+        buffers.computeIfAbsent(tag, name -> new TrendBuffer(capacity)).add(timestamp, value);
+    }
+
+    public Set<String> getTags() {
+        return new TreeSet<>(buffers.keySet());
+    }
+
+    // Amostras da tag em [from, to] reduzidas para "width" pontos (série vazia se a tag não existe)
+    public TrendSeries query(String tag, long from, long to, int width, Downsampler.Mode mode) {
+        TrendBuffer buffer = buffers.get(tag);
+        if (buffer == null) {
+            return new TrendSeries(tag, new long[0], new double[0], 0);
+        }
+        return Downsampler.downsample(buffer.snapshot(tag, from, to), width, mode);
+    }
+}
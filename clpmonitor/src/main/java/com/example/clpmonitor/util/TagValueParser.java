@@ -1,17 +1,13 @@
 package com.example.clpmonitor.util;
 
+import com.example.clpmonitor.plc.S7DataType;
+
 public class TagValueParser {
 
+    // A conversão de cada tipo fica no codec S7DataType
     public static Object parseValue(String value, String type) {
         try {
-            return switch (type.toUpperCase()) {
-                case "INTEGER" -> Integer.parseInt(value);
-                case "FLOAT"   -> Float.parseFloat(value);
-                case "BYTE"    -> Byte.parseByte(value);
-                case "BIT"     -> Integer.parseInt(value); // ou Boolean.parseBoolean(value)
-                case "STRING", "BLOCK" -> value;
-                default -> throw new IllegalArgumentException("Tipo de dado não suportado: " + type);
-            };
+            return S7DataType.of(type).parse(value);
         } catch (Exception e) {
             throw new RuntimeException("Erro ao converter valor: " + value + " para o tipo: " + type, e);
         }
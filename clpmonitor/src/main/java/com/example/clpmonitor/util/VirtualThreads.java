@@ -0,0 +1,97 @@
+package com.example.clpmonitor.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Threads virtuais quando a JVM oferece (Java 21+), com fallback para threads
+ * de plataforma daemon. O projeto ainda compila com --release 17, por isso as
+ * APIs do Java 21 são localizadas por reflexão uma única vez. Os métodos do
+ * builder vêm da interface pública Thread.Builder: a classe concreta
+ * (ThreadBuilders$VirtualThreadBuilder) não é pública e o invoke nela falha.
+ *
+ * Uso: I/O bloqueante com o CLP, ciclos de varredura e envio SSE. Agendamento
+ * (timing) continua em threads de plataforma.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = find(Thread.class, "ofVirtual");
+    private static final Method NEW_THREAD_PER_TASK = find(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+    private static final Class<?> BUILDER = findClass("java.lang.Thread$Builder");
+    private static final Method BUILDER_NAME = find(BUILDER, "name", String.class, long.class);
+    private static final Method BUILDER_FACTORY = find(BUILDER, "factory");
+    private static final Method IS_VIRTUAL = find(Thread.class, "isVirtual");
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        return OF_VIRTUAL != null && NEW_THREAD_PER_TASK != null && BUILDER_NAME != null && BUILDER_FACTORY != null;
+    }
+
+    // Thread.isVirtual() do Java 21; sempre false no 17
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    // Fábrica de threads nomeadas prefixo-N
+    public static ThreadFactory factory(String prefix) {
+        if (isAvailable()) {
+            try {
+                Object builder = OF_VIRTUAL.invoke(null);
+                builder = BUILDER_NAME.invoke(builder, prefix + "-", 1L);
+                return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("Threads virtuais indisponíveis, usando threads de plataforma: " + e.getMessage());
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Uma thread (virtual) por tarefa; sem Java 21, pool de threads de plataforma sob demanda
+    public static ExecutorService newPerTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+        if (isAvailable()) {
+            try {
+                return (ExecutorService) NEW_THREAD_PER_TASK.invoke(null, factory);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("Threads virtuais indisponíveis, usando threads de plataforma: " + e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool(factory);
+    }
+
+    private static Class<?> findClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method find(Class<?> type, String name, Class<?>... parameters) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
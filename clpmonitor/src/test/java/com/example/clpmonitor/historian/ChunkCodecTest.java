@@ -0,0 +1,119 @@
+package com.example.clpmonitor.historian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+// Ida e volta do ChunkCodec em cada faixa de delta-of-delta e em cada caso do XOR
+class ChunkCodecTest {
+
+	private static final long T0 = 1_700_000_000_000L;
+
+	@Test
+	void roundTripsEveryDeltaOfDeltaRange() {
+		// Bordas de cada faixa ('0', 7, 9, 12 e 64 bits) e os primeiros valores que caem na seguinte
+		long[] dods = { 0, 64, -63, -64, 65, 256, -255, -256, 257, 2048, -2047, -2048, 2049, 100_000, -100_000, 0 };
+		long[] timestamps = new long[dods.length + 2];
+		timestamps[0] = T0;
+		long delta = 5000;
+		timestamps[1] = T0 + delta;
+		for (int i = 0; i < dods.length; i++) {
+			delta += dods[i];
+			timestamps[i + 2] = timestamps[i + 1] + delta;
+		}
+		double[] values = new double[timestamps.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i;
+		}
+
+		assertRoundTrip(timestamps, values);
+	}
+
+	@Test
+	void roundTripsRepeatedReusedAndNewXorWindows() {
+		double[] values = { 1.0, 1.0, 3.0, 1.0, 1.0000000000000002, -0.0, 0.0, Double.longBitsToDouble(1),
+				Double.MAX_VALUE, Double.NEGATIVE_INFINITY, Double.NaN, 42.5, 42.5, -1e-300 };
+		long[] timestamps = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			timestamps[i] = T0 + i * 1000L;
+		}
+
+		assertRoundTrip(timestamps, values);
+	}
+
+	@Test
+	void regularSamplingCostsTwoBitsPerSample() {
+		ChunkCodec.Encoder encoder = new ChunkCodec.Encoder(100);
+		for (int i = 0; i < 100; i++) {
+			encoder.append(T0 + i * 1000L, 5.0);
+		}
+		// 128 bits da primeira amostra, 12 + 4 de prefixo do primeiro delta, 1 por valor repetido
+		// e, a partir da terceira, '0' para o delta e '0' para o valor
+		assertEquals((128 + 17 + 98 * 2 + 7) / 8, encoder.byteLength());
+	}
+
+	@Test
+	void reusesTheXorWindowWhenItFits() {
+		// 1.0 -> 3.0 abre a janela (12 bits significativos); 3.0 -> 1.0 tem o mesmo XOR e a reaproveita
+		ChunkCodec.Encoder reused = encode(1.0, 3.0, 1.0);
+		assertEquals((128 + 16 + 25 + 1 + 14) / 8, reused.byteLength());
+
+		// O XOR de 3.0 -> 1.0000000000000002 tem zeros à direita a menos: janela nova
+		ChunkCodec.Encoder opened = encode(1.0, 3.0, 1.0000000000000002);
+		assertEquals((128 + 16 + 25 + 1 + 2 + 5 + 6 + 63 + 7) / 8, opened.byteLength());
+	}
+
+	@Test
+	void decodesFromOffsetAndStopsAtIntervalAndLimit() {
+		ChunkCodec.Encoder encoder = new ChunkCodec.Encoder(10);
+		for (int i = 0; i < 10; i++) {
+			encoder.append(T0 + i * 1000L, i * 1.5);
+		}
+		byte[] data = encoder.toByteArray();
+		// Como no segmento: o bloco começa depois do cabeçalho do registro
+		ByteBuffer buffer = ByteBuffer.allocate(7 + data.length).put(new byte[7]).put(data);
+
+		List<HistorySample> out = new ArrayList<>();
+		ChunkCodec.decode(buffer, 7, encoder.getCount(), T0 + 2000, T0 + 6000, Integer.MAX_VALUE, out);
+		assertEquals(5, out.size());
+		assertEquals(T0 + 2000, out.get(0).getTimestamp());
+		assertEquals(9.0, out.get(4).getValue());
+
+		out.clear();
+		ChunkCodec.decode(buffer, 7, encoder.getCount(), T0, T0 + 9000, 3, out);
+		assertEquals(3, out.size());
+		assertEquals(T0 + 2000, out.get(2).getTimestamp());
+	}
+
+	private static ChunkCodec.Encoder encode(double... values) {
+		ChunkCodec.Encoder encoder = new ChunkCodec.Encoder(values.length);
+		for (int i = 0; i < values.length; i++) {
+			encoder.append(T0 + i * 1000L, values[i]);
+		}
+		return encoder;
+	}
+
+	private static void assertRoundTrip(long[] timestamps, double[] values) {
+		ChunkCodec.Encoder encoder = new ChunkCodec.Encoder(timestamps.length);
+		for (int i = 0; i < timestamps.length; i++) {
+			encoder.append(timestamps[i], values[i]);
+		}
+		assertEquals(timestamps.length, encoder.getCount());
+		assertEquals(timestamps[0], encoder.getFirstTimestamp());
+		assertEquals(timestamps[timestamps.length - 1], encoder.getLastTimestamp());
+
+		List<HistorySample> out = new ArrayList<>();
+		ChunkCodec.decode(ByteBuffer.wrap(encoder.toByteArray()), 0, encoder.getCount(), Long.MIN_VALUE,
+				Long.MAX_VALUE, Integer.MAX_VALUE, out);
+		assertEquals(timestamps.length, out.size());
+		for (int i = 0; i < timestamps.length; i++) {
+			assertEquals(timestamps[i], out.get(i).getTimestamp(), "instante " + i);
+			assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(out.get(i).getValue()),
+					"valor " + i);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.example.clpmonitor.historian;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+// Blocos fechados e aberto na mesma consulta, reconstrução do índice e descarte de registro incompleto
+class HistorianTest {
+
+	private static final long MINUTE = 60_000L;
+
+	@TempDir
+	Path dir;
+
+	private final List<Historian> started = new ArrayList<>();
+
+	@AfterEach
+	void stop() {
+		started.forEach(Historian::stop);
+	}
+
+	@Test
+	void queriesSealedAndOpenChunksInOrder() throws Exception {
+		Historian historian = start();
+		long base = windowStart();
+		for (int i = 0; i < 10; i++) {
+			historian.append("estoque.nivel", base + i * 1000L, i);
+		}
+
+		// chunk-samples = 4: dois blocos fechados e duas amostras no bloco aberto
+		List<HistorySample> all = historian.query("estoque.nivel", base, base + MINUTE);
+		assertEquals(10, all.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(base + i * 1000L, all.get(i).getTimestamp());
+			assertEquals(i, all.get(i).getValue());
+		}
+		assertEquals(3, historian.query("estoque.nivel", base + 3000, base + 5000).size());
+		assertEquals(6, historian.query("estoque.nivel", base, base + MINUTE, 6).size());
+	}
+
+	@Test
+	void reloadsIndexFromSegmentsAcrossWindows() throws Exception {
+		Historian first = start();
+		long base = windowStart();
+		// Duas janelas de segmento (segment-minutes = 1) e duas tags
+		for (int i = 0; i < 90; i++) {
+			first.append("estoque.nivel", base + i * 1000L, i * 0.5);
+			first.append("expedicao.ocupacao", base + i * 1000L, i % 3);
+		}
+		stopNow(first);
+		assertEquals(2, segmentFiles().size());
+
+		Historian reloaded = start();
+		assertEquals(Set.of("estoque.nivel", "expedicao.ocupacao"), reloaded.getTags());
+		List<HistorySample> samples = reloaded.query("estoque.nivel", base, base + 2 * MINUTE);
+		assertEquals(90, samples.size());
+		assertEquals(base + 89_000L, samples.get(89).getTimestamp());
+		assertEquals(44.5, samples.get(89).getValue());
+		assertEquals(90, reloaded.query("expedicao.ocupacao", base, base + 2 * MINUTE).size());
+	}
+
+	@Test
+	void truncatesIncompleteRecordOnReload() throws Exception {
+		Historian first = start();
+		long base = windowStart();
+		for (int i = 0; i < 10; i++) {
+			first.append("estoque.nivel", base + i * 1000L, i);
+		}
+		stopNow(first);
+
+		// Registro cortado no meio (queda durante a gravação): cabeçalho completo, só 10 dos 100 bytes de dados
+		Path segment = segmentFiles().get(0);
+		long size = Files.size(segment);
+		ByteBuffer tail = ByteBuffer.allocate(4 + 2 + 3 + 8 + 8 + 4 + 4 + 10);
+		tail.putInt(0x48535431).putShort((short) 3).put("abc".getBytes())
+				.putLong(base).putLong(base + 1000).putInt(5).putInt(100);
+		Files.write(segment, tail.array(), StandardOpenOption.APPEND);
+
+		Historian reloaded = start();
+		assertEquals(size, Files.size(segment));
+		assertEquals(10, reloaded.query("estoque.nivel", base, base + MINUTE).size());
+
+		// Depois do corte o segmento continua recebendo blocos normalmente
+		reloaded.append("estoque.nivel", base + 20_000L, 99);
+		stopNow(reloaded);
+		assertEquals(11, start().query("estoque.nivel", base, base + MINUTE).size());
+	}
+
+	private Historian start() throws Exception {
+		Historian historian = new Historian();
+		ReflectionTestUtils.setField(historian, "enabled", true);
+		ReflectionTestUtils.setField(historian, "directory", dir.toString());
+		ReflectionTestUtils.setField(historian, "segmentMinutes", 1L);
+		ReflectionTestUtils.setField(historian, "retentionHours", 168L);
+		ReflectionTestUtils.setField(historian, "chunkSamples", 4);
+		ReflectionTestUtils.setField(historian, "flushIntervalMs", 3_600_000L);
+		historian.start();
+		started.add(historian);
+		return historian;
+	}
+
+	private void stopNow(Historian historian) {
+		historian.stop();
+		started.remove(historian);
+	}
+
+	// Início de uma janela de um minuto recente (dentro da retenção)
+	private static long windowStart() {
+		long now = System.currentTimeMillis() - 10 * MINUTE;
+		return now - now % MINUTE;
+	}
+
+	private List<Path> segmentFiles() throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			List<Path> result = files.filter(path -> path.toString().endsWith(".seg")).sorted().toList();
+			assertTrue(!result.isEmpty());
+			return result;
+		}
+	}
+}
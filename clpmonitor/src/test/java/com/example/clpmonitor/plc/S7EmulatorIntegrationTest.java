@@ -0,0 +1,221 @@
+package com.example.clpmonitor.plc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.clpmonitor.plc.emulator.S7Emulator;
+
+// PlcConnector/S7Client contra o CLP emulado, sem CPU real nem Spring
+class S7EmulatorIntegrationTest {
+
+	private S7Emulator emulator;
+	private PlcConnector plc;
+
+	@BeforeEach
+	void start() throws Exception {
+		emulator = new S7Emulator("teste", 0);
+		emulator.setMaxPduSize(240);
+		emulator.defineDb(9, 1024);
+		emulator.start();
+
+		plc = new PlcConnector("127.0.0.1", emulator.getPort(), 1000, 500);
+		plc.connect();
+	}
+
+	@AfterEach
+	void stop() throws Exception {
+		plc.disconnect();
+		emulator.close();
+	}
+
+	@Test
+	void negotiatesPduAndRoundTripsTypes() throws Exception {
+		assertEquals(240 - S7Client.READ_RESPONSE_OVERHEAD - S7Client.READ_RESPONSE_ITEM_HEADER, plc.getMaxReadDataSize());
+
+		assertTrue(plc.writeInt(9, 6, -1234));
+		assertEquals(-1234, plc.readInt(9, 6));
+
+		assertTrue(plc.writeFloat(9, 10, 3.5f));
+		assertEquals(3.5f, plc.readFloat(9, 10));
+
+		assertTrue(plc.writeBit(9, 20, 3, true));
+		assertTrue(plc.readBit(9, 20, 3));
+		assertEquals(0x08, emulator.readDb(9, 20, 1)[0]);
+
+		assertTrue(plc.writeString(9, 100, 20, "SENAI"));
+		assertEquals("SENAI", plc.readString(9, 100, 20));
+	}
+
+	@Test
+	void splitsBlocksLargerThanPdu() throws Exception {
+		byte[] block = new byte[600];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = (byte) i;
+		}
+		assertTrue(plc.writeBlock(9, 300, block.length, block));
+		assertArrayEquals(block, emulator.readDb(9, 300, block.length));
+		assertArrayEquals(block, plc.readBlock(9, 300, block.length));
+	}
+
+	@Test
+	void reportsItemReturnCodes() throws Exception {
+		List<S7ReadResult> results = plc.readItems(List.of(
+				S7ReadItem.ofInt(9, 0),
+				S7ReadItem.ofInt(9, 1023),
+				S7ReadItem.ofInt(42, 0)));
+
+		assertTrue(results.get(0).isSuccess());
+		assertEquals(S7Emulator.RC_ADDRESS_OUT_OF_RANGE, results.get(1).getReturnCode());
+		assertEquals(S7Emulator.RC_OBJECT_DOES_NOT_EXIST, results.get(2).getReturnCode());
+		assertFalse(plc.write(9, 1023, 0, 0, S7DataType.INTEGER, 1));
+	}
+
+	@Test
+	void writesManyItemsInFewRequests() throws Exception {
+		byte[] block = new byte[300];
+		for (int i = 0; i < block.length; i++) {
+			block[i] = (byte) (i * 7);
+		}
+		// Tamanhos ímpares exigem fill byte entre itens; o bloco não cabe na PDU de 240
+		List<S7WriteResult> results = plc.writeItems(List.of(
+				new S7WriteItem(9, 0, 0, 0, S7DataType.BYTE, (byte) 0x11),
+				new S7WriteItem(9, 2, 0, 0, S7DataType.INTEGER, 4321),
+				new S7WriteItem(9, 4, 5, 1, S7DataType.BOOLEAN, true),
+				new S7WriteItem(9, 8, 0, 0, S7DataType.FLOAT, 1.25f),
+				new S7WriteItem(9, 40, 0, 11, S7DataType.STRING, "LOTE-7"),
+				new S7WriteItem(9, 500, 0, block.length, S7DataType.BLOCK, block),
+				new S7WriteItem(9, 1023, 0, 0, S7DataType.INTEGER, 1)));
+
+		assertEquals(7, results.size());
+		for (int i = 0; i < 6; i++) {
+			assertTrue(results.get(i).isSuccess(), results.get(i).toString());
+		}
+		assertEquals(S7Emulator.RC_ADDRESS_OUT_OF_RANGE, results.get(6).getReturnCode());
+
+		assertEquals(0x11, plc.readByte(9, 0));
+		assertEquals(4321, plc.readInt(9, 2));
+		assertTrue(plc.readBit(9, 4, 5));
+		assertEquals(1.25f, plc.readFloat(9, 8));
+		assertEquals("LOTE-7", plc.readString(9, 40, 11));
+		assertArrayEquals(block, emulator.readDb(9, 500, block.length));
+		assertTrue(emulator.getWriteCount() <= 3, "escritas: " + emulator.getWriteCount());
+	}
+
+	@Test
+	void shortStringDoesNotShiftFollowingItems() throws Exception {
+		// STRING mais curta que o tamanho máximo seguida de outro item no mesmo WriteVar
+		List<S7WriteResult> results = plc.writeItems(List.of(
+				new S7WriteItem(9, 0, 0, 10, S7DataType.STRING, "AB"),
+				new S7WriteItem(9, 20, 0, 0, S7DataType.INTEGER, 1234)));
+
+		assertTrue(results.get(0).isSuccess(), results.get(0).toString());
+		assertTrue(results.get(1).isSuccess(), results.get(1).toString());
+		assertEquals(1, emulator.getWriteCount());
+		assertArrayEquals(new byte[] { 10, 2, 'A', 'B', 0, 0, 0, 0, 0, 0, 0, 0 }, emulator.readDb(9, 0, 12));
+		assertEquals(1234, plc.readInt(9, 20));
+
+		// Texto maior que o tamanho é recusado antes de chegar ao CLP
+		assertThrows(IllegalArgumentException.class,
+				() -> new S7WriteItem(9, 0, 0, 3, S7DataType.STRING, "ABCD"));
+		assertEquals(1, emulator.getWriteCount());
+	}
+
+	@Test
+	void coalescesPendingWritesIntoBlocks() throws Exception {
+		// Mesmo endereço várias vezes, vizinhos, sobreposição e bits dentro e fora dos bytes escritos
+		List<S7WriteItem> pending = List.of(
+				new S7WriteItem(9, 0, 0, 0, S7DataType.INTEGER, 1),
+				new S7WriteItem(9, 30, 2, 1, S7DataType.BOOLEAN, true),
+				new S7WriteItem(9, 2, 0, 0, S7DataType.INTEGER, 2),
+				new S7WriteItem(9, 0, 0, 0, S7DataType.INTEGER, 3),
+				new S7WriteItem(9, 4, 0, 0, S7DataType.DINT, 70000),
+				new S7WriteItem(9, 2, 1, 1, S7DataType.BOOLEAN, true),
+				new S7WriteItem(9, 30, 2, 1, S7DataType.BOOLEAN, false),
+				new S7WriteItem(9, 20, 0, 0, S7DataType.FLOAT, 2.5f),
+				new S7WriteItem(9, 31, 0, 1, S7DataType.BOOLEAN, true),
+				new S7WriteItem(9, 31, 0, 0, S7DataType.BYTE, (byte) 0x40));
+
+		S7WriteCoalescer plan = new S7WriteCoalescer(pending);
+		// DB9.0..7 num bloco, o FLOAT sozinho, o byte 31 (bit descartado) e o bit 30.2
+		assertEquals(4, plan.items.size());
+		assertEquals(plan.targets[0], plan.targets[3]);
+		assertEquals(plan.targets[1], plan.targets[6]);
+		assertEquals(plan.targets[8], plan.targets[9]);
+		assertEquals(S7DataType.FLOAT, plan.items.get(plan.targets[7]).getDataType());
+
+		List<S7WriteResult> results = plc.writeItems(plan.items);
+		assertTrue(results.stream().allMatch(S7WriteResult::isSuccess));
+		assertEquals(1, emulator.getWriteCount());
+
+		assertEquals(3, plc.readInt(9, 0));
+		assertEquals(0x0202, plc.readInt(9, 2));
+		assertArrayEquals(new byte[] { 0x00, 0x01, 0x11, 0x70 }, emulator.readDb(9, 4, 4));
+		assertEquals(2.5f, plc.readFloat(9, 20));
+		assertFalse(plc.readBit(9, 30, 2));
+		assertEquals(0x40, plc.readByte(9, 31));
+	}
+
+	@Test
+	void droppedResponseTimesOut() throws Exception {
+		emulator.setDropProbability(1.0);
+		assertThrows(Exception.class, () -> plc.readInt(9, 0));
+		assertEquals(1, emulator.getInjectedFaultCount());
+	}
+
+	@Test
+	void pipelinedReadsOverlapLatency() throws Exception {
+		// Max AMQ pedido (8) = máximo do emulador: 8 jobs pendentes ao mesmo tempo
+		assertEquals(S7Client.DEFAULT_MAX_AMQ, plc.getMaxAmqCalling());
+		for (int i = 0; i < 8; i++) {
+			emulator.writeDb(9, 2 * i, new byte[] { 0, (byte) (i + 1) });
+		}
+		emulator.setLatency(150, 150);
+
+		long start = System.nanoTime();
+		List<CompletableFuture<List<S7ReadResult>>> reads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			reads.add(plc.readItemsAsync(List.of(S7ReadItem.ofInt(9, 2 * i))));
+		}
+		for (int i = 0; i < 8; i++) {
+			assertEquals(i + 1, reads.get(i).get(5, TimeUnit.SECONDS).get(0).getValue());
+		}
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Em série seriam 8 x 150 ms; em pipeline, perto de uma latência
+		assertTrue(elapsedMs < 3 * 150, elapsedMs + " ms");
+		assertEquals(8, emulator.getPeakJobsInFlight());
+	}
+
+	@Test
+	void negotiatedAmqCapsJobsInFlight() throws Exception {
+		emulator.setMaxAmq(2);
+		PlcConnector limited = new PlcConnector("127.0.0.1", emulator.getPort(), 1000, 500, 8);
+		limited.connect();
+		try {
+			assertEquals(2, limited.getMaxAmqCalling());
+			emulator.setLatency(50, 50);
+			List<CompletableFuture<List<S7ReadResult>>> reads = new ArrayList<>();
+			for (int i = 0; i < 6; i++) {
+				reads.add(limited.readItemsAsync(List.of(S7ReadItem.ofInt(9, 0))));
+			}
+			for (CompletableFuture<List<S7ReadResult>> read : reads) {
+				assertTrue(read.get(5, TimeUnit.SECONDS).get(0).isSuccess());
+			}
+			assertEquals(2, emulator.getPeakJobsInFlight());
+		} finally {
+			limited.disconnect();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.clpmonitor.scan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7NioConnection;
+import com.example.clpmonitor.plc.S7NioTransport;
+import com.example.clpmonitor.plc.emulator.S7Emulator;
+
+// Varredura pelo transporte não bloqueante: vários CLPs emulados numa única thread de I/O
+class NioScanTest {
+
+	private static final int PLCS = 8;
+
+	private final List<S7Emulator> emulators = new ArrayList<>();
+	private final List<ScanGroup> groups = new ArrayList<>();
+	private S7NioTransport transport;
+
+	@BeforeEach
+	void start() throws Exception {
+		for (int i = 0; i < PLCS; i++) {
+			S7Emulator emulator = new S7Emulator("clp" + i, 0);
+			emulator.setMaxPduSize(240);
+			emulator.setMaxAmq(4);
+			emulator.defineDb(9, 256);
+			emulator.writeDb(9, 6, new byte[] { 0, (byte) i, 0, (byte) (i * 2) });
+			emulator.start();
+			emulators.add(emulator);
+
+			groups.add(new ScanGroup("clp" + i, "ocupacao", "127.0.0.1", emulator.getPort(), 100, null, i,
+					List.of(new ScanTag("clp" + i, "a", 9, 6, 0, 2, S7DataType.INTEGER),
+							new ScanTag("clp" + i, "b", 9, 8, 0, 2, S7DataType.INTEGER),
+							new ScanTag("clp" + i, "fora", 9, 255, 0, 2, S7DataType.INTEGER)),
+					16));
+		}
+		transport = new S7NioTransport(1, 1000, 500);
+	}
+
+	@AfterEach
+	void stop() {
+		transport.shutdown();
+		emulators.forEach(S7Emulator::close);
+	}
+
+	@Test
+	void scansManyPlcsOnOneIoThread() throws Exception {
+		for (int cycle = 0; cycle < 3; cycle++) {
+			List<CompletableFuture<List<TagValue>>> cycles = new ArrayList<>();
+			for (ScanGroup group : groups) {
+				cycles.add(transport.connect(group.getIp(), group.getPort()).thenCompose(group::readAsync));
+			}
+			for (int i = 0; i < PLCS; i++) {
+				List<TagValue> values = cycles.get(i).get(5, TimeUnit.SECONDS);
+				assertEquals(i, values.get(0).getValue());
+				assertEquals(i * 2, values.get(1).getValue());
+				// Endereço fora do DB: só a tag dele fica ruim
+				assertTrue(values.get(0).isGood() && !values.get(2).isGood(), values.toString());
+			}
+		}
+
+		long ioThreads = Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getName().startsWith("s7-nio-")).count();
+		assertEquals(1, ioThreads);
+		for (S7Emulator emulator : emulators) {
+			assertEquals(1, emulator.getConnectionCount());
+		}
+	}
+
+	@Test
+	void pipelinesJobsOnEachConnection() throws Exception {
+		List<S7NioConnection> connections = new ArrayList<>();
+		for (ScanGroup group : groups) {
+			S7NioConnection connection = transport.connect(group.getIp(), group.getPort()).get(5, TimeUnit.SECONDS);
+			// Pedido 8, emulador suporta 4
+			assertEquals(4, connection.getMaxAmqCalling());
+			connections.add(connection);
+		}
+		emulators.forEach(emulator -> emulator.setLatency(100, 100));
+
+		// 4 ciclos por CLP ao mesmo tempo: em série seriam 4 x 100 ms por conexão
+		long start = System.nanoTime();
+		List<CompletableFuture<List<TagValue>>> cycles = new ArrayList<>();
+		for (int i = 0; i < PLCS; i++) {
+			for (int j = 0; j < 4; j++) {
+				cycles.add(groups.get(i).readAsync(connections.get(i)));
+			}
+		}
+		for (int i = 0; i < cycles.size(); i++) {
+			assertEquals(i / 4, cycles.get(i).get(5, TimeUnit.SECONDS).get(0).getValue());
+		}
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(elapsedMs < 300, elapsedMs + " ms");
+		for (S7Emulator emulator : emulators) {
+			assertTrue(emulator.getPeakJobsInFlight() > 1, "jobs simultâneos: " + emulator.getPeakJobsInFlight());
+			assertTrue(emulator.getPeakJobsInFlight() <= 4);
+		}
+	}
+
+	@Test
+	void reconnectsAfterDroppedConnection() throws Exception {
+		ScanGroup group = groups.get(3);
+		S7Emulator emulator = emulators.get(3);
+		S7NioConnection first = transport.connect(group.getIp(), group.getPort()).get(5, TimeUnit.SECONDS);
+		assertEquals(3, group.readAsync(first).get(5, TimeUnit.SECONDS).get(0).getValue());
+
+		emulator.dropConnections();
+		for (int i = 0; i < 50 && first.isOpen(); i++) {
+			Thread.sleep(20);
+		}
+
+		S7NioConnection second = transport.connect(group.getIp(), group.getPort()).get(5, TimeUnit.SECONDS);
+		assertNotSame(first, second);
+		emulator.writeDb(9, 6, new byte[] { 0, 42 });
+		assertEquals(42, group.readAsync(second).get(5, TimeUnit.SECONDS).get(0).getValue());
+	}
+}
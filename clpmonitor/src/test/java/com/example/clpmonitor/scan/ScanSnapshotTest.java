@@ -0,0 +1,64 @@
+package com.example.clpmonitor.scan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7WriteItem;
+
+// Valor anterior da auditoria a partir do último ciclo de varredura
+class ScanSnapshotTest {
+
+	private static final String IP = "10.74.241.10";
+
+	private final ScanTag nivel = new ScanTag("estoque", "nivel", 9, 6, 0, 2, S7DataType.INTEGER);
+	private final ScanTag porta = new ScanTag("estoque", "porta", 9, 20, 3, 1, S7DataType.BOOLEAN);
+	private final ScanGroup group = new ScanGroup("estoque", "ocupacao", IP, 102, 1000, null, 1,
+			List.of(nivel, porta), 16);
+	private final ScanSnapshot snapshot = new ScanSnapshot();
+
+	@Test
+	void returnsLatestGoodValueOfTheSameAddress() {
+		long now = System.currentTimeMillis();
+		snapshot.onScan(group, List.of(new TagValue(nivel, 41, now, true), new TagValue(porta, true, now, true)));
+		snapshot.onScan(group, List.of(new TagValue(nivel, 42, now, true), new TagValue(porta, true, now, true)));
+
+		assertEquals("42", snapshot.currentValue(IP, 102, write(9, 6, 0, S7DataType.INTEGER, 7)));
+		assertEquals(S7DataType.BOOLEAN.format(true),
+				snapshot.currentValue(IP, 102, write(9, 20, 3, S7DataType.BOOLEAN, false)));
+
+		// Outro CLP, porta, bit, tipo ou endereço não tem valor conhecido
+		assertNull(snapshot.currentValue("10.74.241.40", 102, write(9, 6, 0, S7DataType.INTEGER, 7)));
+		assertNull(snapshot.currentValue(IP, 1102, write(9, 6, 0, S7DataType.INTEGER, 7)));
+		assertNull(snapshot.currentValue(IP, 102, write(9, 20, 4, S7DataType.BOOLEAN, false)));
+		assertNull(snapshot.currentValue(IP, 102, write(9, 6, 0, S7DataType.WORD, 7)));
+		assertNull(snapshot.currentValue(IP, 102, write(9, 8, 0, S7DataType.INTEGER, 7)));
+	}
+
+	@Test
+	void forgetsFailedAndStaleValues() {
+		long now = System.currentTimeMillis();
+		S7WriteItem write = write(9, 6, 0, S7DataType.INTEGER, 7);
+
+		snapshot.onScan(group, List.of(new TagValue(nivel, 42, now, true)));
+		snapshot.onScan(group, List.of(TagValue.bad(nivel, now)));
+		assertNull(snapshot.currentValue(IP, 102, write));
+
+		snapshot.onScan(group, List.of(new TagValue(nivel, 42, now, true)));
+		snapshot.onScanError(group, new IOException("CLP não respondeu"));
+		assertNull(snapshot.currentValue(IP, 102, write));
+
+		// Mais de dois períodos (rate-ms = 1000) sem ciclo novo
+		snapshot.onScan(group, List.of(new TagValue(nivel, 42, now - 2_500, true)));
+		assertNull(snapshot.currentValue(IP, 102, write));
+	}
+
+	private static S7WriteItem write(int db, int offset, int bit, S7DataType type, Object value) {
+		return new S7WriteItem(db, offset, bit, 0, type, value);
+	}
+}
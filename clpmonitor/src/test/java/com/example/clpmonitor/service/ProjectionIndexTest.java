@@ -0,0 +1,137 @@
+package com.example.clpmonitor.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.clpmonitor.config.ProjectionProperties;
+import com.example.clpmonitor.config.ProjectionProperties.Field;
+import com.example.clpmonitor.plc.S7DataType;
+import com.example.clpmonitor.plc.S7WriteItem;
+
+// Regras equivalentes às do application.properties reproduzem o mapeamento fixo que existia no ClpController
+class ProjectionIndexTest {
+
+	private static final String ESTOQUE = "10.74.241.10";
+	private static final String EXPEDICAO = "10.74.241.40";
+
+	@Test
+	void reproducesTheFormerHardCodedMapping() {
+		ProjectionIndex index = new ProjectionIndex(defaultRules());
+
+		for (int offset = 0; offset < 28; offset++) {
+			ProjectionIndex.Target[] colors = index.lookup(ESTOQUE, 102, 9, offset, S7DataType.BYTE);
+			assertEquals(1, colors.length);
+			assertEquals(Field.COLOR, colors[0].field);
+			assertEquals(1, colors[0].storageId);
+			assertEquals(offset, colors[0].position);
+
+			ProjectionIndex.Target[] orders = index.lookup(EXPEDICAO, 102, 9, offset, S7DataType.INTEGER);
+			assertEquals(1, orders.length);
+			assertEquals(Field.ORDER, orders[0].field);
+			assertEquals(offset, orders[0].position);
+		}
+
+		// Tipo, CLP, porta, DB ou endereço fora das regras não projetam nada
+		assertEquals(0, index.lookup(ESTOQUE, 102, 9, 0, S7DataType.INTEGER).length);
+		assertEquals(0, index.lookup(EXPEDICAO, 102, 9, 0, S7DataType.BYTE).length);
+		assertEquals(0, index.lookup("10.74.241.20", 102, 9, 0, S7DataType.BYTE).length);
+		assertEquals(0, index.lookup(ESTOQUE, 1102, 9, 0, S7DataType.BYTE).length);
+		assertEquals(0, index.lookup(ESTOQUE, 102, 10, 0, S7DataType.BYTE).length);
+		assertEquals(0, index.lookup(ESTOQUE, 102, 9, 28, S7DataType.BYTE).length);
+		assertEquals(0, index.lookup(ESTOQUE, 102, 9, -1, S7DataType.BYTE).length);
+	}
+
+	@Test
+	void keepsEveryRuleOfASlotFilteredByType() {
+		List<ProjectionProperties.Rule> rules = new ArrayList<>(defaultRules());
+		// Outro estoque lendo as mesmas cores e uma ordem (INTEGER, stride 4) sobre os mesmos bytes
+		rules.add(rule(ESTOQUE, 0, 28, 0, "BYTE", Field.COLOR, 2, 100));
+		rules.add(rule(ESTOQUE, 2, 3, 4, "INTEGER", Field.ORDER, 1, 0));
+		ProjectionIndex index = new ProjectionIndex(rules);
+
+		ProjectionIndex.Target[] colors = index.lookup(ESTOQUE, 102, 9, 6, S7DataType.BYTE);
+		assertEquals(2, colors.length);
+		assertEquals(6, colors[0].position);
+		assertEquals(2, colors[1].storageId);
+		assertEquals(106, colors[1].position);
+
+		ProjectionIndex.Target[] orders = index.lookup(ESTOQUE, 102, 9, 6, S7DataType.INTEGER);
+		assertEquals(1, orders.length);
+		assertEquals(1, orders[0].position);
+		assertEquals(0, index.lookup(ESTOQUE, 102, 9, 4, S7DataType.INTEGER).length);
+		assertEquals(4, index.getRuleCount());
+	}
+
+	@Test
+	void rejectsInvalidRules() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new ProjectionIndex(List.of(rule(ESTOQUE, 0, 1, 0, "BOOLEAN", Field.COLOR, 1, 0))));
+		assertThrows(IllegalArgumentException.class,
+				() -> new ProjectionIndex(List.of(rule(ESTOQUE, 0, 0, 0, "BYTE", Field.COLOR, 1, 0))));
+		assertThrows(IllegalArgumentException.class,
+				() -> new ProjectionIndex(List.of(rule(" ", 0, 1, 0, "BYTE", Field.COLOR, 1, 0))));
+	}
+
+	@Test
+	void projectsBlockWritesByteByByte() {
+		List<StorageChange> applied = new ArrayList<>();
+		StorageUpdateService updates = mock(StorageUpdateService.class);
+		doAnswer(call -> applied.addAll(call.getArgument(0))).when(updates).applyAll(anyList());
+
+		ProjectionProperties properties = new ProjectionProperties();
+		properties.setRules(defaultRules());
+		StorageProjector projector = new StorageProjector();
+		ReflectionTestUtils.setField(projector, "storageUpdates", updates);
+		ReflectionTestUtils.setField(projector, "projectionProperties", properties);
+		ReflectionTestUtils.setField(projector, "queueCapacity", 100);
+		ReflectionTestUtils.setField(projector, "batchSize", 100);
+		ReflectionTestUtils.setField(projector, "flushIntervalMs", 10L);
+		ReflectionTestUtils.setField(projector, "offerTimeoutMs", 10L);
+		projector.start();
+
+		// DB9.26..29: os dois últimos bytes ficam fora da regra de cores (28 posições)
+		projector.submit(ESTOQUE, 102, new S7WriteItem(9, 26, 0, 4, S7DataType.BLOCK,
+				new byte[] { 3, (byte) 0xFF, 7, 7 }));
+		projector.shutdown();
+
+		assertEquals(2, applied.size());
+		assertEquals(26, applied.get(0).getPosition());
+		assertEquals("3", applied.get(0).getValue());
+		assertEquals(27, applied.get(1).getPosition());
+		assertEquals("255", applied.get(1).getValue());
+		assertEquals(Field.COLOR, applied.get(1).getField());
+	}
+
+	// clp.projection.rules do application.properties
+	private static List<ProjectionProperties.Rule> defaultRules() {
+		ProjectionProperties.Rule colors = rule(ESTOQUE, 0, 28, 0, "BYTE", Field.COLOR, 1, 0);
+		colors.setName("cores-estoque");
+		ProjectionProperties.Rule orders = rule(EXPEDICAO, 0, 28, 1, "INTEGER", Field.ORDER, 1, 0);
+		orders.setName("ordens-expedicao");
+		return List.of(colors, orders);
+	}
+
+	private static ProjectionProperties.Rule rule(String ip, int offset, int count, int stride, String type,
+			Field field, int storageId, int position) {
+		ProjectionProperties.Rule rule = new ProjectionProperties.Rule();
+		rule.setIp(ip);
+		rule.setDb(9);
+		rule.setOffset(offset);
+		rule.setCount(count);
+		rule.setStride(stride);
+		rule.setType(type);
+		rule.setField(field);
+		rule.setStorageId(storageId);
+		rule.setPosition(position);
+		return rule;
+	}
+}
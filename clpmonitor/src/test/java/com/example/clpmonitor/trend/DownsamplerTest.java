@@ -0,0 +1,113 @@
+package com.example.clpmonitor.trend;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+// LTTB e MINMAX: tamanho da saída, extremos preservados e ordem no tempo
+class DownsamplerTest {
+
+	private static final long T0 = 1_700_000_000_000L;
+
+	@Test
+	void returnsSeriesUntouchedWhenAlreadySmall() {
+		TrendSeries series = series(100);
+		assertSame(series, Downsampler.lttb(series, 100));
+		assertSame(series, Downsampler.lttb(series, 500));
+		assertSame(series, Downsampler.lttb(series, 2));
+		assertSame(series, Downsampler.minMax(series, 50));
+		assertSame(series, Downsampler.minMax(series, 0));
+	}
+
+	@Test
+	void lttbKeepsEndpointsAndReturnsExactlyThreshold() {
+		TrendSeries series = series(1000);
+		// Pico isolado: o maior triângulo do seu balde
+		series.getValues()[537] = 1000;
+
+		for (int threshold : new int[] { 3, 10, 97, 500, 999 }) {
+			TrendSeries reduced = Downsampler.lttb(series, threshold);
+			long[] t = reduced.getTimestamps();
+			assertEquals(threshold, reduced.size());
+			assertEquals(T0, t[0]);
+			assertEquals(T0 + 999 * 1000L, t[threshold - 1]);
+			assertEquals(series.getValues()[999], reduced.getValues()[threshold - 1]);
+			assertIncreasing(t);
+			assertEquals(1000, reduced.getRawCount());
+			if (threshold >= 10) {
+				assertTrue(Arrays.stream(reduced.getValues()).anyMatch(value -> value == 1000), "limiar " + threshold);
+			}
+		}
+	}
+
+	@Test
+	void minMaxKeepsMinAndMaxOfEachBucketInTimeOrder() {
+		// 10 faixas de 10 amostras: máximo na 3ª amostra e mínimo na 8ª; nas faixas ímpares, ao contrário
+		long[] t = new long[100];
+		double[] v = new double[100];
+		for (int i = 0; i < 100; i++) {
+			t[i] = T0 + i * 1000L;
+		}
+		for (int k = 0; k < 10; k++) {
+			boolean odd = k % 2 == 1;
+			v[10 * k + 2] = odd ? -k - 1 : k + 100;
+			v[10 * k + 7] = odd ? k + 100 : -k - 1;
+		}
+
+		TrendSeries reduced = Downsampler.downsample(new TrendSeries("nivel", t, v, 100), 10,
+				Downsampler.Mode.MINMAX);
+		assertEquals(20, reduced.size());
+		for (int k = 0; k < 10; k++) {
+			assertEquals(t[10 * k + 2], reduced.getTimestamps()[2 * k]);
+			assertEquals(v[10 * k + 2], reduced.getValues()[2 * k]);
+			assertEquals(t[10 * k + 7], reduced.getTimestamps()[2 * k + 1]);
+			assertEquals(v[10 * k + 7], reduced.getValues()[2 * k + 1]);
+		}
+	}
+
+	@Test
+	void minMaxNeverExceedsTwoPointsPerBucket() {
+		Random random = new Random(7);
+		long[] t = new long[5000];
+		double[] v = new double[5000];
+		long now = T0;
+		for (int i = 0; i < t.length; i++) {
+			// Amostragem irregular, com rajadas e buracos
+			now += 1 + (random.nextInt(10) == 0 ? random.nextInt(60_000) : random.nextInt(50));
+			t[i] = now;
+			v[i] = random.nextGaussian();
+		}
+		TrendSeries series = new TrendSeries("nivel", t, v, t.length);
+		double min = Arrays.stream(v).min().getAsDouble();
+		double max = Arrays.stream(v).max().getAsDouble();
+
+		for (int buckets : new int[] { 1, 7, 100, 800, 2499 }) {
+			TrendSeries reduced = Downsampler.minMax(series, buckets);
+			assertTrue(reduced.size() <= 2 * buckets, buckets + " faixas: " + reduced.size());
+			assertIncreasing(reduced.getTimestamps());
+			assertTrue(Arrays.stream(reduced.getValues()).anyMatch(value -> value == min));
+			assertTrue(Arrays.stream(reduced.getValues()).anyMatch(value -> value == max));
+		}
+	}
+
+	private static TrendSeries series(int n) {
+		long[] t = new long[n];
+		double[] v = new double[n];
+		for (int i = 0; i < n; i++) {
+			t[i] = T0 + i * 1000L;
+			v[i] = Math.sin(i / 20.0);
+		}
+		return new TrendSeries("nivel", t, v, n);
+	}
+
+	private static void assertIncreasing(long[] timestamps) {
+		for (int i = 1; i < timestamps.length; i++) {
+			assertTrue(timestamps[i] > timestamps[i - 1], "instante " + i);
+		}
+	}
+}
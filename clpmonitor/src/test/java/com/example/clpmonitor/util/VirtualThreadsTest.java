@@ -0,0 +1,38 @@
+package com.example.clpmonitor.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+// No Java 21+ as threads são de fato virtuais; no 17, threads de plataforma daemon
+class VirtualThreadsTest {
+
+	private static final boolean JAVA_21 = Runtime.version().feature() >= 21;
+
+	@Test
+	void factoryCreatesVirtualThreadsOnJava21() throws Exception {
+		assertEquals(JAVA_21, VirtualThreads.isAvailable());
+
+		Thread thread = VirtualThreads.factory("teste").newThread(() -> {
+		});
+		assertEquals("teste-1", thread.getName());
+		assertEquals(JAVA_21, VirtualThreads.isVirtual(thread));
+		assertTrue(thread.isDaemon());
+	}
+
+	@Test
+	void perTaskExecutorRunsOnVirtualThreadsOnJava21() throws Exception {
+		ExecutorService executor = VirtualThreads.newPerTaskExecutor("tarefa");
+		try {
+			Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+			assertTrue(thread.getName().startsWith("tarefa-"), thread.getName());
+			assertEquals(JAVA_21, VirtualThreads.isVirtual(thread));
+		} finally {
+			executor.shutdown();
+		}
+	}
+}